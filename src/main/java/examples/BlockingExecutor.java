@@ -0,0 +1,178 @@
+package examples;
+
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/// Where blocking native calls run. A JNI call (RocksDB, SQLite) never unmounts a virtual thread: the carrier is
+/// blocked for the whole call ⇒ with enough concurrent callers all carriers sit in native code and every other
+/// virtual thread (NATS handlers, timers…) waits. `-Djdk.tracePinnedThreads` does NOT show it (no park inside native code).
+///
+/// - [Strategy#VIRTUAL] run on the caller's virtual thread (cheapest for short calls: no hand-off)
+/// - [Strategy#PLATFORM] every call goes to a dedicated platform pool; virtual callers unmount while waiting
+/// - [Strategy#HYBRID] platform callers run inline (no carrier to block), virtual callers are offloaded
+///
+/// Pool size: `-Dmagic.executor.threads`, default = cores (CPU part of JNI: memtable, compression) + 4 × `-Dmagic.executor.disks`
+/// (I/O queue depth). [Stats] shows the carrier occupancy (saturation = calls in native code on carriers / carriers).
+@Slf4j
+public final class BlockingExecutor implements Executor, AutoCloseable {
+	public enum Strategy { VIRTUAL, PLATFORM, HYBRID }
+
+	private final Strategy strategy;
+	private final int threads;
+	private final ThreadPoolExecutor pool;
+	private final ExecutorService virtual = Executors.newVirtualThreadPerTaskExecutor();
+	static final int CARRIERS = Integer.getInteger("jdk.virtualThreadScheduler.parallelism", Runtime.getRuntime().availableProcessors());
+
+	private final LongAdder inline = new LongAdder(), offloaded = new LongAdder(), queueWaitNanos = new LongAdder(), carrierBusyNanos = new LongAdder();
+	private final AtomicInteger onCarriers = new AtomicInteger(), maxOnCarriers = new AtomicInteger(), maxQueue = new AtomicInteger();
+	private final long startNanos = System.nanoTime();
+
+	public BlockingExecutor (Strategy strategy, int threads) {
+		this.strategy = strategy;
+		this.threads = Math.max(1, threads);
+		val counter = new AtomicInteger();
+		pool = new ThreadPoolExecutor(this.threads, this.threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+			r->Thread.ofPlatform().daemon().name("blocking-" + counter.incrementAndGet()).unstarted(r));
+	}//new
+
+	/// `-Dmagic.executor=hybrid|platform|virtual -Dmagic.executor.threads=N -Dmagic.executor.disks=1`
+	public static BlockingExecutor fromSystemProperties () {
+		val strategy = Strategy.valueOf(System.getProperty("magic.executor", "hybrid").trim().toUpperCase(Locale.ROOT));
+		int disks = Integer.getInteger("magic.executor.disks", 1);
+		return new BlockingExecutor(strategy, Integer.getInteger("magic.executor.threads", Runtime.getRuntime().availableProcessors() + 4 * disks));
+	}
+
+	public Strategy strategy (){ return strategy; }
+
+	/// Blocking call according to the strategy (the caller waits for the result)
+	public <T> T call (Callable<T> task) throws Exception {
+		boolean offload = switch (strategy){
+			case VIRTUAL -> false;
+			case PLATFORM -> true;
+			case HYBRID -> Thread.currentThread().isVirtual();
+		};
+		if (!offload){
+			inline.increment();
+			return measured(task);
+		}
+		return MagicUtils.get(submitToPool(task));
+	}
+
+	/// Async call: VIRTUAL ⇒ new virtual thread, PLATFORM/HYBRID ⇒ platform pool
+	public <T> CompletableFuture<T> submit (Callable<T> task) {
+		if (strategy == Strategy.VIRTUAL){
+			inline.increment();
+			return CompletableFuture.supplyAsync(supplier(task, System.nanoTime()), virtual);
+		}
+		return submitToPool(task);
+	}
+
+	@Override
+	public void execute (Runnable command) {
+		submit(Executors.callable(command));
+	}
+
+	private <T> CompletableFuture<T> submitToPool (Callable<T> task) {
+		offloaded.increment();
+		val future = CompletableFuture.supplyAsync(supplier(task, System.nanoTime()), pool);
+		int queued = pool.getQueue().size();
+		if (queued > maxQueue.get()){ maxQueue.accumulateAndGet(queued, Math::max); }
+		return future;
+	}
+
+	private <T> Supplier<T> supplier (Callable<T> task, long enqueuedNanos) {
+		return ()->{
+			queueWaitNanos.add(System.nanoTime() - enqueuedNanos);
+			try {
+				return measured(task);
+			} catch (Exception e){
+				throw new CompletionException(e);
+			}
+		};
+	}
+
+	/// on a virtual thread the call occupies a carrier for its whole duration
+	private <T> T measured (Callable<T> task) throws Exception {
+		if (!Thread.currentThread().isVirtual()){ return task.call(); }
+		int now = onCarriers.incrementAndGet();
+		if (now > maxOnCarriers.get()){ maxOnCarriers.accumulateAndGet(now, Math::max); }
+		long t = System.nanoTime();
+		try {
+			return task.call();
+		} finally {
+			carrierBusyNanos.add(System.nanoTime() - t);
+			onCarriers.decrementAndGet();
+		}
+	}
+
+	/// @param carrierSaturation time in blocking calls on carriers / (elapsed × carriers): 1.0 = all carriers blocked all the time
+	/// @param maxCarrierSaturation max simultaneous blocking calls on carriers / carriers (> 100%: the scheduler added compensating carriers)
+	public record Stats (Strategy strategy, long inline, long offloaded, double avgQueueWaitMicros, int maxQueue,
+											 double carrierSaturation, double maxCarrierSaturation, int poolThreads, int carriers) {
+		@Override
+		public String toString () {
+			return String.format(Locale.ENGLISH, "%s: inline=%d offloaded=%d (avg queue wait %.1f µs, max queue %d, %d threads), carriers=%d saturation avg=%.0f%% max=%.0f%%",
+				strategy, inline, offloaded, avgQueueWaitMicros, maxQueue, poolThreads, carriers, carrierSaturation * 100, maxCarrierSaturation * 100);
+		}
+	}
+
+	public Stats stats () {
+		long elapsed = Math.max(1, System.nanoTime() - startNanos);
+		long off = offloaded.sum();
+		return new Stats(strategy, inline.sum(), off, off > 0 ? queueWaitNanos.sum() / 1000.0 / off : 0, maxQueue.get(),
+			carrierBusyNanos.sum() / (double) elapsed / CARRIERS, maxOnCarriers.get() / (double) CARRIERS, threads, CARRIERS);
+	}
+
+	@Override
+	public void close () {
+		pool.shutdown();
+		virtual.close();// waits for running tasks
+		try {
+			if (!pool.awaitTermination(30, TimeUnit.SECONDS)){
+				log.warn("close: {} blocking tasks are still running", pool.getActiveCount());
+			}
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/// JFR `jdk.VirtualThreadPinned` counter: parks of pinned virtual threads (`synchronized`, native frames) longer than threshold
+	public static final class PinningMonitor implements AutoCloseable {
+		private final RecordingStream stream = new RecordingStream();
+		private final LongAdder events = new LongAdder(), nanos = new LongAdder();
+
+		public PinningMonitor (Duration threshold) {
+			stream.enable("jdk.VirtualThreadPinned").withThreshold(threshold);
+			stream.onEvent("jdk.VirtualThreadPinned", e->{
+				events.increment();
+				nanos.add(e.getDuration().toNanos());
+			});
+			stream.startAsync();
+		}//new
+
+		public long events (){ return events.sum(); }
+
+		public Duration pinnedTime (){ return Duration.ofNanos(nanos.sum()); }
+
+		@Override
+		public void close () {
+			stream.close();
+		}
+	}
+}
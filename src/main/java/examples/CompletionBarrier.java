@@ -0,0 +1,147 @@
+package examples;
+
+import org.jspecify.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/// Counter-based completion barrier for bulk async work: millions of `publishAsync`/`putAsync` are tracked
+/// in constant memory (no list of futures: a completed future is garbage at once), then awaited with one call.
+///
+/// ```java
+/// val barrier = new CompletionBarrier(100);
+/// for (…) barrier.track(js.publishAsync(subject, body));
+/// barrier.await(Duration.ofMinutes(1));// false = timeout
+/// barrier.throwIfFailed();
+/// ```
+/// The issuer holds one party until [#await] ⇒ the barrier can't open while ops are still being issued.
+public final class CompletionBarrier implements BiConsumer<Object,Throwable> {
+	private final int maxFailures;
+	private final long startNanos = System.nanoTime();
+	/// 1 = the issuer party
+	private final AtomicLong pending = new AtomicLong(1);
+	private final LongAdder issued = new LongAdder(), completed = new LongAdder(), failed = new LongAdder();
+	private final List<Throwable> failures = new ArrayList<>();// guarded by itself, ≤ maxFailures
+	private final CompletableFuture<Void> done = new CompletableFuture<>();
+	private volatile boolean sealed;
+
+	/// @param maxFailures how many failures are kept (the rest are only counted)
+	public CompletionBarrier (int maxFailures) {
+		this.maxFailures = maxFailures;
+	}//new
+
+	/// Register an async op; the same stage is returned (chain further if needed)
+	public <S extends CompletionStage<?>> S track (S stage) {
+		register();
+		stage.whenComplete(this);// the barrier itself is the callback: no lambda per op
+		return stage;
+	}
+
+	/// Manual mode (callback APIs): `register()` before the op (issuer side, before [#await]), [#arrive] from its callback
+	public void register () {
+		if (sealed)
+				throw new IllegalStateException("register: barrier is already awaited/sealed: " + this);
+		pending.incrementAndGet();
+		issued.increment();
+	}
+
+	public void arrive (@Nullable Throwable failure) {
+		if (failure != null){
+			failed.increment();
+			Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+			synchronized (failures){
+				if (failures.size() < maxFailures){ failures.add(cause); }
+			}
+		}
+		completed.increment();
+		if (pending.decrementAndGet() == 0){ done.complete(null); }
+	}
+
+	/// [BiConsumer] of `whenComplete`
+	@Override
+	public void accept (Object result, @Nullable Throwable failure) {
+		arrive(failure);
+	}
+
+	/// No more registrations: the issuer party arrives (idempotent)
+	public CompletionBarrier seal () {
+		if (!sealed){
+			synchronized (this){
+				if (!sealed){
+					sealed = true;
+					if (pending.decrementAndGet() == 0){ done.complete(null); }
+				}
+			}
+		}
+		return this;
+	}
+
+	/// Seal and wait for all tracked ops
+	/// @return false = timeout (ops are still pending, see [#progress])
+	public boolean await (Duration timeout) throws InterruptedException {
+		seal();
+		try {
+			done.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+			return true;
+		} catch (TimeoutException e){
+			return false;
+		} catch (ExecutionException e){
+			throw new IllegalStateException(e);// never: done completes normally only
+		}
+	}
+
+	/// Seal → future of "all tracked ops are completed" (for async callers)
+	public CompletableFuture<Void> whenDone () {
+		seal();
+		return done.copy();
+	}
+
+	/// Throws the first kept failure (others as suppressed) if any op failed
+	public void throwIfFailed () {
+		List<Throwable> list = failures();
+		if (list.isEmpty()){ return; }
+		IllegalStateException e = new IllegalStateException("CompletionBarrier: " + failed.sum() + " of " + issued.sum() + " failed", list.get(0));
+		list.subList(1, list.size()).forEach(e::addSuppressed);
+		throw e;
+	}
+
+	public List<Throwable> failures () {
+		synchronized (failures){
+			return List.copyOf(failures);
+		}
+	}
+
+	public record Progress (long issued, long completed, long failed, long pending, long elapsedMillis) {
+		public double throughput () {
+			return completed * 1000.0 / Math.max(1, elapsedMillis);
+		}
+
+		@Override
+		public String toString () {
+			return String.format(Locale.ENGLISH, "issued=%d completed=%d failed=%d pending=%d in %d ms, op/s=%.2f",
+				issued, completed, failed, pending, elapsedMillis, throughput());
+		}
+	}
+
+	/// Cheap snapshot (counters only)
+	public Progress progress () {
+		long p = pending.get() - (sealed ? 0 : 1);
+		return new Progress(issued.sum(), completed.sum(), failed.sum(), Math.max(0, p), (System.nanoTime() - startNanos) / 1_000_000);
+	}
+
+	@Override
+	public String toString () {
+		return progress().toString();
+	}
+}
@@ -9,6 +9,8 @@ import org.jspecify.annotations.Nullable;
 import java.lang.reflect.UndeclaredThrowableException;
 import java.util.HexFormat;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -79,6 +81,24 @@ public final class MagicUtils {
 		return Thread.startVirtualThread(action);
 	}
 
+	/// Shared executor for blocking JNI calls (RocksDB…): `-Dmagic.executor=hybrid|platform|virtual` (see [BlockingExecutor])
+	public static BlockingExecutor blockingExecutor () {
+		return BlockingExecutorHolder.INSTANCE;
+	}
+	private static final class BlockingExecutorHolder {
+		static final BlockingExecutor INSTANCE = BlockingExecutor.fromSystemProperties();
+	}
+
+	/// Run a blocking (JNI) call off the caller's carrier → future
+	public static <T> CompletableFuture<T> offload (Callable<T> blockingCall) {
+		return blockingExecutor().submit(blockingCall);
+	}
+
+	/// Live progress of a loop: `-Dmagic.progress.ms=1000` report interval, printed to stdout (see [ProgressMeter])
+	public static ProgressMeter progress (String name, long total) {
+		return new ProgressMeter(name, total, Long.getLong("magic.progress.ms", 1000), System.out::println);
+	}
+
 	public static String perfToString (long start, long end, long totalOperations) {
 		assert start <= end : "toString: start ≤ end, but " + start + " > " + end;
 
@@ -97,6 +117,22 @@ public final class MagicUtils {
 		}
 	}
 
+	/// "512m", "2G", "64k", "1024" → bytes; null/blank → defaultValue
+	public static long parseSize (@Nullable String size, long defaultValue) {
+		String s = trim(size).toLowerCase(Locale.ENGLISH);
+		if (s.isEmpty()){ return defaultValue; }
+		if (s.endsWith("b")){ s = s.substring(0, s.length() - 1); }// 512mb
+		int shift = switch (s.isEmpty() ? ' ' : s.charAt(s.length() - 1)){
+			case 'k' -> 10;
+			case 'm' -> 20;
+			case 'g' -> 30;
+			case 't' -> 40;
+			default -> 0;
+		};
+		if (shift > 0){ s = s.substring(0, s.length() - 1); }
+		return Long.parseLong(trim(s).replace("_", "")) << shift;
+	}
+
 	public static String normPath (@Nullable Object filePath) {
 		return trimRight(trim(filePath), MagicUtils::isPathSeparatorOrSpace)
 			.replace('\\', '/');
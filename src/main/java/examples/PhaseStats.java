@@ -0,0 +1,96 @@
+package examples;
+
+import lombok.val;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/// What a benchmark phase cost besides time: heap bytes allocated (per op), GC pauses, direct and native memory.
+/// Tells whether a phase is slow because of the engine or because of our own garbage (`Long.toString(…).getBytes(…)` per op).
+///
+/// ```java
+/// val phase = PhaseStats.start();
+/// for (…){ db.put(…); }
+/// System.out.println(phase.end("put", MAX));// put: 4051 ms, op/s=…, alloc 312 B/op (3.0 GB), GC 41 pauses 87 ms, direct 0 B (+0 B), RSS 1.2 GB (+900 MB)
+/// ```
+/// Allocation = `com.sun.management.ThreadMXBean#getTotalThreadAllocatedBytes` delta: all threads of the JVM,
+/// including finished workers and virtual threads (`getCurrentThreadAllocatedBytes` is -1 on a virtual thread),
+/// so unrelated background threads (NATS client, compaction callbacks) are counted too — run one phase at a time.
+/// RSS (`/proc/self/status`, Linux only, else -1) is where RocksDB's native memory (block cache, memtables) shows up.
+public record PhaseStats (String name, long operations, long millis, long allocatedBytes, long gcPauses, long gcPauseMillis,
+													long directBytes, long directDelta, long rssBytes, long rssDelta) {
+	private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	/// Counters at the start of a phase
+	public record Mark (long nanos, long allocatedBytes, long gcPauses, long gcPauseMillis, long directBytes, long rssBytes) {
+		public PhaseStats end (String name, long operations) {
+			val now = start();
+			return new PhaseStats(name, operations, (now.nanos - nanos) / MagicUtils.NANO_IN_MILLI, now.allocatedBytes - allocatedBytes,
+				now.gcPauses - gcPauses, now.gcPauseMillis - gcPauseMillis, now.directBytes, now.directBytes - directBytes,
+				now.rssBytes, now.rssBytes < 0 || rssBytes < 0 ? 0 : now.rssBytes - rssBytes);
+		}
+	}
+
+	public static Mark start () {
+		long pauses = 0, pauseMillis = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+			// G1 Concurrent GC, ZGC Cycles: concurrent work, not stop-the-world pauses
+			if (gc.getName().contains("Concurrent") || gc.getName().contains("Cycles")){ continue; }
+			pauses += Math.max(0, gc.getCollectionCount());
+			pauseMillis += Math.max(0, gc.getCollectionTime());
+		}
+		long direct = 0;
+		for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)){
+			direct += Math.max(0, pool.getMemoryUsed());// direct + mapped
+		}
+		return new Mark(System.nanoTime(), THREADS.getTotalThreadAllocatedBytes(), pauses, pauseMillis, direct, rss());
+	}
+
+	/// Resident set size of the process: heap + metaspace + direct + native (RocksDB, SQLite)
+	static long rss () {
+		try {
+			List<String> status = Files.readAllLines(Path.of("/proc/self/status"));
+			for (String line : status){
+				if (line.startsWith("VmRSS:")){
+					return Long.parseLong(line.substring(6).replace("kB", "").trim()) * 1024;
+				}
+			}
+		} catch (IOException | RuntimeException ignore){}// not Linux
+		return -1;
+	}
+
+	public double millisPerOp (){ return millis / (double) Math.max(1, operations); }
+
+	public double throughput (){ return operations * (double) MagicUtils.MILLI_1K / Math.max(1, millis); }
+
+	public double bytesPerOp (){ return allocatedBytes / (double) Math.max(1, operations); }
+
+	@Override
+	public String toString () {
+		return name +": "+ millis +" ms, op/s="+ String.format(Locale.ENGLISH, "%.2f", throughput()) +", "+ memory();
+	}
+
+	/// "alloc 312 B/op (3.0 GB), GC 41 pauses 87 ms, direct 0 B (+0 B), RSS 1.2 GB (+900.0 MB)"
+	public String memory () {
+		return String.format(Locale.ENGLISH, "alloc %.0f B/op (%s), GC %d pauses %d ms, direct %s (%s), RSS %s (%s)",
+			bytesPerOp(), size(allocatedBytes), gcPauses, gcPauseMillis,
+			size(directBytes), signedSize(directDelta), rssBytes < 0 ? "?" : size(rssBytes), signedSize(rssDelta));
+	}
+
+	static String signedSize (long bytes) {
+		return (bytes < 0 ? "-" : "+") + size(Math.abs(bytes));
+	}
+
+	/// 1536 → "1.5 KB"
+	static String size (long bytes) {
+		if (bytes < 1024){ return bytes + " B"; }
+		int unit = (63 - Long.numberOfLeadingZeros(bytes)) / 10;// 1=K 2=M 3=G…
+		return String.format(Locale.ENGLISH, "%.1f %sB", bytes / (double) (1L << (unit * 10)), "KMGTPE".charAt(unit - 1));
+	}
+}
@@ -0,0 +1,115 @@
+package examples;
+
+import lombok.val;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/// Live throughput time series instead of `if (++i % 100_000 == 0) System.out.println(i)` in the hot loop:
+/// workers only bump a striped counter ([LongAdder]: no contention), a background reporter samples it every `intervalMillis`
+/// and prints interval op/s, cumulative op/s and ETA ⇒ compaction dips and GC pauses are visible, not averaged away.
+///
+/// ```java
+/// try (val progress = MagicUtils.progress("put", MAX)){
+///   for (…){ db.put(…); progress.increment(); }
+/// }// → summary with min/max interval throughput and allocation/GC/memory of the phase ([PhaseStats])
+/// ```
+public final class ProgressMeter implements AutoCloseable {
+	private final String name;
+	private final long total;
+	private final long intervalMillis;
+	private final Consumer<String> out;
+	private final LongAdder count = new LongAdder();
+	private final long startNanos = System.nanoTime();
+	private final PhaseStats.Mark mark = PhaseStats.start();
+	private volatile @Nullable PhaseStats stats;
+	private final Thread reporter;
+	private volatile boolean closed;
+	/// op/s of every interval; only the reporter thread writes
+	private final List<Double> series = new ArrayList<>();
+
+	/// @param total expected number of ops (≤ 0 = unknown: no % and ETA)
+	public ProgressMeter (String name, long total, long intervalMillis, Consumer<String> out) {
+		this.name = name;
+		this.total = total;
+		this.intervalMillis = Math.max(10, intervalMillis);
+		this.out = out;
+		// platform thread: must tick even when all virtual carriers are blocked in JNI
+		reporter = Thread.ofPlatform().daemon().name("ProgressMeter-" + name).start(this::report);
+	}//new
+
+	public void increment () {
+		count.increment();
+	}
+
+	public void add (long ops) {
+		count.add(ops);
+	}
+
+	public long count () {
+		return count.sum();
+	}
+
+	private void report () {
+		long lastCount = 0, lastNanos = startNanos;
+		while (!closed){
+			try {
+				Thread.sleep(intervalMillis);
+			} catch (InterruptedException e){
+				break;// close
+			}
+			long c = count.sum(), nanos = System.nanoTime();
+			double interval = (c - lastCount) * 1e9 / Math.max(1, nanos - lastNanos);
+			synchronized (series){ series.add(interval); }
+			out.accept(line(c, nanos, interval));
+			lastCount = c;
+			lastNanos = nanos;
+		}
+	}
+
+	private String line (long c, long nanos, double interval) {
+		double elapsed = (nanos - startNanos) / 1e9;
+		double cumulative = c / Math.max(1e-9, elapsed);
+		if (total <= 0){
+			return String.format(Locale.ENGLISH, "%s: %d in %.1f s, interval op/s=%.0f, cumulative op/s=%.0f", name, c, elapsed, interval, cumulative);
+		}
+		double eta = cumulative > 0 ? (total - c) / cumulative : Double.POSITIVE_INFINITY;
+		return String.format(Locale.ENGLISH, "%s: %d/%d (%.1f%%) in %.1f s, interval op/s=%.0f, cumulative op/s=%.0f, ETA %.1f s",
+			name, c, total, c * 100.0 / total, elapsed, interval, cumulative, eta);
+	}
+
+	/// interval throughputs so far (op/s)
+	public List<Double> series () {
+		synchronized (series){ return List.copyOf(series); }
+	}
+
+	/// Allocation, GC and memory of the whole phase: null until [#close]
+	public @Nullable PhaseStats stats () {
+		return stats;
+	}
+
+	/// Stop the reporter and print the summary: total, cumulative op/s, min/max interval op/s (the dips), [PhaseStats#memory]
+	@Override
+	public void close () {
+		if (closed){ return; }
+		closed = true;
+		reporter.interrupt();
+		try {
+			reporter.join();
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		long c = count.sum();
+		double elapsed = (System.nanoTime() - startNanos) / 1e9;
+		val phase = mark.end(name, c);
+		stats = phase;
+		List<Double> s = series();
+		double min = s.stream().mapToDouble(Double::doubleValue).min().orElse(0), max = s.stream().mapToDouble(Double::doubleValue).max().orElse(0);
+		out.accept(String.format(Locale.ENGLISH, "%s: done %d in %.3f s, op/s=%.2f, interval op/s min=%.0f max=%.0f (%d samples), %s",
+			name, c, elapsed, c / Math.max(1e-9, elapsed), min, max, s.size(), phase.memory()));
+	}
+}
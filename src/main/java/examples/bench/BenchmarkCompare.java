@@ -0,0 +1,71 @@
+package examples.bench;
+
+import lombok.val;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/// Regression gate: compares the latest record of every engine/workload in the current run with the baseline
+/// and fails when throughput drops or any p99 rises past the threshold (e.g. after a `rocksdbjni` or `jnats` upgrade).
+///
+/// `gradle benchCompare -Pbaseline=bench/baseline.jsonl -Pcurrent=build/bench/results.jsonl`
+/// `-Dbench.maxThroughputDrop=0.10 -Dbench.maxP99Rise=0.20` (fractions); exit code 1 = regression.
+public final class BenchmarkCompare {
+	private final double maxThroughputDrop;
+	private final double maxP99Rise;
+
+	public BenchmarkCompare (double maxThroughputDrop, double maxP99Rise) {
+		this.maxThroughputDrop = maxThroughputDrop;
+		this.maxP99Rise = maxP99Rise;
+	}//new
+
+	public record Diff (String key, String metric, double baseline, double current, double change, boolean regression) {
+		@Override
+		public String toString () {
+			return String.format(Locale.ENGLISH, "%s %-40s %-22s %12.1f → %12.1f  %+6.1f%%",
+				regression ? "❌" : "  ", key, metric, baseline, current, change * 100);
+		}
+	}
+
+	/// Baseline keys without a current record are skipped (workload not run this time)
+	public List<Diff> compare (List<BenchmarkResult> baseline, List<BenchmarkResult> current) {
+		Map<String,BenchmarkResult> base = latest(baseline);
+		val diffs = new ArrayList<Diff>();
+		latest(current).forEach((key, cur)->{
+			BenchmarkResult b = base.get(key);
+			if (b == null){ return; }
+			double drop = b.throughput() > 0 ? (cur.throughput() - b.throughput()) / b.throughput() : 0;
+			diffs.add(new Diff(key, "throughput op/s", b.throughput(), cur.throughput(), drop, -drop > maxThroughputDrop));
+			cur.latencyMicros().forEach((metric, value)->{
+				Double was = b.latencyMicros().get(metric);
+				if (was == null || !metric.endsWith(".p99")){ return; }
+				double rise = was > 0 ? (value - was) / was : 0;
+				diffs.add(new Diff(key, metric + " µs", was, value, rise, rise > maxP99Rise));
+			});
+		});
+		return diffs;
+	}
+
+	/// the last record of every key wins (a file accumulates runs)
+	static Map<String,BenchmarkResult> latest (List<BenchmarkResult> results) {
+		val map = new LinkedHashMap<String,BenchmarkResult>();
+		results.forEach(r->map.put(r.key(), r));
+		return map;
+	}
+
+	public static void main (String[] args) throws Exception {
+		Path baseline = Path.of(args.length > 0 ? args[0] : "bench/baseline.jsonl");
+		Path current = Path.of(args.length > 1 ? args[1] : BenchmarkResult.outputDir().resolve(BenchmarkResult.JSONL).toString());
+		val cmp = new BenchmarkCompare(Double.parseDouble(System.getProperty("bench.maxThroughputDrop", "0.10")),
+			Double.parseDouble(System.getProperty("bench.maxP99Rise", "0.20")));
+		List<Diff> diffs = cmp.compare(BenchmarkResult.read(baseline), BenchmarkResult.read(current));
+		diffs.forEach(System.out::println);
+		long regressions = diffs.stream().filter(Diff::regression).count();
+		System.out.printf("%s vs %s: %d metrics compared, %d regressions%n", current, baseline, diffs.size(), regressions);
+		if (regressions > 0){ System.exit(1); }
+	}
+}
@@ -0,0 +1,153 @@
+package examples.bench;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import examples.ycsb.Histogram;
+import examples.ycsb.Ycsb;
+import io.nats.client.Nats;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.rocksdb.RocksDB;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static examples.MagicUtils.perfToString;
+import static java.nio.charset.StandardCharsets.*;
+
+/// One benchmark run as a machine-readable record: appended as a JSON line to `results.jsonl` and a row to `results.csv`
+/// (instead of copying `perfToString` output into README tables by hand). [BenchmarkCompare] diffs runs against a baseline.
+///
+/// `config` = library versions (rocksdbjni, jnats, JVM) + `-Drocksdb.*`/`-Dycsb.*`/`-Dnats.*` properties;
+/// `jvmFlags` = the real JVM input arguments (`vm.options` for `gradle run`, `jvmArgs` of `build.gradle` for tests).
+/// Written by [Ycsb], [OptionTuner] and the engine benchmarks of the tests via [#record].
+/// `latencyMicros` keys: `READ.p50`, `READ.p99`, `UPDATE.max` …
+public record BenchmarkResult (
+	String timestamp,
+	String engine,
+	String workload,
+	Map<String,String> config,
+	List<String> jvmFlags,
+	long operations,
+	long millis,
+	double throughput,
+	Map<String,Double> latencyMicros,
+	long allocatedBytes
+) {
+	static final JsonMapper JSON = JsonMapper.builder().findAndAddModules().build();
+	public static final String JSONL = "results.jsonl", CSV = "results.csv";
+	static final List<String> CONFIG_PREFIXES = List.of("rocksdb.", "ycsb.", "nats.", "ignite.");
+
+	/// `-Dbench.out=dir`, default `build/bench`
+	public static Path outputDir () {
+		return Path.of(System.getProperty("bench.out", "build/bench"));
+	}
+
+	public static BenchmarkResult of (Ycsb.Result r) {
+		val latency = new LinkedHashMap<String,Double>();
+		r.latency().forEach((op, h)->percentiles(op, h, latency));
+		return of(r.engine(), r.workload() + " × " + r.threads(), r.operations(), r.millis(), latency, r.allocatedBytes());
+	}
+
+	/// The `perfToString(start, end, ops)` benchmarks: throughput only
+	public static BenchmarkResult of (String engine, String workload, long start, long end, long operations) {
+		return of(engine, workload, operations, end - start, Map.of(), -1);
+	}
+
+	/// `println(record("rocksdb", "put", t, now(), MAX))` instead of `println(perfToString(t, now(), MAX))`:
+	/// the same line + a throughput record in [#outputDir]
+	@SneakyThrows
+	public static String record (String engine, String workload, long start, long end, long operations) {
+		of(engine, workload, start, end, operations).append(outputDir());
+		return perfToString(start, end, operations);
+	}
+
+	public static BenchmarkResult of (String engine, String workload, long operations, long millis, Map<String,Double> latencyMicros, long allocatedBytes) {
+		return new BenchmarkResult(Instant.now().toString(), engine, workload, environment(), ManagementFactory.getRuntimeMXBean().getInputArguments(),
+			operations, millis, operations * 1000.0 / Math.max(1, millis), latencyMicros, allocatedBytes);
+	}
+
+	public static void percentiles (String op, Histogram h, Map<String,Double> into) {
+		into.put(op + ".mean", h.mean() / 1000);
+		into.put(op + ".p50", h.percentile(50) / 1000.0);
+		into.put(op + ".p95", h.percentile(95) / 1000.0);
+		into.put(op + ".p99", h.percentile(99) / 1000.0);
+		into.put(op + ".p99.9", h.percentile(99.9) / 1000.0);
+		into.put(op + ".max", h.max() / 1000.0);
+	}
+
+	static Map<String,String> environment () {
+		val config = new TreeMap<String,String>();
+		config.put("java.version", Runtime.version().toString());
+		config.put("java.vm", System.getProperty("java.vm.name"));
+		config.put("cpus", Integer.toString(Runtime.getRuntime().availableProcessors()));
+		RocksDB.loadLibrary();// version is known after the native library is loaded
+		config.put("lib.rocksdbjni", String.valueOf(RocksDB.rocksdbVersion()));
+		config.put("lib.jnats", Nats.CLIENT_VERSION);
+		System.getProperties().forEach((k, v)->{
+			String key = k.toString();
+			if (CONFIG_PREFIXES.stream().anyMatch(key::startsWith)){ config.put(key, v.toString()); }
+		});
+		return config;
+	}
+
+	/// The engine + workload pair: the same key in baseline and current run is compared
+	public String key () {
+		return engine + " / " + workload;
+	}
+
+	@SneakyThrows
+	public String toJson () {
+		return JSON.writeValueAsString(this);
+	}
+
+	@SneakyThrows
+	public static BenchmarkResult fromJson (String json) {
+		return JSON.readValue(json, BenchmarkResult.class);
+	}
+
+	/// Append to `dir/results.jsonl` and `dir/results.csv` (header for a new file)
+	public void append (Path dir) throws IOException {
+		synchronized (BenchmarkResult.class){
+			Files.createDirectories(dir);
+			Files.writeString(dir.resolve(JSONL), toJson() + "\n", UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+			Path csv = dir.resolve(CSV);
+			String row = (Files.exists(csv) ? "" : csvHeader() + "\n") + toCsv() + "\n";
+			Files.writeString(csv, row, UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		}
+	}
+
+	/// All records of a `.jsonl` file
+	public static List<BenchmarkResult> read (Path jsonl) throws IOException {
+		try (val lines = Files.lines(jsonl, UTF_8)){
+			return lines.filter(line->!line.isBlank()).map(BenchmarkResult::fromJson).toList();
+		}
+	}
+
+	public static String csvHeader () {
+		return "timestamp,engine,workload,operations,millis,throughput,allocatedBytes,latencyMicros,config,jvmFlags";
+	}
+
+	public String toCsv () {
+		return String.join(",", csv(timestamp), csv(engine), csv(workload), Long.toString(operations), Long.toString(millis),
+			String.format(Locale.ENGLISH, "%.2f", throughput), Long.toString(allocatedBytes),
+			csv(latencyMicros.entrySet().stream().map(e->e.getKey() + "=" + String.format(Locale.ENGLISH, "%.1f", e.getValue())).collect(Collectors.joining(";"))),
+			csv(config.entrySet().stream().map(e->e.getKey() + "=" + e.getValue()).collect(Collectors.joining(";"))),
+			csv(String.join(" ", jvmFlags)));
+	}
+
+	/// RFC 4180 quoting
+	static String csv (String s) {
+		return s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 ? s
+				: '"' + s.replace("\"", "\"\"") + '"';
+	}
+}
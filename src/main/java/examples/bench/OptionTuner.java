@@ -0,0 +1,233 @@
+package examples.bench;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import examples.MagicUtils;
+import examples.rocksdb.ColumnFamilyProfile;
+import examples.rocksdb.RocksDBConfig;
+import examples.ycsb.RocksDBEngine;
+import examples.ycsb.Workload;
+import examples.ycsb.Ycsb;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.rocksdb.CompactionStyle;
+import org.rocksdb.FlushOptions;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+/// Option sweep instead of tuning by trial and error: runs a [Workload] against every candidate [ColumnFamilyProfile]
+/// (grid = all combinations, or N random ones), each in a fresh DB directory; collects throughput of the run phase,
+/// the worst p99 over its operations, write amplification (`compaction.Sum.WriteAmp` of `rocksdb.cfstats` after a final flush:
+/// bytes written by flushes and compactions / bytes flushed) and write stalls. The best trial within the p99/WA limits
+/// is saved as a profile ⇒ `-Drocksdb.profile=build/bench/tuned-A.json`.
+///
+/// `gradle tune -Dycsb.workload=A -Dycsb.records=500000 -Dtune.writeBufferSize=32m,128m -Dtune.blockSize=4k,16k
+/// -Dtune.bloomBits=10,16 -Dtune.compaction=LEVEL,UNIVERSAL -Dtune.l0Trigger=2,8 -Dtune.maxWriteBuffers=2,4
+/// -Dtune.partitioned=false,true -Dtune.random=20 -Dtune.maxP99Micros=2000 -Dtune.maxWriteAmp=20`
+///
+/// Every trial is also appended to `build/bench/results.jsonl|csv` ([BenchmarkResult]).
+/// Trials are short: noise is ±5-10% ⇒ rerun the top few with more operations before trusting a small win.
+@Slf4j
+public final class OptionTuner {
+	/// One option: its candidate values and how a value goes into the profile
+	public record Dimension<T> (String name, List<T> values, BiFunction<ColumnFamilyProfile,T,ColumnFamilyProfile> apply) {
+		ColumnFamilyProfile applyValue (ColumnFamilyProfile profile, Object value) {
+			@SuppressWarnings("unchecked") T v = (T) value;
+			return apply.apply(profile, v);
+		}
+	}
+
+	public static Dimension<Long> writeBufferSize (Long... sizes){ return new Dimension<>("writeBufferSize", List.of(sizes), ColumnFamilyProfile::withWriteBufferSize); }
+
+	public static Dimension<Integer> maxWriteBufferNumber (Integer... n){ return new Dimension<>("maxWriteBufferNumber", List.of(n), ColumnFamilyProfile::withMaxWriteBufferNumber); }
+
+	public static Dimension<Integer> level0Trigger (Integer... n){ return new Dimension<>("level0FileNumCompactionTrigger", List.of(n), ColumnFamilyProfile::withLevel0FileNumCompactionTrigger); }
+
+	public static Dimension<CompactionStyle> compactionStyle (CompactionStyle... styles){ return new Dimension<>("compactionStyle", List.of(styles), ColumnFamilyProfile::withCompactionStyle); }
+
+	public static Dimension<Integer> blockSize (Integer... sizes){ return new Dimension<>("blockSize", List.of(sizes), ColumnFamilyProfile::withBlockSize); }
+
+	public static Dimension<Double> bloomBitsPerKey (Double... bits){ return new Dimension<>("bloomBitsPerKey", List.of(bits), ColumnFamilyProfile::withBloomBitsPerKey); }
+
+	public static Dimension<Boolean> partitionedFilters (Boolean... on){ return new Dimension<>("partitionedFilters", List.of(on), ColumnFamilyProfile::withPartitionedFilters); }
+
+	/// @param settings dimension name → value of this trial
+	/// @param p99Micros the worst p99 of all operation types of the run phase
+	/// @param stalls write stall events (delays + stops)
+	public record Trial (int number, Map<String,Object> settings, ColumnFamilyProfile profile, double throughput, double p99Micros,
+											 double writeAmp, long stalls, Ycsb.Result result) {
+		@Override
+		public String toString () {
+			return String.format(Locale.ENGLISH, "#%d %s: %.0f op/s, p99 %.0f µs, WA %.2f, stalls %d", number, settings, throughput, p99Micros, writeAmp, stalls);
+		}
+	}
+
+	private final Workload workload;
+	private final int threads;
+	private final ColumnFamilyProfile base;
+	private final List<Dimension<?>> dimensions;
+	private final Path workDir;
+
+	/// @param base profile the dimensions are applied to (e.g. compression settings stay as they are)
+	/// @param workDir trial databases are created (and deleted) under it
+	public OptionTuner (Workload workload, int threads, ColumnFamilyProfile base, List<Dimension<?>> dimensions, Path workDir) {
+		this.workload = workload;
+		this.threads = Math.max(1, threads);
+		this.base = base;
+		this.dimensions = List.copyOf(dimensions);
+		this.workDir = workDir;
+	}//new
+
+	/// Every combination: the product of all value counts (keep the grid small or use [#random])
+	public List<Trial> grid () throws Exception {
+		val combinations = new ArrayList<Map<String,Object>>();
+		combinations.add(new LinkedHashMap<>());
+		for (val d : dimensions){
+			val next = new ArrayList<Map<String,Object>>();
+			for (val c : combinations){
+				for (Object v : d.values()){
+					val m = new LinkedHashMap<>(c);
+					m.put(d.name(), v);
+					next.add(m);
+				}
+			}
+			combinations.clear();
+			combinations.addAll(next);
+		}
+		return run(combinations);
+	}
+
+	/// `trials` distinct random combinations (random search finds a good region with far fewer runs than a big grid)
+	public List<Trial> random (int trials, long seed) throws Exception {
+		long total = dimensions.stream().mapToLong(d->d.values().size()).reduce(1, Math::multiplyExact);
+		if (trials >= total){ return grid(); }
+		val r = new Random(seed);
+		val combinations = new ArrayList<Map<String,Object>>();
+		while (combinations.size() < trials){
+			val m = new LinkedHashMap<String,Object>();
+			for (val d : dimensions){ m.put(d.name(), d.values().get(r.nextInt(d.values().size()))); }
+			if (!combinations.contains(m)){ combinations.add(m); }
+		}
+		return run(combinations);
+	}
+
+	private List<Trial> run (List<Map<String,Object>> combinations) throws Exception {
+		log.info("OptionTuner: {} trials of workload {}", combinations.size(), workload.name());
+		val trials = new ArrayList<Trial>(combinations.size());
+		for (int i = 0; i < combinations.size(); i++){
+			val trial = trial(i + 1, combinations.get(i));
+			log.info("{}", trial);
+			trials.add(trial);
+		}
+		return trials;
+	}
+
+	/// Fresh DB, load + run the workload, flush, read the compaction stats, delete the DB
+	public Trial trial (int number, Map<String,Object> settings) throws Exception {
+		ColumnFamilyProfile profile = base;
+		for (val d : dimensions){
+			if (settings.containsKey(d.name())){ profile = d.applyValue(profile, settings.get(d.name())); }
+		}
+		val p = profile;
+		Path dir = Files.createTempDirectory(Files.createDirectories(workDir), "trial" + number + "-");
+		try {
+			Ycsb.Result result;
+			Map<String,String> stats;
+			try (val conf = new RocksDBConfig(dir, false, cf->p);
+					 val engine = new RocksDBEngine(conf, "ycsb", false);
+					 val flush = new FlushOptions().setWaitForFlush(true)){
+				val ycsb = new Ycsb(engine, threads, false);
+				ycsb.load(workload);
+				result = ycsb.run(workload);
+				val handle = conf.handle("ycsb");
+				conf.rocksDB().flush(flush, handle);// memtable bytes count too: WA of different memtable sizes is comparable
+				stats = conf.rocksDB().getMapProperty(handle, "rocksdb.cfstats");
+			}
+			double p99 = result.latency().values().stream().mapToLong(h->h.percentile(99)).max().orElse(0) / 1000.0;
+			val trial = new Trial(number, settings, profile, result.throughput(), p99, number(stats, "compaction.Sum.WriteAmp"),
+				(long)(number(stats, "total-delays") + number(stats, "total-stops")), result);
+			val latency = new LinkedHashMap<String,Double>();
+			result.latency().forEach((op, h)->BenchmarkResult.percentiles(op, h, latency));
+			BenchmarkResult.of(result.engine(), "tune " + result.workload() + " " + settings, result.operations(), result.millis(), latency, result.allocatedBytes())
+				.append(BenchmarkResult.outputDir());
+			return trial;
+		} finally {
+			MoreFiles.deleteRecursively(dir, RecursiveDeleteOption.ALLOW_INSECURE);
+		}
+	}
+
+	static double number (Map<String,String> stats, String key) {
+		String v = stats.get(key);
+		return v == null ? 0 : Double.parseDouble(v);
+	}
+
+	/// Highest throughput among trials within both limits (≤ 0 = no limit)
+	public static Optional<Trial> best (List<Trial> trials, double maxP99Micros, double maxWriteAmp) {
+		return trials.stream()
+			.filter(t->maxP99Micros <= 0 || t.p99Micros() <= maxP99Micros)
+			.filter(t->maxWriteAmp <= 0 || t.writeAmp() <= maxWriteAmp)
+			.max(Comparator.comparingDouble(Trial::throughput));
+	}
+
+	/// `-Dtune.<dimension>=v1,v2…`; no `-Dtune.*` at all ⇒ a small default grid (memtable size × block size × compaction style)
+	public static List<Dimension<?>> dimensionsFromSystemProperties () {
+		val list = new ArrayList<Dimension<?>>();
+		add(list, "tune.writeBufferSize", s->MagicUtils.parseSize(s, 0), OptionTuner::writeBufferSize, Long[]::new);
+		add(list, "tune.maxWriteBuffers", Integer::valueOf, OptionTuner::maxWriteBufferNumber, Integer[]::new);
+		add(list, "tune.l0Trigger", Integer::valueOf, OptionTuner::level0Trigger, Integer[]::new);
+		add(list, "tune.compaction", s->CompactionStyle.valueOf(s.toUpperCase(Locale.ROOT)), OptionTuner::compactionStyle, CompactionStyle[]::new);
+		add(list, "tune.blockSize", s->(int) MagicUtils.parseSize(s, 0), OptionTuner::blockSize, Integer[]::new);
+		add(list, "tune.bloomBits", Double::valueOf, OptionTuner::bloomBitsPerKey, Double[]::new);
+		add(list, "tune.partitioned", Boolean::valueOf, OptionTuner::partitionedFilters, Boolean[]::new);
+		if (list.isEmpty()){
+			list.add(writeBufferSize(32L << 20, 128L << 20));
+			list.add(blockSize(4 << 10, 16 << 10));
+			list.add(compactionStyle(CompactionStyle.LEVEL, CompactionStyle.UNIVERSAL));
+		}
+		return list;
+	}
+
+	private static <T> void add (List<Dimension<?>> list, String property, Function<String,T> parse,
+			Function<T[],Dimension<T>> dimension, IntFunction<T[]> array) {
+		String v = System.getProperty(property);
+		if (v == null || v.isBlank()){ return; }
+		T[] values = Stream.of(v.split(",")).map(String::trim).filter(s->!s.isEmpty()).map(parse).toArray(array);
+		list.add(dimension.apply(values));
+	}
+
+	/// `gradle tune` (see the class doc); the best profile → `build/bench/tuned-<workload>.json`
+	public static void main (String[] args) throws Exception {
+		String name = args.length > 0 ? args[0] : System.getProperty("ycsb.workload", "A").split(",")[0];
+		Workload workload = Workload.fromSystemProperties(name);
+		int threads = Integer.getInteger("ycsb.threads", Runtime.getRuntime().availableProcessors());
+		val tuner = new OptionTuner(workload, threads, ColumnFamilyProfile.fromSystemProperties(), dimensionsFromSystemProperties(),
+			Path.of(System.getProperty("tune.dir", System.getProperty("java.io.tmpdir"))).resolve("rocksdbTune"));
+		int random = Integer.getInteger("tune.random", 0);
+		val trials = random > 0 ? tuner.random(random, Long.getLong("tune.seed", 42)) : tuner.grid();
+		System.out.println("\nAll trials by throughput:");
+		trials.stream().sorted(Comparator.comparingDouble(Trial::throughput).reversed()).forEach(System.out::println);
+
+		val best = best(trials, Double.parseDouble(System.getProperty("tune.maxP99Micros", "0")),
+			Double.parseDouble(System.getProperty("tune.maxWriteAmp", "0")));
+		if (best.isEmpty()){
+			System.out.println("No trial within -Dtune.maxP99Micros / -Dtune.maxWriteAmp");
+			System.exit(1);
+		}
+		Path file = BenchmarkResult.outputDir().resolve("tuned-" + workload.name() + ".json");
+		best.get().profile().save(file);
+		System.out.println("\nBest: "+ best.get() +"\n"+ best.get().result() +"\n⇒ -Drocksdb.profile="+ file);
+	}
+}
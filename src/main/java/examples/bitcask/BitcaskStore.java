@@ -0,0 +1,757 @@
+package examples.bitcask;
+
+import examples.offheap.OffHeapLongMap;
+import examples.rocksdb.LookupSnapshot;
+import lombok.With;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+import static examples.MagicUtils.now;
+
+/// Bitcask-style store for write-heavy, point-lookup-only data: no LSM tree ⇒ no compaction of sorted runs,
+/// every write is one append, every read is one keydir lookup + one positional read.
+///
+/// - segments `0000001024.data`: records `crc32c, key length, value length (-1 = tombstone), key, value` appended via
+///   [FileChannel]; the active segment is sealed at `maxSegmentBytes` (≤ 1 GB: `int` offsets) and memory-mapped
+/// - keydir: key hash → `segment, value offset, value length, key` in an [OffHeapLongMap] (no heap object per key);
+///   keys are kept to tell hash collisions apart, like the in-memory key directory of Bitcask
+/// - reads: sealed segments through the mapping, the active one with positional [FileChannel#read(ByteBuffer, long)]
+/// - durability [Sync]: `GROUP` = a writer returns after an fsync that covers its record; whoever comes first runs
+///   it for everybody waiting (group commit); `ALWAYS` = fsync per write/batch; `NONE` = page cache only
+/// - hints `0000001024.hint`: `key length, value length, value offset, key` per record, written along with the segment
+///   and renamed into place when it is sealed ⇒ startup rebuilds the keydir without reading values.
+///   A segment without a hint (crash) is scanned with CRC checks and cut at the first torn record
+/// - merge (background when dead bytes ≥ `mergeDeadRatio` of the sealed data, or [#merge]): live records of all
+///   sealed segments are copied to new ones (tombstones are dropped: nothing older survives), the keydir is switched
+///   to the copies and the old files are deleted oldest first ⇒ a crash at any point replays to the same state.
+///   Active segment ids are multiples of 1024; the copies of segments ≤ `b` take ids `b-1023…` ⇒ replay order holds.
+///   After a restart the active id is above every `b` (rounded up) ⇒ the ids of a merge are never taken
+///
+/// Don't interrupt readers: an interrupt closes the [FileChannel] of the active segment for everybody (NIO).
+@Slf4j
+public final class BitcaskStore implements AutoCloseable {
+	static final int HEADER = 12;
+	/// keydir entry: segment, value offset, value length, key length, key
+	static final int ENTRY = 16;
+	static final int TOMBSTONE = -1;
+	static final int ID_STEP = 1024;
+	public static final int MAX_KEY = 64 * 1024;
+	static final int BUFFER = 1 << 20;
+	static final long SEED = 0xB17CA5CL;
+	private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+	private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+	public enum Sync { NONE, GROUP, ALWAYS }
+
+	/// @param maxSegmentBytes the active segment is sealed at this size (≤ 1 GB)
+	/// @param mergeDeadRatio background merge when this share of the sealed bytes is garbage
+	/// @param mergeCheckPeriod how often to check it; zero = merge only on [#merge]
+	/// @param expectedKeys initial keydir capacity (it grows anyway)
+	@With
+	public record Options (long maxSegmentBytes, Sync sync, double mergeDeadRatio, Duration mergeCheckPeriod, long expectedKeys) {
+		public static final Options DEFAULT = new Options(256L << 20, Sync.GROUP, 0.5, Duration.ofSeconds(10), 1_000_000);
+
+		public Options {
+			if (maxSegmentBytes < 4096 || maxSegmentBytes > 1L << 30)
+					throw new IllegalArgumentException("maxSegmentBytes: 4 KB…1 GB, but "+ maxSegmentBytes);
+		}
+
+		/// `-Dbitcask.segmentMb=256 -Dbitcask.sync=GROUP|ALWAYS|NONE -Dbitcask.mergeRatio=0.5 -Dbitcask.mergeCheckSec=10 -Dbitcask.expectedKeys=1000000`
+		public static Options fromSystemProperties () {
+			return new Options(Long.getLong("bitcask.segmentMb", DEFAULT.maxSegmentBytes >> 20) << 20,
+				Sync.valueOf(System.getProperty("bitcask.sync", DEFAULT.sync.name()).toUpperCase(Locale.ROOT)),
+				Double.parseDouble(System.getProperty("bitcask.mergeRatio", Double.toString(DEFAULT.mergeDeadRatio))),
+				Duration.ofSeconds(Long.getLong("bitcask.mergeCheckSec", DEFAULT.mergeCheckPeriod.toSeconds())),
+				Long.getLong("bitcask.expectedKeys", DEFAULT.expectedKeys));
+		}
+	}
+
+	public record Stats (long keys, int segments, long diskBytes, long liveBytes, long merges, long reclaimedBytes) {
+		@Override
+		public String toString () {
+			return String.format(Locale.ROOT, "Bitcask: %,d keys, %d segments, %,d MB on disk (%.0f%% live), %d merges reclaimed %,d MB",
+				keys, segments, diskBytes >> 20, diskBytes > 0 ? 100.0 * liveBytes / diskBytes : 100.0, merges, reclaimedBytes >> 20);
+		}
+	}
+
+	/// Per-thread keydir entries of one hash
+	static final class Scratch {
+		byte[] buf = new byte[256];
+		int len;
+	}
+
+	static final class Segment {
+		final int id;
+		final Path file;
+		/// active (or merge output being written): appends + positional reads; closed when sealed
+		volatile @Nullable FileChannel channel;
+		/// sealed
+		volatile @Nullable MappedByteBuffer map;
+		volatile long size;
+		/// bytes of the records the keydir points to
+		final AtomicLong live = new AtomicLong();
+		@Nullable DataOutputStream hint;
+
+		Segment (int id, Path dir) {
+			this.id = id;
+			this.file = dir.resolve(String.format(Locale.ROOT, "%010d.data", id));
+		}//new
+
+		Path hintFile (){ return file.resolveSibling(file.getFileName().toString().replace(".data", ".hint")); }
+
+		Path hintTmp (){ return file.resolveSibling(file.getFileName().toString().replace(".data", ".hint.tmp")); }
+
+		/// @return false: sealed meanwhile (the channel is closed, the mapping is there now) ⇒ retry
+		boolean read (int offset, byte[] dst, int length) throws IOException {
+			val m = map;
+			if (m != null){ m.get(offset, dst, 0, length); return true; }
+			val ch = channel;
+			if (ch == null){ return false; }
+			try {
+				val bb = ByteBuffer.wrap(dst, 0, length);
+				while (bb.hasRemaining()){
+					if (ch.read(bb, offset + bb.position()) < 0)
+							throw new EOFException("read: "+ file +" @ "+ offset);
+				}
+				return true;
+			} catch (ClosedByInterruptException e){
+				throw e;
+			} catch (ClosedChannelException e){
+				return false;
+			}
+		}
+
+		void hint (byte[] key, int valueLength, int valueOffset) throws IOException {
+			val h = hint;
+			h.writeInt(key.length);
+			h.writeInt(valueLength);
+			h.writeInt(valueOffset);
+			h.write(key);
+		}
+
+		/// fsync, publish the hint, map read-only, close the channel
+		void seal () throws IOException {
+			val ch = channel;
+			ch.force(false);
+			val h = hint;
+			if (h != null){
+				h.close();
+				try (val hc = FileChannel.open(hintTmp(), StandardOpenOption.WRITE)){ hc.force(false); }
+				Files.move(hintTmp(), hintFile(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				hint = null;
+			}
+			map = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			channel = null;
+			ch.close();
+		}
+
+		void delete () throws IOException {
+			Files.deleteIfExists(file);
+			Files.deleteIfExists(hintFile());
+		}
+	}
+
+	private final Path dir;
+	private final Options options;
+	private final OffHeapLongMap keydir;
+	/// sorted by id; copy on write. Ids are never reused in a process ⇒ a stale keydir entry can't hit another segment
+	private volatile Segment[] segments = new Segment[0];
+	private volatile Segment active;
+	/// appends, keydir updates, sealing
+	private final ReentrantLock writeLock = new ReentrantLock();
+	private final ReentrantLock mergeLock = new ReentrantLock();
+	private final ReentrantLock syncLock = new ReentrantLock();
+	private final Condition synced = syncLock.newCondition();
+	/// guarded by syncLock
+	private boolean syncing;
+	private long durable;
+	/// bytes appended since open (all segments)
+	private volatile long written;
+	private volatile long keys;
+	private volatile boolean closed;
+	private final AtomicLong merges = new AtomicLong(), reclaimed = new AtomicLong();
+	// writer state, guarded by writeLock
+	private final Scratch writerScratch = new Scratch();
+	private final CRC32C crc = new CRC32C();
+	private ByteBuffer out = ByteBuffer.allocate(BUFFER);
+	private final ArrayList<byte[]> pendingKeys = new ArrayList<>();
+	private int[] pendingValueLength = new int[64];
+	private final @Nullable ScheduledExecutorService merger;
+
+	public BitcaskStore (Path dir, Options options) throws IOException {
+		this.dir = Files.createDirectories(dir);
+		this.options = options;
+		this.keydir = new OffHeapLongMap(options.expectedKeys);
+		long t = now();
+		try (val files = Files.list(dir)){
+			for (val f : files.toList()){
+				String name = f.getFileName().toString();
+				if (name.endsWith(".hint.tmp")){ Files.delete(f); }// segment was not sealed: it is scanned below
+			}
+		}
+		int lastId = 0;
+		try (val files = Files.list(dir)){
+			val ids = files.map(f->f.getFileName().toString()).filter(n->n.endsWith(".data"))
+				.mapToInt(n->Integer.parseInt(n.substring(0, n.length() - 5))).sorted().toArray();
+			for (int id : ids){
+				val s = new Segment(id, dir);
+				register(s);
+				replay(s);
+				lastId = id;
+			}
+		}
+		// ceil: the last merge's copies sit below its top id, and the empty active segment after that top was deleted on close
+		// ⇒ the next active id must be above that top, or the next merge would write its copies over them
+		active = create(Math.ceilDiv(lastId, ID_STEP) * ID_STEP + ID_STEP);
+		log.info("BitcaskStore {} opened in {} ms: {}", dir, now() - t, stats());
+		if (options.mergeCheckPeriod.isPositive()){
+			merger = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("bitcask-merge").daemon().factory());
+			long ms = options.mergeCheckPeriod.toMillis();
+			merger.scheduleWithFixedDelay(this::maybeMerge, ms, ms, TimeUnit.MILLISECONDS);
+		} else {
+			merger = null;
+		}
+	}//new
+
+	public Path dir (){ return dir; }
+
+	public Options options (){ return options; }
+
+	static long hash (byte[] key){ return LookupSnapshot.hash(key, SEED); }
+
+	static int recordSize (int keyLength, int valueLength){ return HEADER + keyLength + Math.max(valueLength, 0); }
+
+	//region read
+	/// @return value length (may be > `dst.length`: only the first `dst.length` bytes are copied) or -1
+	public int get (byte[] key, byte[] dst) throws IOException {
+		long h = hash(key);
+		val s = SCRATCH.get();
+		for (;;){
+			if (!load(h, s)){ return -1; }
+			int at = find(s, key);
+			if (at < 0){ return -1; }
+			val segment = segment((int) INT.get(s.buf, at));
+			int length = (int) INT.get(s.buf, at + 8);
+			if (segment != null && segment.read((int) INT.get(s.buf, at + 4), dst, Math.min(length, dst.length))){ return length; }
+		}
+	}
+
+	public byte @Nullable [] get (byte[] key) throws IOException {
+		long h = hash(key);
+		val s = SCRATCH.get();
+		for (;;){
+			if (!load(h, s)){ return null; }
+			int at = find(s, key);
+			if (at < 0){ return null; }
+			val segment = segment((int) INT.get(s.buf, at));
+			byte[] value = new byte[(int) INT.get(s.buf, at + 8)];
+			if (segment != null && segment.read((int) INT.get(s.buf, at + 4), value, value.length)){ return value; }
+		}
+	}
+
+	public boolean containsKey (byte[] key) {
+		val s = SCRATCH.get();
+		return load(hash(key), s) && find(s, key) >= 0;
+	}
+
+	public long size (){ return keys; }
+
+	/// keydir entries of `hash` → `s`
+	private boolean load (long hash, Scratch s) {
+		for (;;){
+			int n = keydir.get(hash, s.buf);
+			if (n < 0){ return false; }
+			if (n <= s.buf.length){ s.len = n; return true; }
+			s.buf = new byte[Integer.highestOneBit(n) << 1];
+		}
+	}
+
+	/// @return offset of the entry of `key` in `s` or -1
+	static int find (Scratch s, byte[] key) {
+		for (int at = 0; at < s.len; ){
+			int keyLength = (int) INT.get(s.buf, at + 12);
+			if (keyLength == key.length && Arrays.equals(s.buf, at + ENTRY, at + ENTRY + keyLength, key, 0, keyLength)){ return at; }
+			at += ENTRY + keyLength;
+		}
+		return -1;
+	}
+
+	private @Nullable Segment segment (int id) {
+		val a = segments;
+		int lo = 0, hi = a.length - 1;
+		while (lo <= hi){
+			int mid = (lo + hi) >>> 1;
+			int c = Integer.compare(a[mid].id, id);
+			if (c == 0){ return a[mid]; }
+			if (c < 0){ lo = mid + 1; } else { hi = mid - 1; }
+		}
+		return null;
+	}
+	//endregion
+
+	//region write
+	public void put (byte[] key, byte[] value) throws IOException {
+		long end;
+		writeLock.lock();
+		try {
+			checkOpen();
+			append(key, value);
+			end = flush();
+		} finally {
+			writeLock.unlock();
+		}
+		if (options.sync == Sync.GROUP){ awaitDurable(end); }
+	}
+
+	/// @return false: there was no such key (nothing is written)
+	public boolean delete (byte[] key) throws IOException {
+		long end;
+		writeLock.lock();
+		try {
+			checkOpen();
+			if (!load(hash(key), writerScratch) || find(writerScratch, key) < 0){ return false; }
+			append(key, null);
+			end = flush();
+		} finally {
+			writeLock.unlock();
+		}
+		if (options.sync == Sync.GROUP){ awaitDurable(end); }
+		return true;
+	}
+
+	/// Batch: few large appends and one fsync; a `null` value deletes the key
+	public void putAll (Collection<? extends Map.Entry<byte[],byte @Nullable []>> entries) throws IOException {
+		long end;
+		writeLock.lock();
+		try {
+			checkOpen();
+			for (val e : entries){ append(e.getKey(), e.getValue()); }
+			end = flush();
+		} finally {
+			writeLock.unlock();
+		}
+		if (options.sync == Sync.GROUP){ awaitDurable(end); }
+	}
+
+	private void checkOpen () {
+		if (closed)
+				throw new IllegalStateException("BitcaskStore is closed: "+ dir);
+	}
+
+	/// Encodes the record into [#out]; flushes first if it doesn't fit into the buffer or the active segment
+	private void append (byte[] key, byte @Nullable [] value) throws IOException {
+		if (key.length > MAX_KEY)
+				throw new IllegalArgumentException("key > "+ MAX_KEY +": "+ key.length);
+		long size = recordSize(key.length, value == null ? 0 : value.length);
+		if (size > options.maxSegmentBytes)
+				throw new IllegalArgumentException("record > maxSegmentBytes: "+ size);
+		if (active.size + out.position() + size > options.maxSegmentBytes){
+			flush();
+			if (active.size > 0){ rotate(); }
+		}
+		if (out.remaining() < size){
+			flush();
+			if (out.capacity() < size){ out = ByteBuffer.allocate((int) size); }
+		}
+		int start = out.position();
+		out.putInt(0).putInt(key.length).putInt(value == null ? TOMBSTONE : value.length).put(key);
+		if (value != null){ out.put(value); }
+		crc.reset();
+		crc.update(out.array(), start + 4, out.position() - start - 4);
+		out.putInt(start, (int) crc.getValue());
+
+		int n = pendingKeys.size();
+		if (n == pendingValueLength.length){ pendingValueLength = Arrays.copyOf(pendingValueLength, n * 2); }
+		pendingKeys.add(key);
+		pendingValueLength[n] = value == null ? TOMBSTONE : value.length;
+	}
+
+	/// Buffered records → active segment, then hint + keydir (readers see a record only after it is in the file)
+	/// @return [#written] after these records
+	private long flush () throws IOException {
+		out.flip();
+		val s = active;
+		int recordsStart = (int) s.size;
+		if (out.hasRemaining()){
+			writeFully(s.channel, out, recordsStart);
+			int pos = recordsStart;
+			for (int i = 0; i < pendingKeys.size(); i++){
+				byte[] key = pendingKeys.get(i);
+				int valueLength = pendingValueLength[i];
+				int valueOffset = pos + HEADER + key.length;
+				s.hint(key, valueLength, valueOffset);
+				s.size = pos + recordSize(key.length, valueLength);// before the keydir: Stats never see live > size
+				index(key, hash(key), s, valueOffset, valueLength);
+				pos = valueOffset + Math.max(valueLength, 0);
+			}
+			written += pos - recordsStart;
+			if (options.sync == Sync.ALWAYS){ s.channel.force(false); }
+		}
+		out.clear();
+		pendingKeys.clear();
+		return written;
+	}
+
+	static void writeFully (FileChannel ch, ByteBuffer src, long position) throws IOException {
+		while (src.hasRemaining()){
+			position += ch.write(src, position);
+		}
+	}
+
+	/// Keydir: `key` is at `segment/valueOffset` now (or deleted); live bytes of the old and the new segment
+	private void index (byte[] key, long hash, Segment segment, int valueOffset, int valueLength) {
+		val w = writerScratch;
+		if (!load(hash, w)){ w.len = 0; }
+		int at = find(w, key);
+		if (at >= 0){
+			val old = segment((int) INT.get(w.buf, at));
+			if (old != null){ old.live.addAndGet(-recordSize(key.length, (int) INT.get(w.buf, at + 8))); }
+		}
+		if (valueLength == TOMBSTONE){
+			if (at < 0){ return; }
+			int entry = ENTRY + key.length;
+			if (w.len == entry){
+				keydir.remove(hash);
+			} else {
+				System.arraycopy(w.buf, at + entry, w.buf, at, w.len - at - entry);
+				keydir.put(hash, w.buf, 0, w.len - entry);
+			}
+			keys--;
+			return;
+		}
+		segment.live.addAndGet(recordSize(key.length, valueLength));
+		int len = w.len;
+		if (at < 0){// new key (or a hash collision: one more entry)
+			at = len;
+			len += ENTRY + key.length;
+			if (len > w.buf.length){ w.buf = Arrays.copyOf(w.buf, Integer.highestOneBit(len) << 1); }
+			INT.set(w.buf, at + 12, key.length);
+			System.arraycopy(key, 0, w.buf, at + ENTRY, key.length);
+			keys++;
+		}
+		INT.set(w.buf, at, segment.id);
+		INT.set(w.buf, at + 4, valueOffset);
+		INT.set(w.buf, at + 8, valueLength);
+		keydir.put(hash, w.buf, 0, len);
+	}
+
+	private Segment create (int id) throws IOException {
+		val s = new Segment(id, dir);
+		s.channel = FileChannel.open(s.file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		s.hint = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(s.hintTmp()), 1 << 16));
+		register(s);
+		return s;
+	}
+
+	/// Seals the active segment (fsync ⇒ everything written so far is durable) and starts the next one
+	private void rotate () throws IOException {
+		val s = active;
+		s.seal();
+		active = create((s.id / ID_STEP + 1) * ID_STEP);
+	}
+
+	private void register (Segment s) {
+		val a = Arrays.copyOf(segments, segments.length + 1);
+		int i = a.length - 1;
+		for (; i > 0 && a[i - 1].id > s.id; i--){ a[i] = a[i - 1]; }
+		a[i] = s;
+		segments = a;
+	}
+
+	/// Group commit: the first writer to come runs one fsync for everybody waiting; the others wait for it
+	private void awaitDurable (long end) throws IOException {
+		syncLock.lock();
+		try {
+			while (durable < end){
+				if (syncing){ synced.awaitUninterruptibly(); continue; }
+				syncing = true;
+				syncLock.unlock();
+				long upTo = -1;
+				try {
+					upTo = written;// before `active`: older bytes are in this segment or in a sealed (= synced) one
+					val ch = active.channel;
+					if (ch != null){ ch.force(false); }
+				} catch (ClosedChannelException e){
+					// sealed meanwhile: seal() has synced it
+				} finally {
+					syncLock.lock();
+					syncing = false;
+					if (upTo > durable){ durable = upTo; }
+					synced.signalAll();
+				}
+			}
+		} finally {
+			syncLock.unlock();
+		}
+	}
+	//endregion
+
+	//region startup
+	/// Segment file → keydir: from its hint or (no hint: it was not sealed) by scanning records
+	private void replay (Segment s) throws IOException {
+		try (val ch = FileChannel.open(s.file, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+			s.size = ch.size();
+			if (Files.exists(s.hintFile())){
+				s.map = ch.map(FileChannel.MapMode.READ_ONLY, 0, s.size);
+				try (val in = new DataInputStream(new BufferedInputStream(Files.newInputStream(s.hintFile()), 1 << 16))){
+					for (;;){
+						int keyLength;
+						try { keyLength = in.readInt(); } catch (EOFException e){ break; }
+						int valueLength = in.readInt(), valueOffset = in.readInt();
+						byte[] key = new byte[keyLength];
+						in.readFully(key);
+						index(key, hash(key), s, valueOffset, valueLength);
+					}
+				}
+				return;
+			}
+			val m = ch.map(FileChannel.MapMode.READ_ONLY, 0, s.size);
+			s.hint = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(s.hintTmp()), 1 << 16));
+			int pos = 0;
+			val check = new CRC32C();
+			while (pos + HEADER <= s.size){
+				int keyLength = m.getInt(pos + 4), valueLength = m.getInt(pos + 8);
+				if (keyLength < 0 || keyLength > MAX_KEY || valueLength < TOMBSTONE) break;
+				long end = (long) pos + recordSize(keyLength, valueLength);
+				if (end > s.size) break;
+				check.reset();
+				check.update(m.slice(pos + 4, (int) end - pos - 4));
+				if ((int) check.getValue() != m.getInt(pos)) break;
+				byte[] key = new byte[keyLength];
+				m.get(pos + HEADER, key);
+				s.hint(key, valueLength, pos + HEADER + keyLength);
+				index(key, hash(key), s, pos + HEADER + keyLength, valueLength);
+				pos = (int) end;
+			}
+			if (pos < s.size){
+				log.warn("replay: {} is torn at {} of {} bytes: cut", s.file, pos, s.size);
+				ch.truncate(pos);
+				s.size = pos;
+			}
+			s.channel = ch;
+			s.seal();
+		}
+	}
+	//endregion
+
+	//region merge
+	private void maybeMerge () {
+		try {
+			long total = 0, live = 0;
+			for (val s : segments){
+				if (s != active){ total += s.size; live += s.live.get(); }
+			}
+			if (total > 0 && total - live >= options.mergeDeadRatio * total){ merge(); }
+		} catch (Throwable e){
+			log.warn("maybeMerge: {}", dir, e);
+		}
+	}
+
+	/// Copies live records of all sealed segments (the active one is sealed first) into new segments and deletes the old ones
+	/// @return bytes reclaimed
+	public long merge () throws IOException {
+		mergeLock.lock();
+		try {
+			long t = now();
+			List<Segment> inputs = new ArrayList<>();
+			writeLock.lock();
+			try {
+				checkOpen();
+				rotate();// even if empty: output ids below its id are above all ids ever used ⇒ never reused
+				for (val s : segments){
+					if (s != active){ inputs.add(s); }
+				}
+			} finally {
+				writeLock.unlock();
+			}
+			if (inputs.isEmpty()){ return 0; }
+			val inputIds = new HashSet<Integer>();
+			long inputBytes = 0;
+			for (val s : inputs){ inputIds.add(s.id); inputBytes += s.size; }
+			int top = inputs.getLast().id;
+
+			// 1. copy: a record is live if the keydir points to it
+			val outputs = new ArrayList<Segment>();
+			Segment output = null;
+			val buf = ByteBuffer.allocate(BUFFER);
+			val s = new Scratch();
+			for (val in : inputs){
+				val m = in.map;
+				for (int pos = 0; pos < in.size; ){
+					int keyLength = m.getInt(pos + 4), valueLength = m.getInt(pos + 8);
+					int size = recordSize(keyLength, valueLength), valueOffset = pos + HEADER + keyLength;
+					if (valueLength != TOMBSTONE){
+						byte[] key = new byte[keyLength];
+						m.get(pos + HEADER, key);
+						int at;
+						if (load(hash(key), s) && (at = find(s, key)) >= 0 && (int) INT.get(s.buf, at) == in.id && (int) INT.get(s.buf, at + 4) == valueOffset){
+							if (output == null || output.size + buf.position() + size > options.maxSegmentBytes){
+								if (output != null){ drain(output, buf); output.seal(); }
+								int id = top - ID_STEP + 1 + outputs.size();
+								if (id >= top)
+										throw new IllegalStateException("merge: too many output segments for "+ inputs.size() +" inputs");
+								output = new Segment(id, dir);
+								output.channel = FileChannel.open(output.file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+								output.hint = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(output.hintTmp()), 1 << 16));
+								outputs.add(output);
+							}
+							if (buf.remaining() < size){ drain(output, buf); }
+							output.hint(key, valueLength, (int) (output.size + buf.position()) + HEADER + keyLength);
+							if (size > buf.capacity()){// a record larger than the buffer: straight from the mapping
+								writeFully(output.channel, m.slice(pos, size), output.size);
+								output.size += size;
+							} else {
+								buf.put(buf.position(), m, pos, size);
+								buf.position(buf.position() + size);
+							}
+						}
+					}
+					pos = valueOffset + Math.max(valueLength, 0);
+				}
+			}
+			if (output != null){ drain(output, buf); output.seal(); }
+
+			// 2. keydir → copies, unless a key was written (or deleted) meanwhile
+			for (val o : outputs){
+				register(o);
+				try (val in = new DataInputStream(new BufferedInputStream(Files.newInputStream(o.hintFile()), 1 << 16))){
+					boolean eof = false;
+					while (!eof){
+						writeLock.lock();
+						try {
+							for (int n = 0; n < 4096; n++){
+								int keyLength;
+								try { keyLength = in.readInt(); } catch (EOFException e){ eof = true; break; }
+								int valueLength = in.readInt(), valueOffset = in.readInt();
+								byte[] key = new byte[keyLength];
+								in.readFully(key);
+								relocate(key, o, valueOffset, valueLength, inputIds);
+							}
+						} finally {
+							writeLock.unlock();
+						}
+					}
+				}
+			}
+
+			// 3. old segments: oldest first ⇒ what a crash leaves behind is newer than the copies or replays to the same values
+			val remove = new HashSet<Segment>(inputs);
+			writeLock.lock();
+			try {
+				segments = Arrays.stream(segments).filter(x->!remove.contains(x)).toArray(Segment[]::new);
+			} finally {
+				writeLock.unlock();
+			}
+			long outputBytes = 0;
+			for (val o : outputs){ outputBytes += o.size; }
+			for (val in : inputs){ in.delete(); }// their mappings stay valid for readers in flight
+			merges.incrementAndGet();
+			reclaimed.addAndGet(inputBytes - outputBytes);
+			log.info("merge {}: {} segments, {} MB → {} segments, {} MB in {} ms", dir, inputs.size(), inputBytes >> 20,
+				outputs.size(), outputBytes >> 20, now() - t);
+			return inputBytes - outputBytes;
+		} finally {
+			mergeLock.unlock();
+		}
+	}
+
+	private static void drain (Segment output, ByteBuffer buf) throws IOException {
+		buf.flip();
+		int n = buf.remaining();
+		writeFully(output.channel, buf, output.size);
+		output.size += n;
+		buf.clear();
+	}
+
+	/// under writeLock: the keydir entry still points into a merged segment ⇒ to its copy
+	private void relocate (byte[] key, Segment copy, int valueOffset, int valueLength, HashSet<Integer> inputIds) {
+		val w = writerScratch;
+		long h = hash(key);
+		if (!load(h, w)){ return; }
+		int at = find(w, key);
+		if (at < 0 || !inputIds.contains((int) INT.get(w.buf, at))){ return; }
+		INT.set(w.buf, at, copy.id);
+		INT.set(w.buf, at + 4, valueOffset);
+		INT.set(w.buf, at + 8, valueLength);
+		keydir.put(h, w.buf, 0, w.len);
+		copy.live.addAndGet(recordSize(key.length, valueLength));
+	}
+	//endregion
+
+	public Stats stats () {
+		long disk = 0, live = 0;
+		val a = segments;
+		for (val s : a){ disk += s.size; live += s.live.get(); }
+		return new Stats(keys, a.length, disk, live, merges.get(), reclaimed.get());
+	}
+
+	/// Stops the merger, seals the active segment (its hint ⇒ fast next open)
+	@Override
+	public void close () throws IOException {
+		if (merger != null){
+			merger.shutdown();
+			try {
+				if (!merger.awaitTermination(1, TimeUnit.MINUTES)){ log.warn("close: merge still running {}", dir); }
+			} catch (InterruptedException e){
+				Thread.currentThread().interrupt();
+			}
+		}
+		mergeLock.lock();
+		writeLock.lock();
+		try {
+			if (closed){ return; }
+			closed = true;
+			val s = active;
+			if (s.size > 0){
+				s.seal();
+			} else {
+				s.hint.close();
+				s.channel.close();
+				Files.deleteIfExists(s.hintTmp());
+				s.delete();
+			}
+			log.info("BitcaskStore {} closed: {}", dir, stats());
+		} finally {
+			writeLock.unlock();
+			mergeLock.unlock();
+		}
+	}
+
+	@Override
+	public String toString (){ return stats().toString(); }
+}
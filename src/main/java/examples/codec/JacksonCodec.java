@@ -0,0 +1,53 @@
+package examples.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import lombok.SneakyThrows;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+
+/// Jackson codec for any data format with a [JsonFactory].
+///
+/// Fast path: [ObjectReader]/[ObjectWriter] are bound to the type once (no per-call type resolution),
+/// [BlackbirdModule] replaces reflection with generated lambdas (LambdaMetafactory),
+/// encode/decode buffers are recycled by Jackson's per-thread `BufferRecycler`.
+public final class JacksonCodec<T> implements ValueCodec<T> {
+	private final String name;
+	private final ObjectReader reader;
+	private final ObjectWriter writer;
+
+	public JacksonCodec (String name, JsonFactory factory, Class<T> type) {
+		this.name = name;
+		ObjectMapper mapper = new ObjectMapper(factory)
+			.registerModule(new BlackbirdModule())
+			.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);// schema evolution: old readers ignore new fields
+		reader = mapper.readerFor(type);
+		writer = mapper.writerFor(type);
+	}//new
+
+	public static <T> JacksonCodec<T> json (Class<T> type){ return new JacksonCodec<>("json", new JsonFactory(), type); }
+
+	/// binary JSON with back-references to repeated names/short strings
+	public static <T> JacksonCodec<T> smile (Class<T> type){ return new JacksonCodec<>("smile", new SmileFactory(), type); }
+
+	public static <T> JacksonCodec<T> cbor (Class<T> type){ return new JacksonCodec<>("cbor", new CBORFactory(), type); }
+
+	public static <T> JacksonCodec<T> msgPack (Class<T> type){ return new JacksonCodec<>("msgpack", new MessagePackFactory(), type); }
+
+	@Override public String name (){ return name; }
+
+	@Override  @SneakyThrows
+	public byte[] encode (T value) {
+		return writer.writeValueAsBytes(value);
+	}
+
+	@Override  @SneakyThrows
+	public T decode (byte[] bytes) {
+		return reader.readValue(bytes);
+	}
+}
@@ -0,0 +1,48 @@
+package examples.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/// Hand-written fixed layout: no field names, no type tags, no reflection.
+/// Fastest and smallest, but layout changes need a version byte/migration.
+///
+/// Encoding goes through a per-thread reusable [ByteBuffer]; only the result `byte[]` is allocated.
+public abstract class RawCodec<T> implements ValueCodec<T> {
+	private final ThreadLocal<ByteBuffer> buffer;
+
+	protected RawCodec (int maxSize) {
+		buffer = ThreadLocal.withInitial(()->ByteBuffer.allocate(maxSize).order(ByteOrder.BIG_ENDIAN));
+	}
+
+	@Override public String name (){ return "raw"; }
+
+	protected abstract void write (T value, ByteBuffer out);
+
+	protected abstract T read (ByteBuffer in);
+
+	@Override
+	public byte[] encode (T value) {
+		ByteBuffer out = buffer.get().clear();
+		write(value, out);
+		byte[] bytes = new byte[out.position()];
+		out.flip().get(bytes);
+		return bytes;
+	}
+
+	@Override
+	public T decode (byte[] bytes) {
+		return read(ByteBuffer.wrap(bytes).order(ByteOrder.BIG_ENDIAN));
+	}
+
+	/// length-prefixed (unsigned short) Latin1/UTF-8 bytes: at most 65535, a longer value would be cut by the prefix and corrupt the rest
+	protected static void putBytes (ByteBuffer out, byte[] bytes) {
+		if (bytes.length > 0xFFFF){ throw new IllegalArgumentException("putBytes: "+ bytes.length +" bytes > 65535 (unsigned short length prefix)"); }
+		out.putShort((short) bytes.length).put(bytes);
+	}
+
+	protected static byte[] getBytes (ByteBuffer in) {
+		byte[] bytes = new byte[Short.toUnsignedInt(in.getShort())];
+		in.get(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,41 @@
+package examples.codec;
+
+import examples.rocksdb.RocksDBConfig;
+import org.jspecify.annotations.Nullable;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDBException;
+
+import java.util.Collections;
+import java.util.List;
+
+/// Typed values over a RocksDB column family: callers don't hand-serialise anymore
+public final class TypedStore<T> {
+	private final RocksDBConfig conf;
+	private final ColumnFamilyHandle handle;
+	private final ValueCodec<T> codec;
+
+	public TypedStore (RocksDBConfig conf, String columnFamilyName, ValueCodec<T> codec) throws RocksDBException {
+		this.conf = conf;
+		this.handle = conf.createColumnFamily(columnFamilyName);
+		this.codec = codec;
+	}//new
+
+	public ValueCodec<T> codec (){ return codec; }
+
+	public void put (byte[] key, T value) throws RocksDBException {
+		conf.rocksDB().put(handle, key, codec.encode(value));
+	}
+
+	public @Nullable T get (byte[] key) throws RocksDBException {
+		byte[] bytes = conf.get(handle, key);
+		return bytes != null ? codec.decode(bytes) : null;
+	}
+
+	/// `null` for missing keys
+	public List<@Nullable T> multiGet (List<byte[]> keys) throws RocksDBException {
+		List<byte[]> values = conf.rocksDB().multiGetAsList(Collections.nCopies(keys.size(), handle), keys);
+		return values.stream()
+				.map(bytes->bytes != null ? codec.decode(bytes) : null)
+				.toList();
+	}
+}
@@ -0,0 +1,12 @@
+package examples.codec;
+
+/// Typed value ⇄ `byte[]` for byte-oriented stores (RocksDB, NATS KV, Redis…)
+/// @see JacksonCodec JSON, Smile, CBOR, MessagePack
+/// @see RawCodec hand-written fixed layout
+public interface ValueCodec<T> {
+	String name ();
+
+	byte[] encode (T value);
+
+	T decode (byte[] bytes);
+}
@@ -0,0 +1,341 @@
+package examples.offheap;
+
+import lombok.val;
+import org.jspecify.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/// Concurrent `long → byte[]` hash map with keys, references and values off-heap (direct [ByteBuffer]s):
+/// no per-entry heap objects ⇒ no GC pressure however many entries; the ceiling for in-memory lookups without JNI.
+///
+/// - table: open addressing, linear probing, 16-byte slots `key, ref`; `ref` = slab | offset | length of the value
+///   (one atomic 8-byte read gives a consistent location). A slot is claimed by CAS and never goes back to empty:
+///   remove leaves a tombstone reused only by the same key; tombstones go away on resize (×2 at 75% load)
+/// - values: 1 MB slabs, power-of-2 size classes with free lists, owned by a stripe ⇒ no shared allocator lock
+/// - concurrency: 64 [StampedLock] stripes by key hash; writers lock their stripe, readers are optimistic (seqlock):
+///   read ref + copy value, then validate the stripe stamp, retry on a concurrent write of the same stripe
+///
+/// Values ≤ 1 MB. Direct memory is freed by GC when the map is unreachable (count it in `-XX:MaxDirectMemorySize`).
+/// `MemorySegment`/`Arena` would free it deterministically, but they are preview in Java 21.
+public final class OffHeapLongMap {
+	static final int STRIPES = 64;
+	static final int SLAB_BITS = 20;
+	static final int SLAB = 1 << SLAB_BITS;
+	public static final int MAX_VALUE = SLAB;
+	static final int LENGTH_BITS = 21;
+	static final long EMPTY = 0, CLAIMED = 1, TOMBSTONE = -1;
+	/// slots per table segment (64 MB)
+	static final int SEGMENT_BITS = 22;
+	static final int MIN_CLASS_BITS = 3;
+	private static final byte[] NO_BYTES = new byte[0];
+	private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+	/// Slot array in ≤ 64 MB direct buffers
+	private static final class Table {
+		final ByteBuffer[] segments;
+		final long capacity, mask, threshold;
+
+		Table (long capacity) {
+			this.capacity = capacity;
+			this.mask = capacity - 1;
+			this.threshold = capacity * 3 / 4;
+			int perSegment = (int) Math.min(capacity, 1L << SEGMENT_BITS);
+			segments = new ByteBuffer[(int) (capacity / perSegment)];
+			for (int i = 0; i < segments.length; i++){
+				segments[i] = ByteBuffer.allocateDirect(perSegment * 16).order(ByteOrder.nativeOrder());
+			}
+		}//new
+
+		ByteBuffer segment (long slot){ return segments[(int) (slot >>> SEGMENT_BITS)]; }
+
+		static int offset (long slot){ return (int) (slot & ((1L << SEGMENT_BITS) - 1)) << 4; }
+
+		long key (long slot){ return (long) LONG.getAcquire(segment(slot), offset(slot)); }
+
+		long ref (long slot){ return (long) LONG.getAcquire(segment(slot), offset(slot) + 8); }
+
+		void setKey (long slot, long key){ LONG.setRelease(segment(slot), offset(slot), key); }
+
+		void setRef (long slot, long ref){ LONG.setRelease(segment(slot), offset(slot) + 8, ref); }
+
+		boolean claim (long slot){ return LONG.compareAndSet(segment(slot), offset(slot) + 8, EMPTY, CLAIMED); }
+
+		/// @return slot of the key (live or tombstone) or -1; CLAIMED slots belong to other stripes' keys being inserted
+		long find (long key, long hash) {
+			for (long i = 0, slot = hash & mask; i < capacity; i++, slot = (slot + 1) & mask){
+				long ref = ref(slot);
+				if (ref == EMPTY){ return -1; }
+				if (ref != CLAIMED && key(slot) == key){ return slot; }
+			}
+			return -1;
+		}
+	}
+
+	/// Values of one stripe: slabs are global (readers resolve refs), bump pointer and free lists are per stripe
+	private static final class Stripe {
+		final StampedLock lock = new StampedLock();
+		/// size class → stack of free refs (offset | slab)
+		final long[][] free = new long[SLAB_BITS - MIN_CLASS_BITS + 1][];
+		final int[] freeCount = new int[free.length];
+		int slab = -1, top = SLAB;
+		long size, valueBytes;
+	}
+
+	private volatile Table table;
+	private volatile ByteBuffer[] slabs = new ByteBuffer[16];
+	private int slabCount;
+	private final Stripe[] stripes = new Stripe[STRIPES];
+	/// claimed slots incl. tombstones
+	private final AtomicLong used = new AtomicLong();
+
+	/// @param expectedEntries initial table size = expectedEntries / 0.75 (grows ×2 anyway)
+	public OffHeapLongMap (long expectedEntries) {
+		table = new Table(Math.max(16, Long.highestOneBit(Math.max(1, expectedEntries * 4 / 3)) * 2));
+		for (int i = 0; i < STRIPES; i++){ stripes[i] = new Stripe(); }
+	}//new
+
+	static long hash (long key) {// murmur3 fmix64
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		return key ^ (key >>> 33);
+	}
+
+	private Stripe stripe (long hash){ return stripes[(int) (hash >>> 58)]; }// table index uses the low bits
+
+	//region ref = slab+1 (22 bits) | offset (20) | length (21)
+	static long ref (int slab, int offset, int length){ return ((long) (slab + 1) << (SLAB_BITS + LENGTH_BITS)) | ((long) offset << LENGTH_BITS) | length; }
+
+	static int slabOf (long ref){ return (int) (ref >>> (SLAB_BITS + LENGTH_BITS)) - 1; }
+
+	static int offsetOf (long ref){ return (int) (ref >>> LENGTH_BITS) & (SLAB - 1); }
+
+	static int lengthOf (long ref){ return (int) ref & ((1 << LENGTH_BITS) - 1); }
+	//endregion
+
+	/// @return value length or -1; copies at most `dst.length` bytes; no allocation
+	public int get (long key, byte[] dst) {
+		long h = hash(key);
+		val s = stripe(h);
+		long stamp = s.lock.tryOptimisticRead();
+		if (stamp != 0){
+			for (int attempt = 0; attempt < 4; attempt++){
+				int len = read(key, h, dst);
+				if (s.lock.validate(stamp)){ return len; }
+				stamp = s.lock.tryOptimisticRead();
+				if (stamp == 0){ break; }
+			}
+		}
+		stamp = s.lock.readLock();// writer keeps winning (or resize): wait for it
+		try {
+			return read(key, h, dst);
+		} finally {
+			s.lock.unlockRead(stamp);
+		}
+	}
+
+	public byte @Nullable [] get (long key) {
+		long h = hash(key);
+		val s = stripe(h);
+		long stamp = s.lock.tryOptimisticRead();
+		for (int attempt = 0; stamp != 0 && attempt < 4; attempt++){
+			long ref = findRef(key, h);
+			byte[] value = ref == -1 ? null : copy(ref, new byte[lengthOf(ref)]);
+			if (s.lock.validate(stamp)){ return value; }
+			stamp = s.lock.tryOptimisticRead();
+		}
+		stamp = s.lock.readLock();
+		try {
+			long ref = findRef(key, h);
+			return ref == -1 ? null : copy(ref, new byte[lengthOf(ref)]);
+		} finally {
+			s.lock.unlockRead(stamp);
+		}
+	}
+
+	public boolean containsKey (long key) {
+		return get(key, NO_BYTES) >= 0;
+	}
+
+	private int read (long key, long h, byte[] dst) {
+		long ref = findRef(key, h);
+		if (ref == -1){ return -1; }
+		int len = lengthOf(ref);
+		copy(ref, dst, Math.min(len, dst.length));
+		return len;
+	}
+
+	/// @return ref of a live value or -1
+	private long findRef (long key, long h) {
+		val t = table;
+		long slot = t.find(key, h);
+		if (slot < 0){ return -1; }
+		long ref = t.ref(slot);
+		return ref == TOMBSTONE || ref == CLAIMED ? -1 : ref;
+	}
+
+	private byte[] copy (long ref, byte[] dst){ return copy(ref, dst, dst.length); }
+
+	private byte[] copy (long ref, byte[] dst, int len) {
+		slabs[slabOf(ref)].get(offsetOf(ref), dst, 0, len);
+		return dst;
+	}
+
+	public void put (long key, byte[] value) {
+		put(key, value, 0, value.length);
+	}
+
+	public void put (long key, byte[] value, int offset, int length) {
+		if (length > MAX_VALUE)
+				throw new IllegalArgumentException("put: value > 1 MB: "+ length);
+		long h = hash(key);
+		val s = stripe(h);
+		while (true){
+			long stamp = s.lock.writeLock();
+			try {
+				val t = table;
+				long slot = t.find(key, h);
+				if (slot >= 0){// update or re-insert over its own tombstone
+					long old = t.ref(slot);
+					t.setRef(slot, write(s, value, offset, length));
+					if (old == TOMBSTONE){ s.size++; } else { release(s, old); }
+					return;
+				}
+				if (used.get() < t.threshold){
+					for (long i = 0, p = h & t.mask; i < t.capacity; i++, p = (p + 1) & t.mask){
+						if (t.claim(p)){
+							used.incrementAndGet();
+							long ref = write(s, value, offset, length);
+							t.setKey(p, key);
+							t.setRef(p, ref);
+							s.size++;
+							return;
+						}
+					}
+				}
+			} finally {
+				s.lock.unlockWrite(stamp);
+			}
+			resize();// full: grow without holding our stripe (all stripes are locked in order), then retry
+		}
+	}
+
+	/// @return true if the key was present
+	public boolean remove (long key) {
+		long h = hash(key);
+		val s = stripe(h);
+		long stamp = s.lock.writeLock();
+		try {
+			val t = table;
+			long slot = t.find(key, h);
+			if (slot < 0){ return false; }
+			long old = t.ref(slot);
+			if (old == TOMBSTONE){ return false; }
+			t.setRef(slot, TOMBSTONE);
+			release(s, old);
+			s.size--;
+			return true;
+		} finally {
+			s.lock.unlockWrite(stamp);
+		}
+	}
+
+	private void resize () {
+		long[] stamps = new long[STRIPES];
+		for (int i = 0; i < STRIPES; i++){ stamps[i] = stripes[i].lock.writeLock(); }
+		try {
+			val old = table;
+			if (used.get() < old.threshold){ return; }// another writer did it
+			long live = 0;
+			for (val s : stripes){ live += s.size; }
+			val t = new Table(live * 2 >= old.threshold ? old.capacity * 2 : old.capacity);// mostly tombstones: same size, cleaned
+			for (long slot = 0; slot < old.capacity; slot++){
+				long ref = old.ref(slot);
+				if (ref == EMPTY || ref == TOMBSTONE){ continue; }
+				long key = old.key(slot);
+				for (long p = hash(key) & t.mask; ; p = (p + 1) & t.mask){
+					if (t.ref(p) == EMPTY){
+						t.setKey(p, key);
+						t.setRef(p, ref);
+						break;
+					}
+				}
+			}
+			used.set(live);
+			table = t;
+		} finally {
+			for (int i = STRIPES - 1; i >= 0; i--){ stripes[i].lock.unlockWrite(stamps[i]); }
+		}
+	}
+
+	static int sizeClass (int length) {
+		return Math.max(0, 32 - Integer.numberOfLeadingZeros(Math.max(1, length) - 1) - MIN_CLASS_BITS);
+	}
+
+	/// Copy the value into the stripe's memory (free list of its class, else bump pointer; new slab when the current one is full)
+	private long write (Stripe s, byte[] value, int offset, int length) {
+		int c = sizeClass(length);
+		long ref;
+		if (s.freeCount[c] > 0){
+			long free = s.free[c][--s.freeCount[c]];
+			ref = ref(slabOf(free), offsetOf(free), length);
+		} else {
+			int classSize = 1 << (c + MIN_CLASS_BITS);
+			if (s.top + classSize > SLAB){
+				s.slab = newSlab();
+				s.top = 0;
+			}
+			ref = ref(s.slab, s.top, length);
+			s.top += classSize;
+		}
+		slabs[slabOf(ref)].put(offsetOf(ref), value, offset, length);
+		s.valueBytes += length;
+		return ref;
+	}
+
+	/// Readers may still copy the old value: they re-validate the stamp of this stripe, which the caller holds
+	private static void release (Stripe s, long ref) {
+		int c = sizeClass(lengthOf(ref));
+		if (s.free[c] == null){ s.free[c] = new long[16]; }
+		if (s.freeCount[c] == s.free[c].length){ s.free[c] = Arrays.copyOf(s.free[c], s.freeCount[c] * 2); }
+		s.free[c][s.freeCount[c]++] = ref;
+		s.valueBytes -= lengthOf(ref);
+	}
+
+	private synchronized int newSlab () {
+		if (slabCount == slabs.length){
+			if (slabCount >= 1 << 22){ throw new IllegalStateException("newSlab: out of slab ids (4 TB)"); }
+			slabs = Arrays.copyOf(slabs, slabCount * 2);
+		}
+		slabs[slabCount] = ByteBuffer.allocateDirect(SLAB);
+		return slabCount++;
+	}
+
+	/// Approximate under concurrent writes
+	public long size () {
+		long n = 0;
+		for (val s : stripes){ n += s.size; }
+		return n;
+	}
+
+	/// Direct memory: table + slabs
+	public long offHeapBytes () {
+		return table.capacity * 16 + (long) slabCount * SLAB;
+	}
+
+	@Override
+	public String toString () {
+		long values = 0;
+		for (val s : stripes){ values += s.valueBytes; }
+		return String.format(Locale.ENGLISH, "OffHeapLongMap: %d entries, table %d slots (%d used), %d slabs, values %d MB, off-heap %d MB",
+			size(), table.capacity, used.get(), slabCount, values >> 20, offHeapBytes() >> 20);
+	}
+}
@@ -0,0 +1,215 @@
+package examples.rocksdb;
+
+import examples.rocksdb.ChangeSink.Change;
+import examples.rocksdb.ChangeSink.Op;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.jspecify.annotations.Nullable;
+import org.rocksdb.WriteBatch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/// Change data capture: tails the WAL of a [RocksDBConfig] (`getUpdatesSince(sequence)`), decodes every [WriteBatch]
+/// into per-CF PUT/DELETE/DELETE_RANGE/MERGE [Change]s and ships them in batches to a [ChangeSink]
+/// (queue, file, NATS JetStream) ⇒ no double writes from application code, other nodes see exactly the committed order.
+///
+/// The last shipped sequence number is persisted in `offsetFile` after the sink completes ⇒ restart continues from there
+/// (at-least-once: the last batch may be shipped again; JetStream dedupes it by message id).
+///
+/// WAL files are deleted after their memtables are flushed: set `-Drocksdb.wal.ttlSec` (keeps archived WAL) longer than
+/// any CDC downtime, else changes are lost ⇒ [Stats#gaps] > 0 and an error in the log.
+/// Close it before the [RocksDBConfig].
+@Slf4j
+public final class ChangeCapture implements AutoCloseable {
+	private final RocksDBConfig conf;
+	private final ChangeSink sink;
+	private final Path offsetFile;
+	private final int maxBatch;
+	private final long pollMillis;
+	private final Duration shipTimeout;
+	/// CF id → name (refreshed when an unknown id shows up: CF created at runtime); only the tailer thread uses it
+	private final Map<Integer,String> cfNames = new HashMap<>();
+	private volatile long next;
+	private volatile long shippedChanges, batches, gaps, failures;
+	private final AtomicBoolean closed = new AtomicBoolean();
+	private final Thread tailer;
+
+	/// @param fromBeginning no offset file yet: true = everything still in the WAL, false = only changes after now
+	public ChangeCapture (RocksDBConfig conf, ChangeSink sink, Path offsetFile, boolean fromBeginning, int maxBatch,
+			Duration pollPeriod, Duration shipTimeout) throws IOException {
+		this.conf = conf;
+		this.sink = sink;
+		this.offsetFile = offsetFile;
+		this.maxBatch = Math.max(1, maxBatch);
+		this.pollMillis = Math.max(1, pollPeriod.toMillis());
+		this.shipTimeout = shipTimeout;
+		if (Files.exists(offsetFile))
+				next = Long.parseLong(Files.readString(offsetFile).trim()) + 1;
+		else
+				next = fromBeginning ? 0 : conf.rocksDB().getLatestSequenceNumber() + 1;
+		log.info("ChangeCapture of {} starts at sequence {} → {}", conf.path(), next, sink);
+		// platform thread: WAL reading is a JNI call, shipping may block
+		tailer = Thread.ofPlatform().daemon().name("ChangeCapture").start(this::tail);
+	}//new
+
+	/// 1000 changes per batch, poll every `-Drocksdb.cdc.pollMs=100`, offset in `<db>/cdc.offset`
+	public ChangeCapture (RocksDBConfig conf, ChangeSink sink) throws IOException {
+		this(conf, sink, conf.path().resolve("cdc.offset"), false, 1000,
+			Duration.ofMillis(Long.getLong("rocksdb.cdc.pollMs", 100)), Duration.ofSeconds(30));
+	}//new
+
+	private void tail () {
+		while (!closed.get()){
+			try {
+				if (poll() == 0){ Thread.sleep(pollMillis); }
+			} catch (InterruptedException e){
+				break;// close
+			} catch (Throwable e){
+				if (closed.get()){ break; }
+				failures++;
+				log.warn("tail: failed to ship changes from sequence {}, retry in {} ms", next, pollMillis, e);
+				try {
+					Thread.sleep(pollMillis);
+				} catch (InterruptedException ie){
+					break;
+				}
+			}
+		}
+	}
+
+	/// Drain the WAL from `next` (one iterator: reopening it per batch rescans the log file), ship every ~maxBatch changes:
+	/// wait for the sink, persist the offset
+	/// @return number of shipped changes
+	int poll () throws Exception {
+		if (next > conf.rocksDB().getLatestSequenceNumber()){ return 0; }// getUpdatesSince: "not yet written"
+		var changes = new ArrayList<Change>();
+		int shipped = 0;
+		long from = next;
+		try (val it = conf.rocksDB().getUpdatesSince(from)){
+			boolean first = true;
+			while (it.isValid() && !closed.get()){
+				val result = it.getBatch();// moves the native batch out: call once per position
+				if (first && result.sequenceNumber() > from && from > 0){
+					gaps++;
+					log.error("poll: WAL gap, changes {}..{} are gone (raise -Drocksdb.wal.ttlSec)", from, result.sequenceNumber() - 1);
+				}
+				first = false;
+				try (WriteBatch batch = result.writeBatch(); val decoder = new Decoder(result.sequenceNumber(), next, changes)){
+					batch.iterate(decoder);
+				}
+				it.next();
+				if (changes.size() >= maxBatch){
+					shipped += ship(changes);
+					changes = new ArrayList<>();
+				}
+			}
+		}
+		return changes.isEmpty() ? shipped : shipped + ship(changes);
+	}
+
+	private int ship (List<Change> changes) throws Exception {
+		sink.ship(changes).toCompletableFuture().get(shipTimeout.toMillis(), TimeUnit.MILLISECONDS);
+		long last = changes.getLast().sequence();
+		saveOffset(last);
+		next = last + 1;
+		shippedChanges += changes.size();
+		batches++;
+		return changes.size();
+	}
+
+	private void saveOffset (long sequence) throws IOException {
+		Path tmp = offsetFile.resolveSibling(offsetFile.getFileName() + ".tmp");
+		Files.writeString(tmp, Long.toString(sequence));
+		Files.move(tmp, offsetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	String columnFamily (int id) {
+		String name = cfNames.get(id);
+		if (name != null){ return name; }
+		for (String cf : conf.getColumnFamilyNames()){
+			cfNames.put(conf.handle(cf).getID(), cf);
+		}
+		return cfNames.getOrDefault(id, "#" + id);// dropped meanwhile
+	}
+
+	/// WriteBatch → changes; every record consumes one sequence number, records before `from` were shipped already
+	private final class Decoder extends WriteBatch.Handler {
+		private long sequence;
+		private final long from;
+		private final List<Change> changes;
+
+		Decoder (long batchSequence, long from, List<Change> changes) {
+			this.sequence = batchSequence;
+			this.from = from;
+			this.changes = changes;
+		}//new
+
+		private void add (int cf, Op op, byte[] key, byte @Nullable [] value) {
+			long seq = sequence++;
+			if (seq < from){ return; }
+			if ((op == Op.PUT || op == Op.MERGE) && value != null && value.length >= ReadReplica.TTL_SUFFIX){
+				value = Arrays.copyOf(value, value.length - ReadReplica.TTL_SUFFIX);// TtlDB timestamp
+			}
+			changes.add(new Change(seq, columnFamily(cf), op, key, value));
+		}
+
+		@Override public void put (int cf, byte[] key, byte[] value){ add(cf, Op.PUT, key, value); }
+		@Override public void put (byte[] key, byte[] value){ add(0, Op.PUT, key, value); }
+		@Override public void merge (int cf, byte[] key, byte[] value){ add(cf, Op.MERGE, key, value); }
+		@Override public void merge (byte[] key, byte[] value){ add(0, Op.MERGE, key, value); }
+		@Override public void delete (int cf, byte[] key){ add(cf, Op.DELETE, key, null); }
+		@Override public void delete (byte[] key){ add(0, Op.DELETE, key, null); }
+		@Override public void singleDelete (int cf, byte[] key){ add(cf, Op.DELETE, key, null); }
+		@Override public void singleDelete (byte[] key){ add(0, Op.DELETE, key, null); }
+		@Override public void deleteRange (int cf, byte[] beginKey, byte[] endKey){ add(cf, Op.DELETE_RANGE, beginKey, endKey); }
+		@Override public void deleteRange (byte[] beginKey, byte[] endKey){ add(0, Op.DELETE_RANGE, beginKey, endKey); }
+		@Override public void putBlobIndex (int cf, byte[] key, byte[] value){ sequence++; }// only in flushed data, never in the WAL of a user write
+		@Override public void logData (byte[] blob){}// no sequence number
+		@Override public void markBeginPrepare (){}
+		@Override public void markEndPrepare (byte[] xid){}
+		@Override public void markNoop (boolean emptyBatch){}
+		@Override public void markRollback (byte[] xid){}
+		@Override public void markCommit (byte[] xid){}
+		@Override public void markCommitWithTimestamp (byte[] xid, byte[] ts){}
+	}
+
+	/// @param lag changes written but not shipped yet (sequence numbers)
+	public record Stats (long shippedSequence, long latestSequence, long lag, long shippedChanges, long batches, long gaps, long failures) {
+		@Override
+		public String toString () {
+			return String.format(Locale.ENGLISH, "shipped seq=%d latest=%d lag=%d; changes=%d in %d batches, gaps=%d failures=%d",
+				shippedSequence, latestSequence, lag, shippedChanges, batches, gaps, failures);
+		}
+	}
+
+	public Stats stats () {
+		long latest = conf.rocksDB().getLatestSequenceNumber();
+		long shipped = next - 1;
+		return new Stats(shipped, latest, Math.max(0, latest - shipped), shippedChanges, batches, gaps, failures);
+	}
+
+	/// Stops the tailer (the sink is not closed: it belongs to the caller)
+	@Override
+	public void close () {
+		if (closed.compareAndSet(false, true)){
+			tailer.interrupt();
+			try {
+				tailer.join(TimeUnit.SECONDS.toMillis(30) + shipTimeout.toMillis());
+			} catch (InterruptedException e){
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package examples.rocksdb;
+
+import examples.CompletionBarrier;
+import io.nats.client.JetStream;
+import io.nats.client.PublishOptions;
+import io.nats.client.impl.Headers;
+import lombok.val;
+import org.jspecify.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/// Where [ChangeCapture] delivers decoded WAL mutations. A batch is shipped only after the previous one has completed;
+/// the shipped sequence number is persisted after completion ⇒ after a crash the last batch can be delivered again (at-least-once).
+public interface ChangeSink {
+	enum Op { PUT, DELETE, DELETE_RANGE, MERGE }
+
+	/// One mutation of the WAL
+	/// @param sequence RocksDB sequence number of this very operation (batch sequence + index in the batch)
+	/// @param value PUT/MERGE: the value (TTL suffix stripped); DELETE_RANGE: end key (exclusive); DELETE: null
+	record Change (long sequence, String columnFamily, Op op, byte[] key, byte @Nullable [] value) {}
+
+	/// @return completes when the batch is durably delivered (failure ⇒ the same changes are shipped again)
+	CompletionStage<?> ship (List<Change> batch);
+
+	/// In-process stand-in (tests, local caches): changes are put into the queue
+	record QueueSink (BlockingQueue<Change> queue) implements ChangeSink {
+		@Override
+		public CompletionStage<?> ship (List<Change> batch) {
+			queue.addAll(batch);
+			return CompletableFuture.completedFuture(null);
+		}
+	}
+
+	/// Append-only binary change log: `seq, cf, op, key, value` per change; fsync per batch
+	final class FileSink implements ChangeSink, AutoCloseable {
+		private final FileOutputStream file;
+		private final DataOutputStream out;
+
+		public FileSink (Path path) throws IOException {
+			Files.createDirectories(path.toAbsolutePath().getParent());
+			file = new FileOutputStream(path.toFile(), true);
+			out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024));
+		}//new
+
+		@Override
+		public synchronized CompletionStage<?> ship (List<Change> batch) {
+			try {
+				for (Change c : batch){
+					out.writeLong(c.sequence());
+					out.writeUTF(c.columnFamily());
+					out.writeByte(c.op().ordinal());
+					out.writeInt(c.key().length);
+					out.write(c.key());
+					out.writeInt(c.value() == null ? -1 : c.value().length);
+					if (c.value() != null){ out.write(c.value()); }
+				}
+				out.flush();
+				file.getFD().sync();
+				return CompletableFuture.completedFuture(null);
+			} catch (IOException e){
+				return CompletableFuture.failedFuture(e);
+			}
+		}
+
+		/// Read a change log written by [FileSink] (replay, tests)
+		public static List<Change> read (Path path) throws IOException {
+			val list = new ArrayList<Change>();
+			try (val in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64 * 1024))){
+				while (true){
+					long seq;
+					try {
+						seq = in.readLong();
+					} catch (EOFException eof){
+						return list;
+					}
+					String cf = in.readUTF();
+					Op op = Op.values()[in.readByte()];
+					byte[] key = in.readNBytes(in.readInt());
+					int len = in.readInt();
+					list.add(new Change(seq, cf, op, key, len < 0 ? null : in.readNBytes(len)));
+				}
+			}
+		}
+
+		@Override
+		public synchronized void close () throws IOException {
+			out.close();
+		}
+	}
+
+	/// JetStream `publishAsync` per change to `subjectPrefix.columnFamily`, payload = value; headers `cdc-op`, `cdc-key` (hex), `cdc-seq`.
+	/// Message id = sequence number ⇒ the stream's duplicate window drops re-shipped changes after a crash.
+	/// The stream must capture `subjectPrefix.>`.
+	record NatsSink (JetStream js, String subjectPrefix) implements ChangeSink {
+		@Override
+		public CompletionStage<?> ship (List<Change> batch) {
+			val barrier = new CompletionBarrier(10);
+			for (Change c : batch){
+				val headers = new Headers()
+					.put("cdc-op", c.op().name())
+					.put("cdc-key", HexFormat.of().formatHex(c.key()))
+					.put("cdc-seq", Long.toString(c.sequence()));
+				barrier.track(js.publishAsync(subjectPrefix +'.'+ subjectToken(c.columnFamily()), headers, c.value() == null ? new byte[0] : c.value(),
+					PublishOptions.builder().messageId(Long.toString(c.sequence())).build()));
+			}
+			return barrier.whenDone().thenRun(barrier::throwIfFailed);
+		}
+
+		/// CF name → one subject token (no `.`, wildcards or whitespace)
+		static String subjectToken (String columnFamily) {
+			return columnFamily.replaceAll("[.*>\\s]", "_");
+		}
+	}
+}
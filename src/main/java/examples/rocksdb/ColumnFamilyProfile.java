@@ -0,0 +1,162 @@
+package examples.rocksdb;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.With;
+import lombok.val;
+import org.jspecify.annotations.Nullable;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompactionStyle;
+import org.rocksdb.CompressionOptions;
+import org.rocksdb.CompressionType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+
+/// Per column family storage settings on top of the common [RocksDBConfig] options.
+///
+/// Compression: `compressionPerLevel` (L0, L1…; `null` ⇒ `compression` everywhere), `bottommostCompression` for the last level
+/// (≈90% of data). ZSTD levels: `zstdLevel` / `bottommostZstdLevel` (1..19, negative = faster).
+///
+/// ZSTD dictionary: small repetitive values compress poorly block by block; with `maxDictBytes > 0` RocksDB trains
+/// a dictionary per SST file on `zstdMaxTrainBytes` of samples and stores it in the file (no external dictionary management).
+///
+/// Key-value separation (integrated BlobDB): values ≥ `minBlobSize` go to blob files, SST keeps only key + blob reference ⇒
+/// compaction rewrites small SSTs, not the large values again and again. Blob GC relocates live blobs
+/// from the oldest `blobGcAgeCutoff` part of blob files during compaction.
+///
+/// Memtables, compaction and block-based table: `writeBufferSize` (capped by the [MemoryBudget]), `maxWriteBufferNumber`,
+/// `level0FileNumCompactionTrigger`, `compactionStyle`, `blockSize`, `bloomBitsPerKey`, `partitionedFilters`
+/// (partitioned index & filters, like `-Drocksdb.largeCf`). Found by hand or by [examples.bench.OptionTuner];
+/// [#save]/[#load] as JSON, `-Drocksdb.profile=tuned.json` applies a saved profile to every CF.
+///
+/// @see <a href="https://rocksdb.org/blog/2021/05/31/dictionary-compression.html">Dictionary compression</a>
+/// @see <a href="https://github.com/facebook/rocksdb/wiki/BlobDB">BlobDB</a>
+@With
+public record ColumnFamilyProfile (
+	CompressionType compression,
+	@Nullable List<CompressionType> compressionPerLevel,
+	CompressionType bottommostCompression,
+	int zstdLevel,
+	int bottommostZstdLevel,
+	int maxDictBytes,
+	int zstdMaxTrainBytes,
+	boolean enableBlobFiles,
+	long minBlobSize,
+	CompressionType blobCompression,
+	boolean enableBlobGc,
+	double blobGcAgeCutoff,
+	long writeBufferSize,
+	int maxWriteBufferNumber,
+	int level0FileNumCompactionTrigger,
+	CompactionStyle compactionStyle,
+	int blockSize,
+	double bloomBitsPerKey,
+	boolean partitionedFilters
+) {
+	public ColumnFamilyProfile {
+		Objects.requireNonNull(compression, "compression");
+		Objects.requireNonNull(bottommostCompression, "bottommostCompression");
+		Objects.requireNonNull(blobCompression, "blobCompression");
+		Objects.requireNonNull(compactionStyle, "compactionStyle");
+		if (writeBufferSize <= 0 || maxWriteBufferNumber < 1 || blockSize <= 0)
+				throw new IllegalArgumentException("ColumnFamilyProfile: writeBufferSize > 0, maxWriteBufferNumber ≥ 1, blockSize > 0, but "+ writeBufferSize +", "+ maxWriteBufferNumber +", "+ blockSize);
+	}
+
+	/// = `CompressionOptions::kDefaultCompressionLevel`: library default (ZSTD: 3)
+	public static final int DEFAULT_LEVEL = 32767;
+
+	public static final ColumnFamilyProfile DEFAULT = new ColumnFamilyProfile(
+		CompressionType.ZSTD_COMPRESSION, null, CompressionType.ZSTD_COMPRESSION, DEFAULT_LEVEL, DEFAULT_LEVEL, 0, 0,
+		false, 0, CompressionType.NO_COMPRESSION, false, 0.25,
+		128 * 1024 * 1024, 4, 2/*optimizeLevelStyleCompaction*/, CompactionStyle.LEVEL, 16 * 1024, 10, false);
+
+	/// a missing field is an error, not 0/null (records: all fields are creator properties)
+	static final JsonMapper JSON = JsonMapper.builder().findAndAddModules()
+		.enable(DeserializationFeature.FAIL_ON_MISSING_CREATOR_PROPERTIES)
+		.build();
+
+	/// `-Drocksdb.profile=tuned.json` (base, see [#load]) `-Drocksdb.zstd.level=3 -Drocksdb.zstd.bottommostLevel=9
+	/// -Drocksdb.zstd.dictBytes=16384 -Drocksdb.blob.minSize=4096`
+	public static ColumnFamilyProfile fromSystemProperties () {
+		String file = System.getProperty("rocksdb.profile");
+		ColumnFamilyProfile base;
+		try {
+			base = file == null || file.isBlank() ? DEFAULT : load(Path.of(file.trim()));
+		} catch (IOException e){
+			throw new IllegalArgumentException("fromSystemProperties: can't load -Drocksdb.profile="+ file, e);
+		}
+		var p = base
+			.withZstdLevel(Integer.getInteger("rocksdb.zstd.level", base.zstdLevel))
+			.withBottommostZstdLevel(Integer.getInteger("rocksdb.zstd.bottommostLevel", base.bottommostZstdLevel));
+		Integer dictBytes = Integer.getInteger("rocksdb.zstd.dictBytes");
+		if (dictBytes != null){ p = p.withDictionary(dictBytes); }
+		long minBlobSize = Long.getLong("rocksdb.blob.minSize", 0);
+		return minBlobSize > 0 ? p.withBlobs(minBlobSize) : p;
+	}
+
+	/// Profile saved by [#save]; missing fields, a null compression/compaction style or a zero size ⇒ error
+	/// (a profile of an older version: tune again)
+	public static ColumnFamilyProfile load (Path file) throws IOException {
+		return JSON.readValue(file.toFile(), ColumnFamilyProfile.class);
+	}
+
+	public void save (Path file) throws IOException {
+		Path dir = file.toAbsolutePath().getParent();
+		if (dir != null){ Files.createDirectories(dir); }
+		JSON.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), this);
+	}
+
+	/// Table settings differ from [#DEFAULT] ⇒ the CF needs its own block-based table config
+	boolean customTable () {
+		return blockSize != DEFAULT.blockSize || bloomBitsPerKey != DEFAULT.bloomBitsPerKey;
+	}
+
+	/// Key-value separation for values ≥ `minBlobSize` with ZSTD blob compression and blob GC
+	public ColumnFamilyProfile withBlobs (long minBlobSize) {
+		return withEnableBlobFiles(true).withMinBlobSize(minBlobSize)
+			.withBlobCompression(CompressionType.ZSTD_COMPRESSION)
+			.withEnableBlobGc(true);
+	}
+
+	/// Dictionary of `dictBytes` (16KB is typical), trained on 100× of samples (ZSTD recommendation)
+	public ColumnFamilyProfile withDictionary (int dictBytes) {
+		return withMaxDictBytes(dictBytes).withZstdMaxTrainBytes(dictBytes * 100);
+	}
+
+	/// Cheap compression on hot upper levels, strong on the last level: e.g. [NO, NO, LZ4, LZ4, ZSTD…]
+	public ColumnFamilyProfile withLevels (CompressionType... perLevel) {
+		return withCompressionPerLevel(List.of(perLevel));
+	}
+
+	/// Compression options are copied into native [ColumnFamilyOptions] ⇒ temporary [CompressionOptions] are closed at once.
+	/// `writeBufferSize` and the table config are set by [RocksDBConfig] (memory budget, shared block cache)
+	void applyTo (ColumnFamilyOptions options) {
+		options.setMaxWriteBufferNumber(maxWriteBufferNumber)
+			.setMinWriteBufferNumberToMerge(Math.max(1, Math.min(2, maxWriteBufferNumber - 1)))
+			.setLevel0FileNumCompactionTrigger(level0FileNumCompactionTrigger)
+			.setCompactionStyle(compactionStyle);
+		options.setCompressionType(compression)
+			.setBottommostCompressionType(bottommostCompression);
+		if (compressionPerLevel != null){
+			options.setCompressionPerLevel(compressionPerLevel);
+		}
+		try (val opts = new CompressionOptions().setLevel(zstdLevel).setMaxDictBytes(maxDictBytes).setZStdMaxTrainBytes(zstdMaxTrainBytes);
+				 val bottommost = new CompressionOptions().setLevel(bottommostZstdLevel).setMaxDictBytes(maxDictBytes).setZStdMaxTrainBytes(zstdMaxTrainBytes)
+						 .setEnabled(true)){
+			options.setCompressionOptions(opts)
+				.setBottommostCompressionOptions(bottommost);
+		}
+		if (enableBlobFiles){
+			options.setEnableBlobFiles(true)
+				.setMinBlobSize(minBlobSize)
+				.setBlobFileSize(256L * 1024 * 1024)
+				.setBlobCompressionType(blobCompression)
+				.setEnableBlobGarbageCollection(enableBlobGc)
+				.setBlobGarbageCollectionAgeCutoff(blobGcAgeCutoff);
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package examples.rocksdb;
+
+import examples.MagicUtils;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/// Durability per write, by data importance, instead of one setting for everything (`setUseFsync(false)` only picks fdatasync over fsync):
+///
+/// - `NONE` no WAL: lost on a crash until its memtable is flushed (bulk loads, caches, derived data)
+/// - `WAL` WAL in the OS page cache: survives a process crash, not a power loss
+/// - `INTERVAL` WAL + background `SyncWAL` every `syncInterval` (like `sync_interval: "5s"` of NATS): a power loss costs ≤ one interval
+/// - `SYNC` fsync before the write returns; concurrent writers share one fsync (RocksDB write group = group commit)
+///
+/// Every write returns a sequence number ≥ its last record (`SYNC`: the one its fsync is known to cover, already durable on return;
+/// with concurrent writers it can be below the write's own last record). [#durableSequence]: all WAL records up to it are on disk
+/// (`NONE` writes consume sequence numbers too, but become durable only by a flush). [#awaitDurable] = ack after sync.
+/// One [WriteOptions] per level, created once and shared (RocksDB only reads them), not `new WriteOptions()` per batch.
+@Slf4j
+public final class DurableWriter implements AutoCloseable {
+	public enum Durability {
+		NONE, WAL, INTERVAL, SYNC;
+
+		/// `-Drocksdb.durability=WAL`
+		public static Durability fromSystemProperties () {
+			return valueOf(System.getProperty("rocksdb.durability", WAL.name()).toUpperCase(Locale.ROOT));
+		}
+	}
+
+	public record Stats (long[] writes, long syncs, double avgSyncMicros, long durableSequence, long latestSequence) {
+		@Override
+		public String toString () {
+			val sb = new StringBuilder("DurableWriter: ");
+			for (val d : Durability.values()){ sb.append(d).append('=').append(writes[d.ordinal()]).append(' '); }
+			return sb.append(String.format(Locale.ROOT, "| %d background syncs ≈ %.0f µs | durable %d of %d (lag %d)",
+				syncs, avgSyncMicros, durableSequence, latestSequence, latestSequence - durableSequence)).toString();
+		}
+	}
+
+	private final RocksDB db;
+	private final Duration syncInterval;
+	private final WriteOptions[] writeOptions = new WriteOptions[Durability.values().length];
+	private final AtomicLong durable = new AtomicLong();
+	/// highest sequence number somebody needs synced (INTERVAL writes, awaitDurable)
+	private final AtomicLong wanted = new AtomicLong();
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition advanced = lock.newCondition();
+	private final AtomicInteger waiters = new AtomicInteger();
+	private final LongAdder[] writes = new LongAdder[Durability.values().length];
+	private final LongAdder syncs = new LongAdder(), syncNanos = new LongAdder();
+	private final AtomicBoolean closed = new AtomicBoolean();
+	private final Thread syncer;
+
+	/// `-Drocksdb.wal.syncIntervalMs=5000` → [RocksDBConfig#writer]
+	public DurableWriter (RocksDB db, Duration syncInterval) {
+		if (!syncInterval.isPositive())
+				throw new IllegalArgumentException("DurableWriter: syncInterval must be > 0, but "+ syncInterval);
+		this.db = db;
+		this.syncInterval = syncInterval;
+		for (val d : Durability.values()){
+			writeOptions[d.ordinal()] = new WriteOptions()
+				.setDisableWAL(d == Durability.NONE)
+				.setSync(d == Durability.SYNC);
+			writes[d.ordinal()] = new LongAdder();
+		}
+		durable.set(db.getLatestSequenceNumber());// after open: recovered = what was durable
+		// platform thread: SyncWAL is a blocking JNI call (fsync), it would pin a virtual carrier
+		syncer = Thread.ofPlatform().daemon().name("DurableWriter").start(()->{
+			while (!closed.get()){
+				try {
+					Thread.sleep(syncInterval);
+				} catch (InterruptedException e){
+					break;// close
+				}
+				try {
+					if (wanted.get() > durable.get()){ sync(); }
+				} catch (Throwable e){
+					log.warn("syncer: SyncWAL failed, will retry in {}", syncInterval, e);
+				}
+			}
+		});
+	}//new
+
+	public Duration syncInterval (){ return syncInterval; }
+
+	/// @return sequence number ≥ the last record of this batch (`SYNC`: see the class doc): durable once [#durableSequence] reaches it
+	public long write (Durability durability, WriteBatch batch) throws RocksDBException {
+		long before = durability == Durability.SYNC ? db.getLatestSequenceNumber() : 0;
+		db.write(writeOptions[durability.ordinal()], batch);
+		return written(durability, before, batch.count());
+	}
+
+	/// @return sequence number ≥ this record: durable once [#durableSequence] reaches it
+	public long put (Durability durability, ColumnFamilyHandle handle, byte[] key, byte[] value) throws RocksDBException {
+		long before = durability == Durability.SYNC ? db.getLatestSequenceNumber() : 0;
+		db.put(handle, writeOptions[durability.ordinal()], key, value);
+		return written(durability, before, 1);
+	}
+
+	public long delete (Durability durability, ColumnFamilyHandle handle, byte[] key) throws RocksDBException {
+		long before = durability == Durability.SYNC ? db.getLatestSequenceNumber() : 0;
+		db.delete(handle, writeOptions[durability.ordinal()], key);
+		return written(durability, before, 1);
+	}
+
+	private long written (Durability durability, long before, int count) {
+		writes[durability.ordinal()].increment();
+		if (durability == Durability.SYNC){
+			// WAL order = sequence order: our records come after everything ≤ before, the fsync covered them up to our last ≥ before + count.
+			// Not getLatestSequenceNumber: it may already include later writers the fsync didn't cover ⇒ return what durable reached
+			long synced = before + count;
+			advance(synced);
+			return synced;
+		}
+		long seq = db.getLatestSequenceNumber();
+		if (durability == Durability.INTERVAL){ wanted.accumulateAndGet(seq, Math::max); }
+		return seq;
+	}
+
+	/// fsync the WAL now (also what the background syncer does)
+	/// @return [#durableSequence]
+	public long sync () throws RocksDBException {
+		long upTo = db.getLatestSequenceNumber();// everything written so far is in the WAL file
+		long t = System.nanoTime();
+		db.syncWal();
+		syncNanos.add(System.nanoTime() - t);
+		syncs.increment();
+		advance(upTo);
+		return durable.get();
+	}
+
+	private void advance (long upTo) {
+		if (durable.accumulateAndGet(upTo, Math::max) == upTo && waiters.get() > 0){
+			lock.lock();
+			try {
+				advanced.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/// All WAL records ≤ this sequence number survive a power loss
+	public long durableSequence (){ return durable.get(); }
+
+	/// Waits for the background syncer to cover `sequence` (a write of any level but `NONE`)
+	/// @return false on timeout
+	public boolean awaitDurable (long sequence, Duration timeout) throws InterruptedException {
+		if (durable.get() >= sequence){ return true; }
+		wanted.accumulateAndGet(sequence, Math::max);
+		long nanos = timeout.toNanos();
+		waiters.incrementAndGet();
+		lock.lock();
+		try {
+			while (durable.get() < sequence){
+				if (nanos <= 0){ return false; }
+				nanos = advanced.awaitNanos(nanos);
+			}
+			return true;
+		} finally {
+			lock.unlock();
+			waiters.decrementAndGet();
+		}
+	}
+
+	public Stats stats () {
+		long n = syncs.sum();
+		return new Stats(Arrays.stream(writes).mapToLong(LongAdder::sum).toArray(), n,
+			n > 0 ? syncNanos.sum() / 1000.0 / n : 0, durable.get(), db.getLatestSequenceNumber());
+	}
+
+	/// Stops the syncer and syncs what it still owed; the db stays open
+	@Override
+	public void close () {
+		if (!closed.compareAndSet(false, true)){ return; }
+		syncer.interrupt();
+		try {
+			syncer.join(TimeUnit.SECONDS.toMillis(10));
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		try {
+			if (wanted.get() > durable.get()){ sync(); }
+		} catch (RocksDBException e){
+			log.warn("close: last SyncWAL failed", e);
+		}
+		for (val wo : writeOptions){ MagicUtils.close(wo); }
+		log.info("{}", stats());
+	}
+
+	@Override
+	public String toString (){ return stats().toString(); }
+}
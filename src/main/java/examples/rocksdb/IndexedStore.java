@@ -0,0 +1,161 @@
+package examples.rocksdb;
+
+import com.google.common.util.concurrent.Striped;
+import lombok.val;
+import org.jspecify.annotations.Nullable;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+import java.io.ByteArrayOutputStream;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+
+/// Secondary indexes over a primary column family. Every index lives in its own companion CF `primary#index`;
+/// index entries are written in the same [WriteBatch] as the primary value (atomic), the entries of the old value are removed.
+///
+/// Index entry key = escaped(indexKey) + primaryKey, value is empty. Escaping keeps bytewise order of index keys:
+/// `0x00` → `0x00 0xFF`, end of index key → `0x00 0x01` ⇒ a range of index keys is one iterator range.
+///
+/// Primary CF should be a runtime CF ([RocksDBConfig#createColumnFamily], no TTL): TTL would expire values, but not index entries.
+public final class IndexedStore {
+	static final char SEPARATOR = '#';
+
+	/// @param extractor value → index key; `null` = the value is not indexed
+	public record Index (String name, Function<byte[], byte @Nullable []> extractor) {}
+
+	private final RocksDBConfig conf;
+	private final ColumnFamilyHandle primary;
+	private final Map<String,Index> indexes = new LinkedHashMap<>();
+	private final Map<String,ColumnFamilyHandle> indexHandles = new LinkedHashMap<>();
+	/// read old value → write batch must not interleave for the same key
+	private final Striped<Lock> locks = Striped.lock(1024);
+
+	public IndexedStore (RocksDBConfig conf, String primaryColumnFamily, List<Index> indexList) throws RocksDBException {
+		this.conf = conf;
+		primary = conf.createColumnFamily(primaryColumnFamily);
+		for (Index index : indexList){
+			indexes.put(index.name(), index);
+			indexHandles.put(index.name(), conf.createColumnFamily(primaryColumnFamily + SEPARATOR + index.name()));
+		}
+	}//new
+
+	public byte @Nullable [] get (byte[] key) throws RocksDBException {
+		return conf.rocksDB().get(primary, key);
+	}
+
+	/// Insert/update value and its index entries atomically
+	public void put (byte[] key, byte[] value) throws RocksDBException {
+		write(key, value);
+	}
+
+	public void delete (byte[] key) throws RocksDBException {
+		write(key, null);
+	}
+
+	private void write (byte[] key, byte @Nullable [] value) throws RocksDBException {
+		Lock lock = locks.get(Arrays.hashCode(key));
+		lock.lock();
+		try (val batch = new WriteBatch(); val wo = new WriteOptions()){
+			byte[] old = conf.rocksDB().get(primary, key);
+			for (Index index : indexes.values()){
+				byte[] oldIndexKey = old != null ? index.extractor().apply(old) : null;
+				byte[] newIndexKey = value != null ? index.extractor().apply(value) : null;
+				if (Arrays.equals(oldIndexKey, newIndexKey)){ continue; }// index entry is still valid
+				ColumnFamilyHandle h = indexHandles.get(index.name());
+				if (oldIndexKey != null){ batch.delete(h, entryKey(oldIndexKey, key)); }
+				if (newIndexKey != null){ batch.put(h, entryKey(newIndexKey, key), EMPTY); }
+			}
+			if (value != null)
+					batch.put(primary, key, value);
+			else
+					batch.delete(primary, key);
+			conf.rocksDB().write(wo, batch);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	static final byte[] EMPTY = new byte[0];
+
+	/// Primary keys with `from ≤ indexKey < to` in index key order; `to == null` ⇒ up to the end
+	public List<byte[]> primaryKeys (String indexName, byte[] from, byte @Nullable [] to, int limit) {
+		ColumnFamilyHandle h = indexHandles.get(indexName);
+		if (h == null)
+				throw new IllegalArgumentException("primaryKeys: index NOT found: "+ indexName);
+		byte[] upper = to != null ? escape(to) : null;
+		val keys = new ArrayList<byte[]>();
+		try (val it = conf.rocksDB().newIterator(h)){
+			for (it.seek(escape(from)); it.isValid() && keys.size() < limit; it.next()){
+				byte[] entry = it.key();
+				if (upper != null && Arrays.compareUnsigned(entry, upper) >= 0){ break; }
+				keys.add(primaryKey(entry));
+			}
+		}
+		return keys;
+	}
+
+	/// Primary keys with exactly this index key
+	public List<byte[]> primaryKeys (String indexName, byte[] indexKey, int limit) {
+		return primaryKeys(indexName, indexKey, successor(indexKey), limit);
+	}
+
+	/// Index range joined to the values with one `multiGet`
+	public List<Map.Entry<byte[],byte[]>> values (String indexName, byte[] from, byte @Nullable [] to, int limit) throws RocksDBException {
+		List<byte[]> keys = primaryKeys(indexName, from, to, limit);
+		if (keys.isEmpty()){ return List.of(); }
+		List<byte[]> values = conf.rocksDB().multiGetAsList(Collections.nCopies(keys.size(), primary), keys);
+		val list = new ArrayList<Map.Entry<byte[],byte[]>>(keys.size());
+		for (int i = 0; i < keys.size(); i++){
+			byte[] v = values.get(i);
+			if (v != null){ list.add(new SimpleImmutableEntry<>(keys.get(i), v)); }
+		}
+		return list;
+	}
+
+	public List<Map.Entry<byte[],byte[]>> values (String indexName, byte[] indexKey, int limit) throws RocksDBException {
+		return values(indexName, indexKey, successor(indexKey), limit);
+	}
+
+	/// exclusive upper bound of exactly `indexKey`: `indexKey + 0x00` (escaped `0x00 0xFF`) sorts right after `indexKey + terminator + pk`
+	static byte[] successor (byte[] indexKey) {
+		return Arrays.copyOf(indexKey, indexKey.length + 1);
+	}
+
+	/// escaped index key with terminator: order preserving
+	static byte[] escape (byte[] indexKey) {
+		val out = new ByteArrayOutputStream(indexKey.length + 4);
+		for (byte b : indexKey){
+			out.write(b);
+			if (b == 0){ out.write(0xFF); }
+		}
+		out.write(0);
+		out.write(1);
+		return out.toByteArray();
+	}
+
+	static byte[] entryKey (byte[] indexKey, byte[] primaryKey) {
+		byte[] e = escape(indexKey);
+		byte[] entry = Arrays.copyOf(e, e.length + primaryKey.length);
+		System.arraycopy(primaryKey, 0, entry, e.length, primaryKey.length);
+		return entry;
+	}
+
+	static byte[] primaryKey (byte[] entryKey) {
+		for (int i = 0; i < entryKey.length - 1; i++){
+			if (entryKey[i] == 0){
+				if (entryKey[i + 1] == 1){ return Arrays.copyOfRange(entryKey, i + 2, entryKey.length); }// terminator
+				i++;// escaped 0x00 0xFF
+			}
+		}
+		throw new IllegalStateException("primaryKey: corrupted index entry: "+ Arrays.toString(entryKey));
+	}
+}
@@ -0,0 +1,422 @@
+package examples.rocksdb;
+
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.jspecify.annotations.Nullable;
+import org.rocksdb.ReadOptions;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static examples.MagicUtils.now;
+
+/// Immutable single-file key → value snapshot for read-only reference data (rebuilt e.g. once a day), served from
+/// memory-mapped file: no JNI crossing, no block cache, no allocation per lookup ([#get(byte[], byte[])]).
+///
+/// Index = minimal perfect hash (BBHash, γ=2: ≈3.7 bits/key): level `i` is a bit set of `2 × keys left`;
+/// a key goes to the first level where its position is not shared with another key; rank of that bit = slot ∈ [0, n).
+/// Slot → record offset (8 bytes) → `keyLength, valueLength, key, value`. Unknown keys map to some slot too ⇒ the stored key
+/// is compared. Lookup ≈ 3-4 cache misses: hash, level bit (+ rank block), offset, record.
+///
+/// ```
+/// magic, version, levels, count, seed, totalBits, bitsOffset, ranksOffset, offsetsOffset, recordsOffset, levelBits[levels]
+/// bits[totalBits/64], ranks[(words+7)/8] (ones before every 512 bits), offsets[count], records…
+/// ```
+/// (big-endian like [DataOutputStream]). Mapped in ≤ 1 GB chunks ([MappedByteBuffer]; `MemorySegment` is still preview in Java 21);
+/// the mapping is released by GC ⇒ a replaced snapshot ([Live#swap]) stays valid for readers that still hold it.
+@Slf4j
+public final class LookupSnapshot {
+	static final long MAGIC = 0x4d50484c4f4f4b31L;// MPHLOOK1
+	static final int VERSION = 1;
+	static final int MAX_LEVELS = 64;
+	static final double GAMMA = 2.0;
+	static final int CHUNK_BITS = 30;
+	static final long CHUNK = 1L << CHUNK_BITS;
+	private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+	private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private final Path path;
+	private final MappedByteBuffer[] chunks;
+	private final long count, seed, bitsOffset, ranksOffset, offsetsOffset;
+	/// first bit and size (bits) of every level
+	private final long[] levelStart, levelBits;
+
+	private LookupSnapshot (Path path) throws IOException {
+		this.path = path;
+		try (val ch = FileChannel.open(path, StandardOpenOption.READ)){
+			long size = ch.size();
+			chunks = new MappedByteBuffer[(int) ((size + CHUNK - 1) >>> CHUNK_BITS)];
+			for (int i = 0; i < chunks.length; i++){
+				long from = (long) i << CHUNK_BITS;
+				chunks[i] = ch.map(FileChannel.MapMode.READ_ONLY, from, Math.min(CHUNK, size - from));
+			}
+		}
+		if (chunks.length == 0 || getLong(0) != MAGIC)
+				throw new IOException("LookupSnapshot: not a snapshot file: "+ path);
+		if (getInt(8) != VERSION)
+				throw new IOException("LookupSnapshot: unsupported version "+ getInt(8) +" of "+ path);
+		int levels = getInt(12);
+		count = getLong(16);
+		seed = getLong(24);
+		bitsOffset = getLong(40);
+		ranksOffset = getLong(48);
+		offsetsOffset = getLong(56);
+		levelStart = new long[levels];
+		levelBits = new long[levels];
+		long start = 0;
+		for (int i = 0; i < levels; i++){
+			levelBits[i] = getLong(72 + 8L * i);
+			levelStart[i] = start;
+			start += levelBits[i];
+		}
+	}//new
+
+	public static LookupSnapshot open (Path file) throws IOException {
+		long t = now();
+		val s = new LookupSnapshot(file);
+		log.info("LookupSnapshot {} opened in {} ms: {} keys, {} levels", file, now() - t, s.count, s.levelBits.length);
+		return s;
+	}
+
+	public Path path (){ return path; }
+
+	public long count (){ return count; }
+
+	/// Load all pages into the page cache (first lookups don't wait for the disk)
+	public LookupSnapshot load () {
+		for (val c : chunks){ c.load(); }
+		return this;
+	}
+
+	/// @return file position of the key's record or -1
+	public long find (byte[] key) {
+		long h = hash(key, seed);
+		for (int level = 0; level < levelBits.length; level++){
+			long bit = levelStart[level] + Math.unsignedMultiplyHigh(mix(h + (level + 1) * GOLDEN), levelBits[level]);
+			long word = getLong(bitsOffset + (bit >>> 6) * 8);
+			if ((word & (1L << bit)) != 0){
+				long record = getLong(offsetsOffset + rank(bit, word) * 8);
+				return keyEquals(record, key) ? record : -1;
+			}
+		}
+		return -1;
+	}
+
+	/// ones before `bit`: block count + whole words of the block + the word itself
+	private long rank (long bit, long word) {
+		long w = bit >>> 6;
+		long r = getLong(ranksOffset + (w >>> 3) * 8);
+		for (long i = w & ~7L; i < w; i++){
+			r += Long.bitCount(getLong(bitsOffset + i * 8));
+		}
+		return r + Long.bitCount(word & ((1L << bit) - 1));
+	}
+
+	private boolean keyEquals (long record, byte[] key) {
+		if (getInt(record) != key.length){ return false; }
+		long p = record + 8;
+		for (int i = 0; i < key.length; i++){
+			if (getByte(p + i) != key[i]){ return false; }
+		}
+		return true;
+	}
+
+	/// Zero-allocation lookup: copies up to `dst.length` bytes of the value
+	/// @return value length (can be > dst.length) or -1 if the key is absent
+	public int get (byte[] key, byte[] dst) {
+		long record = find(key);
+		if (record < 0){ return -1; }
+		int len = getInt(record + 4);
+		copy(record + 8 + getInt(record), dst, Math.min(len, dst.length));
+		return len;
+	}
+
+	public byte @Nullable [] get (byte[] key) {
+		long record = find(key);
+		if (record < 0){ return null; }
+		byte[] value = new byte[getInt(record + 4)];
+		copy(record + 8 + getInt(record), value, value.length);
+		return value;
+	}
+
+	//region mapped file access: absolute reads (thread-safe), slow path only across a chunk boundary
+	private byte getByte (long pos) {
+		return chunks[(int) (pos >>> CHUNK_BITS)].get((int) (pos & (CHUNK - 1)));
+	}
+
+	private int getInt (long pos) {
+		int off = (int) (pos & (CHUNK - 1));
+		if (off <= CHUNK - 4){ return chunks[(int) (pos >>> CHUNK_BITS)].getInt(off); }
+		int v = 0;
+		for (int i = 0; i < 4; i++){ v = (v << 8) | (getByte(pos + i) & 0xFF); }
+		return v;
+	}
+
+	/// longs of the header and index are 8-aligned ⇒ never cross a chunk
+	private long getLong (long pos) {
+		return chunks[(int) (pos >>> CHUNK_BITS)].getLong((int) (pos & (CHUNK - 1)));
+	}
+
+	private void copy (long pos, byte[] dst, int len) {
+		for (int done = 0; done < len; ){
+			int off = (int) ((pos + done) & (CHUNK - 1));
+			int n = (int) Math.min(len - done, CHUNK - off);
+			chunks[(int) ((pos + done) >>> CHUNK_BITS)].get(off, dst, done, n);
+			done += n;
+		}
+	}
+	//endregion
+
+	static long mix (long h) {// murmur3 fmix64
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		return h ^ (h >>> 33);
+	}
+
+	/// 64-bit hash of the whole key, 8 bytes per step; level hashes are derived from it (also the keydir hash of [examples.bitcask.BitcaskStore])
+	public static long hash (byte[] key, long seed) {
+		long h = seed ^ (key.length * GOLDEN);
+		int i = 0;
+		for (; i + 8 <= key.length; i += 8){
+			h = Long.rotateLeft(h ^ mix((long) LONG_LE.get(key, i)), 27) * GOLDEN + 0x52dce729;
+		}
+		long tail = 0;
+		for (int j = key.length - 1; j >= i; j--){
+			tail = (tail << 8) | (key[j] & 0xFF);
+		}
+		return mix(h ^ mix(tail ^ GOLDEN));
+	}
+
+	/// Column family → snapshot file (consistent: RocksDB snapshot); written to `file.tmp`, then atomically renamed
+	/// @return number of keys
+	public static long export (RocksDBConfig conf, String columnFamilyName, Path file) throws IOException, RocksDBException {
+		val db = conf.rocksDB();
+		val snapshot = db.getSnapshot();
+		try (val ro = new ReadOptions().setSnapshot(snapshot).setFillCache(false);
+				 val it = db.newIterator(conf.handle(columnFamilyName), ro)){
+			it.seekToFirst();
+			return write(file, new Iterator<>(){
+				@Override public boolean hasNext (){ return it.isValid(); }
+
+				@Override public Map.Entry<byte[],byte[]> next () {
+					if (!it.isValid()){ throw new NoSuchElementException(); }
+					val e = new SimpleImmutableEntry<>(it.key(), it.value());
+					it.next();
+					return e;
+				}
+			}, it);
+		} finally {
+			db.releaseSnapshot(snapshot);
+		}
+	}
+
+	/// Any source of unique keys → snapshot file
+	public static long write (Path file, Iterator<? extends Map.Entry<byte[],byte[]>> entries) throws IOException, RocksDBException {
+		return write(file, entries, null);
+	}
+
+	private static long write (Path file, Iterator<? extends Map.Entry<byte[],byte[]>> entries, @Nullable RocksIterator source)
+			throws IOException, RocksDBException {
+		long t = now();
+		Path dir = file.toAbsolutePath().getParent();
+		Files.createDirectories(dir);
+		Path records = Files.createTempFile(dir, file.getFileName().toString(), ".records");
+		Path tmp = dir.resolve(file.getFileName() + ".tmp");
+		try {
+			// 1. records in source order, relative positions
+			long[] positions = new long[1024];
+			int n = 0;
+			long pos = 0;
+			try (val out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(records), 1 << 16))){
+				while (entries.hasNext()){
+					val e = entries.next();
+					if (n == positions.length){ positions = Arrays.copyOf(positions, n * 2); }
+					positions[n++] = pos;
+					out.writeInt(e.getKey().length);
+					out.writeInt(e.getValue().length);
+					out.write(e.getKey());
+					out.write(e.getValue());
+					pos += 8 + e.getKey().length + e.getValue().length;
+				}
+			}
+			if (source != null){ source.status(); }// iteration stopped by an error?
+			// 2. minimal perfect hash (new seed if two keys share the 64-bit hash)
+			Mph mph = null;
+			long seed = 0;
+			for (int attempt = 0; mph == null; attempt++){
+				if (attempt == 3)
+						throw new IllegalArgumentException("write: can't build a perfect hash: duplicate keys? "+ file);
+				seed = mix(GOLDEN * (attempt + 1));
+				mph = Mph.build(hashes(records, n, seed));
+			}
+			// 3. header, index, records
+			long bitsOffset = 72 + 8L * mph.levelBits.size();
+			long words = mph.bits.length;
+			long ranksOffset = bitsOffset + words * 8;
+			long offsetsOffset = ranksOffset + ((words + 7) >>> 3) * 8;
+			long recordsOffset = offsetsOffset + 8L * n;
+			long[] offsets = new long[n];
+			for (int i = 0; i < n; i++){
+				offsets[(int) mph.slot[i]] = recordsOffset + positions[i];
+			}
+			try (val out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))){
+				out.writeLong(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(mph.levelBits.size());
+				out.writeLong(n);
+				out.writeLong(seed);
+				out.writeLong(words * 64);
+				out.writeLong(bitsOffset);
+				out.writeLong(ranksOffset);
+				out.writeLong(offsetsOffset);
+				out.writeLong(recordsOffset);
+				for (long bits : mph.levelBits){ out.writeLong(bits); }
+				for (long w : mph.bits){ out.writeLong(w); }
+				long ones = 0;
+				for (int i = 0; i < words; i++){
+					if ((i & 7) == 0){ out.writeLong(ones); }
+					ones += Long.bitCount(mph.bits[i]);
+				}
+				for (long o : offsets){ out.writeLong(o); }
+				Files.copy(records, out);
+			}
+			try (val ch = FileChannel.open(tmp, StandardOpenOption.WRITE)){
+				ch.force(true);
+			}
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			log.info("LookupSnapshot {} written in {} ms: {} keys, {} levels, hash {} bits/key + 64-bit offsets", file, now() - t, n,
+				mph.levelBits.size(), n == 0 ? 0 : String.format(Locale.ENGLISH, "%.2f", (offsetsOffset - bitsOffset) * 8.0 / n));
+			return n;
+		} finally {
+			Files.deleteIfExists(records);
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	private static long[] hashes (Path records, int n, long seed) throws IOException {
+		long[] hashes = new long[n];
+		try (val in = new DataInputStream(new BufferedInputStream(Files.newInputStream(records), 1 << 16))){
+			for (int i = 0; i < n; i++){
+				int keyLength = in.readInt();
+				int valueLength = in.readInt();
+				byte[] key = in.readNBytes(keyLength);
+				hashes[i] = hash(key, seed);
+				in.skipNBytes(valueLength);
+			}
+		}
+		return hashes;
+	}
+
+	/// BBHash construction over key hashes: levels of `γ × keys left` bits
+	/// @param slot key index → slot (rank of its bit)
+	private record Mph (ArrayList<Long> levelBits, long[] bits, long[] slot) {
+		static @Nullable Mph build (long[] hashes) {
+			int n = hashes.length;
+			val levelBits = new ArrayList<Long>();
+			val levelWords = new ArrayList<long[]>();
+			long[] bitOf = new long[n];// global bit of every key
+			int[] left = new int[n];
+			for (int i = 0; i < n; i++){ left[i] = i; }
+			int leftCount = n;
+			long start = 0;
+			for (int level = 0; leftCount > 0; level++){
+				if (level == MAX_LEVELS){ return null; }// equal hashes never separate
+				long size = Math.max(64, ((long) Math.ceil(leftCount * GAMMA) + 63) & ~63L);
+				long[] taken = new long[(int) (size >>> 6)];
+				long[] collision = new long[taken.length];
+				long salt = (level + 1) * GOLDEN;
+				for (int j = 0; j < leftCount; j++){
+					long b = Math.unsignedMultiplyHigh(mix(hashes[left[j]] + salt), size);
+					int w = (int) (b >>> 6);
+					long m = 1L << b;
+					if ((collision[w] & m) != 0){ continue; }
+					if ((taken[w] & m) != 0){ collision[w] |= m; } else { taken[w] |= m; }
+				}
+				for (int w = 0; w < taken.length; w++){ taken[w] &= ~collision[w]; }
+				int next = 0;
+				for (int j = 0; j < leftCount; j++){
+					long b = Math.unsignedMultiplyHigh(mix(hashes[left[j]] + salt), size);
+					if ((taken[(int) (b >>> 6)] & (1L << b)) != 0){
+						bitOf[left[j]] = start + b;
+					} else {
+						left[next++] = left[j];
+					}
+				}
+				leftCount = next;
+				levelBits.add(size);
+				levelWords.add(taken);
+				start += size;
+			}
+			long[] bits = new long[Math.toIntExact(start >>> 6)];
+			int w = 0;
+			for (long[] words : levelWords){
+				System.arraycopy(words, 0, bits, w, words.length);
+				w += words.length;
+			}
+			// rank of every set bit: prefix popcounts per word
+			long[] before = new long[bits.length];
+			long ones = 0;
+			for (int i = 0; i < bits.length; i++){
+				before[i] = ones;
+				ones += Long.bitCount(bits[i]);
+			}
+			long[] slot = new long[n];
+			for (int i = 0; i < n; i++){
+				long b = bitOf[i];
+				slot[i] = before[(int) (b >>> 6)] + Long.bitCount(bits[(int) (b >>> 6)] & ((1L << b) - 1));
+			}
+			return new Mph(levelBits, bits, slot);
+		}
+	}
+
+	/// The snapshot readers use now; [#swap] replaces it atomically (a new file built next to the old one, see [#refresh])
+	public static final class Live {
+		private volatile LookupSnapshot current;
+
+		public Live (LookupSnapshot initial) {
+			this.current = initial;
+		}//new
+
+		public LookupSnapshot current (){ return current; }
+
+		public int get (byte[] key, byte[] dst){ return current.get(key, dst); }
+
+		public byte @Nullable [] get (byte[] key){ return current.get(key); }
+
+		/// @return the previous snapshot (still usable: its mapping lives until it's garbage)
+		public LookupSnapshot swap (LookupSnapshot next) {
+			val old = current;
+			current = next;
+			return old;
+		}
+
+		/// Export the column family into `file` (replaces the old file: the old inode stays mapped) and swap
+		public LookupSnapshot refresh (RocksDBConfig conf, String columnFamilyName, Path file) throws IOException, RocksDBException {
+			export(conf, columnFamilyName, file);
+			return swap(open(file).load());
+		}
+	}
+}
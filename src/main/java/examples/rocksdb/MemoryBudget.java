@@ -0,0 +1,94 @@
+package examples.rocksdb;
+
+import examples.MagicUtils;
+import lombok.val;
+import org.rocksdb.Cache;
+import org.rocksdb.HyperClockCache;
+import org.rocksdb.LRUCache;
+import org.rocksdb.MemoryUsageType;
+import org.rocksdb.MemoryUtil;
+import org.rocksdb.RocksDB;
+import org.rocksdb.WriteBufferManager;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/// One native memory budget for the whole RocksDB instance (or several instances: share one budget).
+///
+/// Block cache, memtables (charged into the same cache by [WriteBufferManager]) and
+/// index/filter blocks (cached with high priority) all live inside `capacity` ⇒ RSS is predictable.
+///
+/// `-Drocksdb.memory=1g` total budget, `-Drocksdb.memtableRatio=0.25` part of it for memtables,
+/// `-Drocksdb.cache=lru|hyperClock`, `-Drocksdb.memory.strict=false`.
+///
+/// Strict (opt-in) = a hard cap: a cache insert fails instead of growing past `capacity`. Memtables are charged to the same
+/// cache ⇒ under memory pressure block reads and iterators fail with `Incomplete`: memory pressure becomes read errors.
+/// Default (not strict): the cache may overshoot a little while entries are pinned, reads never fail because of it.
+///
+/// @see <a href="https://github.com/facebook/rocksdb/wiki/Write-Buffer-Manager">Write Buffer Manager</a>
+public final class MemoryBudget implements AutoCloseable {
+	public static final long DEF_CAPACITY = 1024L * 1024 * 1024;// 1GB
+	public static final double DEF_MEMTABLE_RATIO = 0.25;
+
+	private final long capacity;
+	private final long writeBufferLimit;
+	private final Cache cache;
+	private final WriteBufferManager writeBufferManager;
+
+	public MemoryBudget (long capacity, double memtableRatio, boolean hyperClock, boolean strictCapacityLimit) {
+		if (capacity <= 0 || memtableRatio <= 0 || memtableRatio >= 1)
+				throw new IllegalArgumentException("MemoryBudget: capacity > 0 and 0 < memtableRatio < 1, but "+ capacity +", "+ memtableRatio);
+		this.capacity = capacity;
+		writeBufferLimit = (long)(capacity * memtableRatio);
+		cache = hyperClock
+			? new HyperClockCache(capacity, 0/*auto-resize*/, -1/*auto shard bits*/, strictCapacityLimit)
+			: new LRUCache(capacity, -1/*auto shard bits*/, strictCapacityLimit, 0.5/*high priority pool: index & filter*/);
+		writeBufferManager = new WriteBufferManager(writeBufferLimit, cache, true/*allowStall: writers wait instead of overshooting*/);
+	}//new
+
+	public static MemoryBudget fromSystemProperties () {
+		return new MemoryBudget(
+			MagicUtils.parseSize(System.getProperty("rocksdb.memory"), DEF_CAPACITY),
+			Double.parseDouble(System.getProperty("rocksdb.memtableRatio", Double.toString(DEF_MEMTABLE_RATIO))),
+			"hyperClock".equalsIgnoreCase(System.getProperty("rocksdb.cache")),
+			Boolean.getBoolean("rocksdb.memory.strict")
+		);
+	}
+
+	public long capacity (){ return capacity; }
+
+	public long writeBufferLimit (){ return writeBufferLimit; }
+
+	public Cache cache (){ return cache; }
+
+	public WriteBufferManager writeBufferManager (){ return writeBufferManager; }
+
+	/// Per CF memtable size: never more than the half of the whole memtable budget (2 memtables ⇒ flush, not stall)
+	public long writeBufferSize (long wanted) {
+		return Math.max(1024 * 1024, Math.min(wanted, writeBufferLimit / 2));
+	}
+
+	public Map<MemoryUsageType,Long> usage (List<RocksDB> dbs) {
+		val m = new EnumMap<MemoryUsageType,Long>(MemoryUsageType.class);
+		m.putAll(MemoryUtil.getApproximateMemoryUsageByType(dbs, Set.of(cache)));
+		return m;
+	}
+
+	/// memtables are charged into the cache ⇒ kCacheTotal already includes them; table readers (outside of index/filter) are extra
+	public String report (List<RocksDB> dbs) {
+		val u = usage(dbs);
+		return String.format(Locale.ENGLISH, "budget=%dMB (memtables ≤ %dMB), cache: usage=%dMB pinned=%dMB, memtables=%dMB unflushed=%dMB, tableReaders=%dMB",
+			capacity >> 20, writeBufferLimit >> 20, cache.getUsage() >> 20, cache.getPinnedUsage() >> 20,
+			u.getOrDefault(MemoryUsageType.kMemTableTotal, 0L) >> 20, u.getOrDefault(MemoryUsageType.kMemTableUnFlushed, 0L) >> 20,
+			u.getOrDefault(MemoryUsageType.kTableReadersTotal, 0L) >> 20);
+	}
+
+	@Override
+	public void close () {
+		MagicUtils.close(writeBufferManager);
+		MagicUtils.close(cache);
+	}
+}
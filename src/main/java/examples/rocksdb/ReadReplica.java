@@ -0,0 +1,240 @@
+package examples.rocksdb;
+
+import com.google.common.primitives.Longs;
+import examples.MagicUtils;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.jspecify.annotations.Nullable;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.DBOptions;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static examples.MagicUtils.now;
+import static java.nio.charset.StandardCharsets.*;
+
+/// Read replica of a [RocksDBConfig] database in another process (same host, same files): `RocksDB.openAsSecondary`
+/// with its own block cache ⇒ readers don't go through the writer JVM. A platform thread calls `tryCatchUpWithPrimary`
+/// every `-Drocksdb.replica.catchUpMs=1000` (replays new MANIFEST entries and the WAL tail).
+///
+/// Lag: the primary rewrites [#HEARTBEAT_KEY] (current millis) every period ([#heartbeat]), the replica compares it with its clock.
+///
+/// - the primary is a `TtlDB`: every value has a 4-byte timestamp suffix ⇒ [#get] strips it (`ttlFormat`)
+/// - column families created on the primary after the replica opened are invisible until the replica is reopened
+/// - the primary must keep WAL files until replicas have read them (default: obsolete WAL is deleted after flush ⇒ the replica
+///   catches up from the new SST files instead, it's fine)
+///
+/// ```
+/// java -Drocksdb.path=/data/primary -Drocksdb.replica.path=/tmp/replica1 -cp … examples.rocksdb.ReadReplica
+/// ```
+@Slf4j
+public final class ReadReplica implements AutoCloseable {
+	static {
+		RocksDB.loadLibrary();
+	}
+	/// in the default CF of the primary; the leading \0 keeps it away from readable keys
+	public static final byte[] HEARTBEAT_KEY = "\0replica.heartbeat".getBytes(ISO_8859_1);
+	/// `DBWithTTLImpl::kTSLength`
+	static final int TTL_SUFFIX = 4;
+
+	private final Path primaryPath;
+	private final MemoryBudget budget = MemoryBudget.fromSystemProperties();
+	private final DBOptions dbOptions;
+	private final List<ColumnFamilyDescriptor> cfDescriptors;
+	private final RocksDB db;
+	private final Map<String,ColumnFamilyHandle> handles;
+	private final boolean ttlFormat;
+	private final AtomicBoolean closed = new AtomicBoolean();
+	private final Thread catchUpThread;
+	private volatile long lastCatchUpMillis, lastCatchUpMicros, catchUps, failedCatchUps;
+
+	/// @param secondaryPath replica's own directory (info log, its MANIFEST copy); one per replica
+	/// @param ttlFormat values have the TtlDB timestamp suffix (always true for [RocksDBConfig])
+	public ReadReplica (Path primaryPath, Path secondaryPath, Duration catchUpPeriod, boolean ttlFormat) throws RocksDBException {
+		this.primaryPath = primaryPath;
+		this.ttlFormat = ttlFormat;
+		long t = now();
+		val tableConfig = new BlockBasedTableConfig()
+			.setBlockCache(budget.cache())// own cache: the replica process warms it with its own reads
+			.setCacheIndexAndFilterBlocks(true)
+			.setCacheIndexAndFilterBlocksWithHighPriority(true)
+			.setFilterPolicy(new BloomFilter());
+		List<byte[]> names;
+		try (val options = new Options()){
+			names = RocksDB.listColumnFamilies(options, primaryPath.toString());
+		}
+		cfDescriptors = names.stream()
+			.map(name->new ColumnFamilyDescriptor(name, new ColumnFamilyOptions().setTableFormatConfig(tableConfig)))
+			.toList();
+		dbOptions = new DBOptions()
+			.setMaxOpenFiles(-1);// required by secondary instances: all table files stay open
+		val list = new ArrayList<ColumnFamilyHandle>();
+		try {
+			db = RocksDB.openAsSecondary(dbOptions, primaryPath.toString(), Files.createDirectories(secondaryPath).toString(), cfDescriptors, list);
+		} catch (Exception e){
+			close(cfDescriptors, dbOptions, budget);
+			throw e instanceof RocksDBException re ? re : new RocksDBException("openAsSecondary: " + e);
+		}
+		val m = new LinkedHashMap<String,ColumnFamilyHandle>();
+		for (int i = 0; i < list.size(); i++){
+			m.put(new String(cfDescriptors.get(i).getName(), UTF_8), list.get(i));
+		}
+		handles = Collections.unmodifiableMap(m);
+		lastCatchUpMillis = System.currentTimeMillis();
+		log.info("ReadReplica of {} opened in {} ms: {}", primaryPath, now() - t, handles.keySet());
+
+		long periodMillis = Math.max(1, catchUpPeriod.toMillis());
+		// platform thread: tryCatchUpWithPrimary is a long JNI call
+		catchUpThread = Thread.ofPlatform().daemon().name("ReadReplica-catchUp").start(()->{
+			while (!closed.get()){
+				try {
+					Thread.sleep(periodMillis);
+				} catch (InterruptedException e){
+					break;// close
+				}
+				if (closed.get()){ break; }
+				try {
+					catchUp();
+				} catch (Throwable e){
+					failedCatchUps++;
+					if (!closed.get()){ log.warn("catchUp: tryCatchUpWithPrimary of {} failed", primaryPath, e); }
+				}
+			}
+		});
+	}//new
+
+	/// `-Drocksdb.path` primary, `-Drocksdb.replica.path` (default: new temp dir), `-Drocksdb.replica.catchUpMs=1000`
+	public static ReadReplica fromSystemProperties () throws Exception {
+		String primary = System.getProperty("rocksdb.path");
+		if (primary == null)
+				throw new IllegalArgumentException("ReadReplica: -Drocksdb.path=primary_db_dir is required");
+		String secondary = System.getProperty("rocksdb.replica.path");
+		return new ReadReplica(Path.of(primary), secondary != null ? Path.of(secondary) : Files.createTempDirectory("rocksdbReplica"),
+			Duration.ofMillis(Long.getLong("rocksdb.replica.catchUpMs", 1000)), true);
+	}
+
+	/// Catch up now (also called by the background thread); concurrent reads are fine
+	public synchronized void catchUp () throws RocksDBException {
+		long t = System.nanoTime();
+		db.tryCatchUpWithPrimary();
+		lastCatchUpMicros = (System.nanoTime() - t) / 1000;
+		lastCatchUpMillis = System.currentTimeMillis();
+		catchUps++;
+	}
+
+	public RocksDB rocksDB (){ return db; }
+
+	public ColumnFamilyHandle handle (String columnFamilyName) throws IllegalArgumentException {
+		ColumnFamilyHandle handle = handles.get(columnFamilyName);
+		if (handle != null)
+				return handle;
+		else
+				throw new IllegalArgumentException("handle: columnFamilyName NOT found in replica (created after open?): "+ columnFamilyName);
+	}
+
+	public byte @Nullable [] get (ColumnFamilyHandle handle, byte[] key) throws RocksDBException {
+		byte[] v = db.get(handle, key);
+		return v == null || !ttlFormat ? v : Arrays.copyOf(v, v.length - TTL_SUFFIX);
+	}
+
+	public byte @Nullable [] get (String columnFamilyName, byte[] key) throws RocksDBException {
+		return get(handle(columnFamilyName), key);
+	}
+
+	/// @param heartbeatLagMillis now - last heartbeat of the primary seen by the replica (-1: no heartbeat yet)
+	/// @param sinceCatchUpMillis age of the last successful catch-up
+	/// @param sequence latest sequence number the replica has applied
+	public record Lag (long heartbeatLagMillis, long sinceCatchUpMillis, long lastCatchUpMicros, long sequence, long catchUps, long failedCatchUps) {
+		@Override
+		public String toString () {
+			return String.format(Locale.ENGLISH, "lag=%d ms (last catch-up %d ms ago, took %d µs), seq=%d, catch-ups=%d failed=%d",
+				heartbeatLagMillis, sinceCatchUpMillis, lastCatchUpMicros, sequence, catchUps, failedCatchUps);
+		}
+	}
+
+	public Lag lag () {
+		long heartbeat = -1;
+		try {
+			byte[] v = get(handle(RocksDBConfig.DEFAULT), HEARTBEAT_KEY);
+			if (v != null && v.length >= Long.BYTES){ heartbeat = Longs.fromByteArray(v); }
+		} catch (RocksDBException e){
+			log.warn("lag: failed to read heartbeat", e);
+		}
+		long now = System.currentTimeMillis();
+		return new Lag(heartbeat < 0 ? -1 : Math.max(0, now - heartbeat), now - lastCatchUpMillis, lastCatchUpMicros,
+			db.getLatestSequenceNumber(), catchUps, failedCatchUps);
+	}
+
+	/// Primary side: write [#HEARTBEAT_KEY] = current millis every `period` (platform daemon thread); close = stop
+	public static AutoCloseable heartbeat (RocksDBConfig primary, Duration period) {
+		val stop = new AtomicBoolean();
+		val thread = Thread.ofPlatform().daemon().name("ReadReplica-heartbeat").start(()->{
+			while (!stop.get()){
+				try {
+					primary.rocksDB().put(primary.handle(RocksDBConfig.DEFAULT), HEARTBEAT_KEY, Longs.toByteArray(System.currentTimeMillis()));
+					Thread.sleep(period);
+				} catch (InterruptedException e){
+					break;
+				} catch (Exception e){
+					if (!stop.get()){ log.warn("heartbeat: failed to write", e); }
+				}
+			}
+		});
+		return ()->{
+			stop.set(true);
+			thread.interrupt();
+			thread.join();
+		};
+	}
+
+	@Override
+	public void close () {
+		if (!closed.compareAndSet(false, true)){ return; }
+		catchUpThread.interrupt();
+		try {
+			catchUpThread.join(TimeUnit.SECONDS.toMillis(30));
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		synchronized (this){// no catch-up in progress
+			handles.values().forEach(MagicUtils::close);
+			MagicUtils.close(db);
+		}
+		close(cfDescriptors, dbOptions, budget);
+	}
+
+	private static void close (List<ColumnFamilyDescriptor> cfDescriptors, DBOptions dbOptions, MemoryBudget budget) {
+		cfDescriptors.forEach(d->MagicUtils.close(d.getOptions()));
+		MagicUtils.close(dbOptions);
+		MagicUtils.close(budget);
+	}
+
+	/// Replica process: open, catch up in the background, print the lag every 5 seconds until killed
+	public static void main (String[] args) throws Exception {
+		try (val replica = fromSystemProperties()){
+			Runtime.getRuntime().addShutdownHook(new Thread(replica::close, "ReadReplicaShutdownHook"));
+			while (true){
+				Thread.sleep(5000);
+				System.out.println(replica.lag() +"; "+ replica.budget.report(List.of(replica.db)));
+			}
+		}
+	}
+}
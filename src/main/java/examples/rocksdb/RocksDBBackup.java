@@ -0,0 +1,131 @@
+package examples.rocksdb;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import examples.MagicUtils;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.rocksdb.BackupEngine;
+import org.rocksdb.BackupEngineOptions;
+import org.rocksdb.BackupInfo;
+import org.rocksdb.Env;
+import org.rocksdb.RateLimiter;
+import org.rocksdb.RestoreOptions;
+import org.rocksdb.RocksDBException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static examples.MagicUtils.now;
+
+/// Online incremental backups of [RocksDBConfig] with [BackupEngine]: writes are not paused,
+/// SST files are shared between backups (only new files are copied) and the copy is throttled
+/// by [RateLimiter] ⇒ the disk keeps serving reads.
+///
+/// For a local hard-linked snapshot (instant, same file system) see [RocksDBConfig#checkpoint]
+/// @see <a href="https://github.com/facebook/rocksdb/wiki/How-to-backup-RocksDB">How to backup RocksDB</a>
+@Slf4j
+public final class RocksDBBackup implements AutoCloseable {
+	private final RocksDBConfig conf;
+	private final Path backupDir;
+	private final RateLimiter rateLimiter;
+	private final BackupEngineOptions backupEngineOptions;
+	private final BackupEngine backupEngine;
+	private final AtomicBoolean closed = new AtomicBoolean();
+
+	/// @param bytesPerSecond I/O budget of backup (and restore) copying, e.g. 64MB/s
+	public RocksDBBackup (RocksDBConfig conf, Path backupDir, long bytesPerSecond) throws IOException, RocksDBException {
+		this.conf = conf;
+		this.backupDir = Files.createDirectories(backupDir);
+		rateLimiter = new RateLimiter(bytesPerSecond);
+		backupEngineOptions = new BackupEngineOptions(backupDir.toString())
+			.setShareTableFiles(true)// incremental: SST files are shared between backups
+			.setBackupRateLimiter(rateLimiter)
+			.setRestoreRateLimiter(rateLimiter)
+			.setMaxBackgroundOperations(2)
+			.setSync(true);
+		backupEngine = BackupEngine.open(Env.getDefault(), backupEngineOptions);
+	}//new
+
+	/// New incremental backup. Memtables are NOT flushed: live WAL files are copied instead (writers don't wait for a flush)
+	public synchronized BackupInfo backup () throws RocksDBException {
+		checkOpen();
+		long t = now();
+		backupEngine.createNewBackup(conf.rocksDB(), false);
+		List<BackupInfo> backups = backupEngine.getBackupInfo();
+		BackupInfo last = backups.get(backups.size() - 1);
+		log.info("backup #{} → {}: {} files, {} bytes in {} ms", last.backupId(), backupDir, last.numberFiles(), last.size(), now() - t);
+		return last;
+	}
+
+	public synchronized List<BackupInfo> backups () {
+		checkOpen();
+		return backupEngine.getBackupInfo();
+	}
+
+	/// Keep only N latest backups (shared files still used by them stay)
+	public synchronized void purgeOldBackups (int numBackupsToKeep) throws RocksDBException {
+		checkOpen();
+		backupEngine.purgeOldBackups(numBackupsToKeep);
+	}
+
+	/// Background schedule: backup every `period`, keep `numBackupsToKeep` latest; stops on [#close]
+	/// Platform thread: a backup sits in JNI for minutes and would pin the carrier of a virtual thread
+	public void schedule (Duration period, int numBackupsToKeep) {
+		Thread.ofPlatform().daemon().name("RocksDBBackup").start(()->{
+			while (!closed.get()){
+				Uninterruptibles.sleepUninterruptibly(period);
+				try {
+					synchronized (this){// close() frees the engine under the same lock: check again while holding it
+						if (closed.get()){ break; }
+						backup();
+						if (closed.get()){ break; }// close() waits for this backup: the purge is left to the next open
+						purgeOldBackups(numBackupsToKeep);
+					}
+				} catch (Throwable e){
+					log.error("schedule: backup to {} failed", backupDir, e);
+				}
+			}
+		});
+	}
+
+	/// Restore the latest backup into an empty directory (WAL goes into the same directory), not into the dir of the opened db
+	public synchronized void restoreLatest (Path dbDir) throws RocksDBException {
+		checkOpen();
+		long t = now();
+		try (val restoreOptions = new RestoreOptions(false/*keepLogFiles*/)){
+			backupEngine.restoreDbFromLatestBackup(dbDir.toString(), dbDir.toString(), restoreOptions);
+		}
+		log.info("restoreLatest: {} → {} in {} ms", backupDir, dbDir, now() - t);
+	}
+
+	/// Restore the latest backup from `backupDir` without an opened db, e.g. on a new host
+	public static void restoreLatest (Path backupDir, Path dbDir, long bytesPerSecond) throws Exception {
+		Files.createDirectories(dbDir);
+		try (val rateLimiter = new RateLimiter(bytesPerSecond);
+				 val options = new BackupEngineOptions(backupDir.toString()).setRestoreRateLimiter(rateLimiter);
+				 val engine = BackupEngine.open(Env.getDefault(), options);
+				 val restoreOptions = new RestoreOptions(false)){
+			engine.restoreDbFromLatestBackup(dbDir.toString(), dbDir.toString(), restoreOptions);
+		}
+	}
+
+	/// the native engine is freed by [#close]: a call after it would be a use-after-free in JNI, not an exception
+	private void checkOpen () {
+		if (closed.get()){ throw new IllegalStateException("RocksDBBackup is closed: "+ backupDir); }
+	}
+
+	@Override
+	public void close () {
+		if (closed.compareAndSet(false, true)){
+			synchronized (this){
+				MagicUtils.close(backupEngine);
+				MagicUtils.close(backupEngineOptions);
+				MagicUtils.close(rateLimiter);
+			}
+		}
+	}
+}
@@ -5,16 +5,19 @@ import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import examples.MagicUtils;
 import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.jspecify.annotations.Nullable;
 import org.rocksdb.BlockBasedTableConfig;
 import org.rocksdb.BloomFilter;
+import org.rocksdb.Checkpoint;
 import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.ColumnFamilyOptions;
-import org.rocksdb.CompressionType;
 import org.rocksdb.DBOptions;
-import org.rocksdb.LRUCache;
+import org.rocksdb.FlushOptions;
+import org.rocksdb.IndexType;
+import org.rocksdb.Options;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.TtlDB;
@@ -22,48 +25,116 @@ import org.rocksdb.TtlDB;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
-import static examples.MagicUtils.close;
+import static examples.MagicUtils.execute;
+import static examples.MagicUtils.now;
 import static java.nio.charset.StandardCharsets.*;
 
-public final class RocksDBConfig {
+@Slf4j
+public final class RocksDBConfig implements AutoCloseable {
 	static {
 		RocksDB.loadLibrary();
 	}
 	static final int DEF_TTL = (int) TimeUnit.DAYS.toSeconds(7);
 	public static final String DEFAULT = new String(RocksDB.DEFAULT_COLUMN_FAMILY, UTF_8);
+	/// dropped CF handle is closed (⇒ its files are deleted) later: readers could still use it
+	static final long DROP_GRACE_MILLIS = 10_000;
 
 	private final RocksDB rocksDB;
-	final LRUCache blockCache = new LRUCache(512 * 1024 * 1024L, 16); // 512MB block cache, 8 shards
+	private final Path path;
+	/// shared block cache + memtables (WriteBufferManager) = one budget for the whole instance (or for all shards of [ShardedStore])
+	final MemoryBudget memoryBudget;
+	/// false: the budget is shared with other instances and closed by its owner
+	private final boolean ownBudget;
 	final List<ColumnFamilyDescriptor> cfDescriptors;
-	private final Map<String,ColumnFamilyHandle> columnFamilyHandles = new LinkedHashMap<>();
+	private final BlockBasedTableConfig tableConfig;
+	private final BlockBasedTableConfig largeTableConfig;
+	private final Set<String> largeCf;
+	private final Function<String,ColumnFamilyProfile> profiles;
+	/// name → handle: readers never lock; create/drop (rare, hundreds of tenants at most) add/remove one entry
+	private final ConcurrentHashMap<String,ColumnFamilyHandle> columnFamilyHandles = new ConcurrentHashMap<>();
+	/// CFs with equal settings share one [ColumnFamilyOptions] (+ table config): 1000 tenants ≠ 1000 native option sets.
+	/// Closed at shutdown only (guarded by this)
+	private final Map<CfOptionsKey,ColumnFamilyOptions> sharedCfOptions = new HashMap<>();
+	/// dropped, but not yet closed handles (guarded by this)
+	private final List<ColumnFamilyHandle> droppedHandles = new ArrayList<>();
+	/// writes with a durability level: no WAL / WAL / WAL synced every `-Drocksdb.wal.syncIntervalMs` / sync per write
+	private final DurableWriter writer;
+	private final @Nullable WarmCache warmCache;
+	private final CompletableFuture<Integer> warmUp;
+	/// periodic hot key saver: stopped and joined by [#shutdown]
+	private final @Nullable Thread warmSaver;
+	private final CountDownLatch stopWarmSaver = new CountDownLatch(1);
+	private final AtomicBoolean closed = new AtomicBoolean();
+	private final Thread shutdownHook = new Thread(this::shutdown, "RocksDBShutdownHook");
+
+	/// `-Drocksdb.path=dir` (default: new temp dir), `-Drocksdb.warm=true` warm restart
+	public RocksDBConfig () {
+		this(defaultPath(), Boolean.getBoolean("rocksdb.warm"));
+	}
 
+	@SneakyThrows
+	private static Path defaultPath () {
+		String path = System.getProperty("rocksdb.path");
+		return path != null ? Path.of(path)
+				: Files.createTempDirectory("rocksdb");
+	}
+
+	public RocksDBConfig (Path path, boolean warmStart) {
+		this(path, warmStart, columnFamilyName->ColumnFamilyProfile.fromSystemProperties());
+	}
+
+	/// @param path database directory (created if it doesn't exist)
+	/// @param warmStart remember hot keys (on close and every `-Drocksdb.warm.saveEverySec=60`) and prefetch them after open
+	/// @param profiles CF name → compression etc settings of this CF
 	/// @see org.rocksdb.TtlDB
 	/// @see org.rocksdb.TransactionDB
 	/// @see org.rocksdb.OptimisticTransactionDB
-	@SneakyThrows
-	RocksDBConfig () {
-		// Create a database directory if it doesn't exist
-		val path = Files.createTempDirectory("rocksdb");// from config
-
-		BlockBasedTableConfig tableConfig = createTableConfig();
+	public RocksDBConfig (Path path, boolean warmStart, Function<String,ColumnFamilyProfile> profiles) {
+		this(path, warmStart, profiles, null);
+	}
 
-		// columnFamilies ~ БД внутри СУБД
-		val cf = Set.of(DEFAULT, "harry", "potter");
+	/// @param sharedBudget null = own budget from `-Drocksdb.memory…`; else one cache + memtable limit for several instances (not closed here)
+	@SneakyThrows
+	public RocksDBConfig (Path path, boolean warmStart, Function<String,ColumnFamilyProfile> profiles, @Nullable MemoryBudget sharedBudget) {
+		this.path = Files.createDirectories(path);
+		this.memoryBudget = sharedBudget != null ? sharedBudget : MemoryBudget.fromSystemProperties();
+		this.ownBudget = sharedBudget == null;
+		this.profiles = profiles;
+		long t = now();
+
+		tableConfig = createTableConfig(false);
+		largeTableConfig = createTableConfig(true);
+		// CF with big data ⇒ partitioned index & filters: only top-level index is pinned, partitions come & go via the cache
+		largeCf = Set.copyOf(Arrays.asList(System.getProperty("rocksdb.largeCf", "").split("[,;\\s]+")));// a name twice is fine
+
+		// columnFamilies ~ БД внутри СУБД: ours + created at runtime before (all existing CF must be opened)
+		val cf = new LinkedHashSet<String>(STATIC_CF);
+		cf.addAll(existingColumnFamilies(this.path));
 		cfDescriptors = cf.stream()
 				.map(columnFamilyName -> new ColumnFamilyDescriptor(
 						columnFamilyName.getBytes(UTF_8),
-						createColumnFamilyOptions(columnFamilyName, tableConfig)
+						createColumnFamilyOptions(columnFamilyName, profiles.apply(columnFamilyName))
 				))
 				.toList();
 
@@ -74,15 +145,33 @@ public final class RocksDBConfig {
 			.setUseFsync(false)// use_fsync: true for stronger durability guarantees (makes writes hit disk): If false, then every store to stable storage will issue a fdatasync. This parameter should be set to true while storing data to filesystem like ext3 that can lose files after a reboot.
 			//.setMergeOperator(new UInt64AddOperator() / StringAppendOperator) not using Java 🤷‍♀️
 			.setUseDirectIoForFlushAndCompaction(true)
+			.setWriteBufferManager(memoryBudget.writeBufferManager())// all memtables of all CF are charged to the block cache
 			//.setMaxTotalWalSize() ?
+			.setWalTtlSeconds(Long.getLong("rocksdb.wal.ttlSec", 0))// > 0: obsolete WAL is archived that long (ChangeCapture catch-up after downtime)
 
 			.setStatsDumpPeriodSec(10)// doesn't work?
 			;
 
 		rocksDB = createRocksDB(dbOptions, path.toFile().getAbsolutePath(), cf);
-		Runtime.getRuntime().addShutdownHook(new Thread("RocksDBShutdownHook"){
-			@Override public void run (){ shutdown(); }
-		});
+		writer = new DurableWriter(rocksDB, Duration.ofMillis(Long.getLong("rocksdb.wal.syncIntervalMs", 5000)));
+		log.info("RocksDB opened {} in {} ms, memory: {}", path, now() - t, memoryReport());
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+		if (warmStart){
+			warmCache = new WarmCache(path, columnFamilyHandles);
+			warmUp = CompletableFuture.supplyAsync(this::prefetch, MagicUtils::execute);
+			long saveEvery = Long.getLong("rocksdb.warm.saveEverySec", 60);
+			// no interrupt to stop it: an interrupt would close the FileChannel of a save in progress
+			warmSaver = saveEvery <= 0 ? null : execute(()->{
+				try {
+					while (!stopWarmSaver.await(saveEvery, TimeUnit.SECONDS)){ saveWarmCache(); }
+				} catch (InterruptedException ignore){}
+			});
+		} else {
+			warmCache = null;
+			warmUp = CompletableFuture.completedFuture(0);
+			warmSaver = null;
+		}
 	}//new
 
 	private RocksDB createRocksDB (DBOptions dbOptions, String pathToDb, Set<String> cf) throws RocksDBException {
@@ -91,7 +180,7 @@ public final class RocksDBConfig {
 		val handles = new ArrayList<ColumnFamilyHandle>();
 
 		List<Integer> ttlList = cf.stream()
-				.map(columnFamilyName->DEF_TTL)
+				.map(columnFamilyName->STATIC_CF.contains(columnFamilyName) ? DEF_TTL : 0)// runtime CF: no TTL, like TtlDB.createColumnFamily
 				.toList();
 
 		db = TtlDB.open(
@@ -112,15 +201,179 @@ public final class RocksDBConfig {
 		return db;
 	}
 
+	static final Set<String> STATIC_CF = Set.of(DEFAULT, "harry", "potter");
+
+	private static List<String> existingColumnFamilies (Path path) throws RocksDBException {
+		if (!Files.exists(path.resolve("CURRENT"))){ return List.of(); }// new db
+		try (val options = new Options()){
+			return RocksDB.listColumnFamilies(options, path.toString()).stream()
+					.map(name->new String(name, UTF_8))
+					.toList();
+		}
+	}
+
+	/// Create CF at runtime (no TTL); existing ⇒ its handle. Reopen finds it again.
+	public ColumnFamilyHandle createColumnFamily (String columnFamilyName) throws RocksDBException {
+		return createColumnFamily(columnFamilyName, null);
+	}
+
+	/// @param profile null = from the `profiles` of the constructor (pass the same function at reopen to get the same settings back)
+	public ColumnFamilyHandle createColumnFamily (String columnFamilyName, @Nullable ColumnFamilyProfile profile) throws RocksDBException {
+		ColumnFamilyHandle handle = columnFamilyHandles.get(columnFamilyName);
+		if (handle != null){ return handle; }
+		synchronized (this){
+			handle = columnFamilyHandles.get(columnFamilyName);
+			if (handle != null){ return handle; }
+			val options = createColumnFamilyOptions(columnFamilyName, profile != null ? profile : profiles.apply(columnFamilyName));
+			handle = rocksDB.createColumnFamily(new ColumnFamilyDescriptor(columnFamilyName.getBytes(UTF_8), options));
+			columnFamilyHandles.put(columnFamilyName, handle);
+			if (warmCache != null){ warmCache.add(columnFamilyName, handle); }
+			return handle;
+		}
+	}
+
+	/// Many CFs at once (tenants): one MANIFEST/OPTIONS write. One by one, each create rewrites the OPTIONS file of all CFs
+	/// ⇒ O(N²): 200 CFs ≈ 10 s vs 0.2 s. Like [#createColumnFamily]: no TTL (the TtlDB wrapper is applied on reopen, TTL 0)
+	/// @param profile null = from the `profiles` of the constructor
+	/// @return handles in the order of `columnFamilyNames` (existing ones included)
+	public synchronized List<ColumnFamilyHandle> createColumnFamilies (Collection<String> columnFamilyNames, @Nullable ColumnFamilyProfile profile) throws RocksDBException {
+		val missing = columnFamilyNames.stream().distinct().filter(name->!columnFamilyHandles.containsKey(name)).toList();
+		if (!missing.isEmpty()){
+			val descriptors = missing.stream()
+					.map(name->new ColumnFamilyDescriptor(name.getBytes(UTF_8), createColumnFamilyOptions(name, profile != null ? profile : profiles.apply(name))))
+					.toList();
+			val handles = rocksDB.createColumnFamilies(descriptors);
+			for (int i = 0; i < handles.size(); i++){
+				columnFamilyHandles.put(missing.get(i), handles.get(i));
+				if (warmCache != null){ warmCache.add(missing.get(i), handles.get(i)); }
+			}
+		}
+		return columnFamilyNames.stream().map(columnFamilyHandles::get).toList();
+	}
+
+	/// Drop CF with all its data: O(1), no compaction (files are deleted when the handle is closed after [#DROP_GRACE_MILLIS])
+	/// @return false if there is no such CF
+	@CanIgnoreReturnValue
+	public synchronized boolean dropColumnFamily (String columnFamilyName) throws RocksDBException {
+		if (DEFAULT.equals(columnFamilyName))
+				throw new IllegalArgumentException("dropColumnFamily: default CF can't be dropped");
+		ColumnFamilyHandle handle = columnFamilyHandles.get(columnFamilyName);
+		if (handle == null){ return false; }
+		rocksDB.dropColumnFamily(handle);
+		columnFamilyHandles.remove(columnFamilyName);
+		if (warmCache != null){ warmCache.remove(handle); }
+		droppedHandles.add(handle);
+		execute(()->{
+			Uninterruptibles.sleepUninterruptibly(DROP_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+			synchronized (this){
+				if (droppedHandles.remove(handle)){ MagicUtils.close(handle); }// not closed by shutdown yet
+			}
+		});
+		return true;
+	}
+
+	/// Fast shutdown: flush memtables & sync WAL, save hot keys, close.
+	/// We wait for the flush ≤ `-Drocksdb.shutdownTimeoutMs=5000`, then cancel the background work: queued flushes and
+	/// compactions don't start, but a flush job already running can't be aborted ⇒ `cancelAllBackgroundWork` still waits for it.
+	/// If flush doesn't fit in time: nothing is lost (WAL is replayed at next open), only the next start is slower.
+	/// No handle is closed while a native call of ours (flush, warm-up prefetch, hot key save) may still use it.
 	void shutdown () {
+		if (!closed.compareAndSet(false, true)){ return; }// already closed
 		System.err.println("⛔ RocksDB is closing ".repeat(5));
-		Uninterruptibles.sleepUninterruptibly(10, TimeUnit.SECONDS);
+		long t = now();
+		long timeout = Long.getLong("rocksdb.shutdownTimeoutMs", 5000);
+		stopWarmSaver.countDown();
+		if (warmSaver != null){ Uninterruptibles.joinUninterruptibly(warmSaver); }
+		warmUp.handle((r, e)->null).join();// prefetch stops at its next batch; it has put the saved keys back for saveWarmCache
+		MagicUtils.close(writer);
+		val flush = CompletableFuture.runAsync(this::flushAndSyncWal, MagicUtils::execute);
+		try {
+			flush.get(timeout, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e){
+			log.warn("shutdown: flush didn't finish in {} ms ⇒ WAL will be replayed at next open", timeout);
+		} catch (Exception e){
+			log.error("shutdown: flush/WAL sync failed", e);
+		}
+		saveWarmCache();
+
+		rocksDB.cancelAllBackgroundWork(true); // Wait for BG jobs (compactions check shutdown flag and stop early)
+		flush.handle((r, e)->null).join();// a timed out flush returns now (done or "shutdown in progress")
+		synchronized (this){
+			columnFamilyHandles.values().forEach(MagicUtils::close);
+			droppedHandles.forEach(MagicUtils::close);
+			droppedHandles.clear();
+			sharedCfOptions.values().forEach(MagicUtils::close);
+		}
+		MagicUtils.close(rocksDB);
+		if (ownBudget){ MagicUtils.close(memoryBudget); }
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch (IllegalStateException ignore){}// we are the shutdown hook
+		log.info("RocksDB closed {} in {} ms", path, now() - t);
+	}
+
+	@Override
+	public void close () {
+		shutdown();
+	}
+
+	@SneakyThrows
+	private void flushAndSyncWal () {
+		try (val flushOptions = new FlushOptions().setWaitForFlush(true).setAllowWriteStall(true)){
+			rocksDB.flush(flushOptions, new ArrayList<>(columnFamilyHandles.values()));
+		}
+		rocksDB.flushWal(true);// sync
+	}
+
+	private void saveWarmCache () {
+		if (warmCache != null){
+			try {
+				warmCache.save();
+			} catch (Exception e){
+				log.warn("saveWarmCache: failed to save hot keys of {}", path, e);
+			}
+		}
+	}
+
+	@SneakyThrows
+	private int prefetch () {
+		assert warmCache != null;
+		return warmCache.prefetch(rocksDB, columnFamilyHandles, closed::get);
+	}
+
+	/// Completes (with number of prefetched keys) when warm restart has filled the block cache; 0 if warm start is off
+	public CompletableFuture<Integer> warmUp (){ return warmUp; }
+
+	public Path path (){ return path; }
+
+	public RocksDB rocksDB (){ return rocksDB; }
+
+	/// `conf.writer().put(Durability.SYNC, handle, key, value)`: durability by data importance, see [DurableWriter]
+	public DurableWriter writer (){ return writer; }
 
-		rocksDB.cancelAllBackgroundWork(true); // Wait for BG jobs
-		columnFamilyHandles.values().forEach(MagicUtils::close);
-		cfDescriptors.forEach(d->close(d.getOptions()));
-		close(blockCache);
-		close(rocksDB);
+	public ColumnFamilyHandle handle (String columnFamilyName) throws IllegalArgumentException {
+		ColumnFamilyHandle handle = columnFamilyHandles.get(columnFamilyName);
+		if (handle != null)
+				return handle;
+		else
+				throw new IllegalArgumentException("handle: columnFamilyName NOT found: "+ columnFamilyName);
+	}
+
+	/// Consistent snapshot of the opened db: hard links to SST files (same file system ⇒ instant, no copy) + copy of MANIFEST & WAL
+	/// @param target must NOT exist; can be opened as a normal db
+	/// @see RocksDBBackup incremental backups to another disk
+	public void checkpoint (Path target) throws RocksDBException {
+		long t = now();
+		try (val checkpoint = Checkpoint.create(rocksDB)){
+			checkpoint.createCheckpoint(target.toString());
+		}
+		log.info("checkpoint: {} → {} in {} ms", path, target, now() - t);
+	}
+
+	/// get + remember the key for warm restart (if enabled)
+	public byte @Nullable [] get (ColumnFamilyHandle handle, byte[] key) throws RocksDBException {
+		if (warmCache != null){ warmCache.record(handle, key); }
+		return rocksDB.get(handle, key);
 	}
 
 	public static RocksDBConfig conf () {
@@ -149,51 +402,73 @@ public final class RocksDBConfig {
 		return Collections.unmodifiableSet(columnFamilyHandles.keySet());
 	}
 
+	/// Distinct [ColumnFamilyOptions] objects behind all CFs (1 when all CFs use the same profile)
+	public synchronized int sharedOptionsCount (){ return sharedCfOptions.size(); }
+
+
+	/// Native memory actually used vs budget: cache (incl. memtables & index/filter blocks), memtables, table readers
+	public String memoryReport () {
+		return memoryBudget.report(List.of(rocksDB));
+	}
+
 
-	/// todo one [ColumnFamilyOptions] for all CF?
-	private static ColumnFamilyOptions createColumnFamilyOptions (String columnFamilyName4confOpts, BlockBasedTableConfig createTableConfig) {
-		long writeBufferSize = 128;
+	/// Options by what they depend on: profile, partitioned filters, filters for hits
+	record CfOptionsKey (ColumnFamilyProfile profile, boolean partitioned, boolean optimizeFiltersForHits) {}
+
+	/// Shared [ColumnFamilyOptions] for this CF (RocksDB copies them into the CF; per-CF changes go via `setOptions`)
+	private synchronized ColumnFamilyOptions createColumnFamilyOptions (String columnFamilyName, ColumnFamilyProfile profile) {
+		val key = new CfOptionsKey(profile, largeCf.contains(columnFamilyName) || profile.partitionedFilters(), !TimeBucketStore.isBucket(columnFamilyName));
+		return sharedCfOptions.computeIfAbsent(key, this::createColumnFamilyOptions);
+	}
+
+	private ColumnFamilyOptions createColumnFamilyOptions (CfOptionsKey key) {
+		val profile = key.profile();
+		boolean partitioned = key.partitioned();
+		val table = profile.customTable() ? createTableConfig(partitioned, profile.blockSize(), profile.bloomBitsPerKey())
+				: partitioned ? largeTableConfig : tableConfig;
+		long writeBufferSize = memoryBudget.writeBufferSize(profile.writeBufferSize());// 128 MB per CF by default, but not more than budget allows
 
 		val options = new ColumnFamilyOptions()
 			.optimizeLevelStyleCompaction()
 			//.optimizeLevelStyleCompaction(128 << 20)
 
-			.setCompressionType(CompressionType.ZSTD_COMPRESSION)
-			.setBottommostCompressionType(CompressionType.ZSTD_COMPRESSION)
-			// Optimize for long keys and sequential access
-			.setOptimizeFiltersForHits(true)
-			.setWriteBufferSize(writeBufferSize * 1024 * 1024)// 128 MB per CF
+			// Optimize for long keys and sequential access; time buckets: most lookups are misses ⇒ filters on all levels
+			.setOptimizeFiltersForHits(key.optimizeFiltersForHits())
+			.setWriteBufferSize(writeBufferSize)
 
 			.setForceConsistencyChecks(true)
 
 			//.setLevelCompactionDynamicLevelBytes(true)
-			.setMaxWriteBufferNumber(4)
-			.setMinWriteBufferNumberToMerge(2)
-			//.setLevel0FileNumCompactionTrigger(6)
 			//.setPeriodicCompactionSeconds(xxx)
 
-			.setTableFormatConfig(createTableConfig);
+			.setTableFormatConfig(table);
+		profile.applyTo(options);// ZSTD_COMPRESSION, max 4 memtables, L0 trigger 2, level style by default
 
 		return options;
 	}
 
-	/// Create shared block cache & Configure Block-Based Table for caching
-	private BlockBasedTableConfig createTableConfig () {
-		val tableConfig = new BlockBasedTableConfig();
+	private BlockBasedTableConfig createTableConfig (boolean partitioned) {
+		return createTableConfig(partitioned, ColumnFamilyProfile.DEFAULT.blockSize(), ColumnFamilyProfile.DEFAULT.bloomBitsPerKey());
+	}
 
-		if (System.getProperty("blockCache") != null){
-			tableConfig.setBlockCache(blockCache);
-		} else {
-			tableConfig.setBlockCacheSize(512 * 1024 * 1024);
+	/// Configure Block-Based Table: the shared block cache of [MemoryBudget] for data, index & filter blocks
+	/// @param partitioned partitioned index & filters (two level index search) for large CF
+	private BlockBasedTableConfig createTableConfig (boolean partitioned, int blockSize, double bloomBitsPerKey) {
+		val tableConfig = new BlockBasedTableConfig()
+			.setBlockCache(memoryBudget.cache())
+			// index & filter are charged to the budget too, but with high priority (evicted last)
+			.setCacheIndexAndFilterBlocks(true)
+			.setCacheIndexAndFilterBlocksWithHighPriority(true)
+			.setPinL0FilterAndIndexBlocksInCache(true);
+
+		tableConfig.setBlockSize(blockSize);// Default: 4KB - optimal for point gets; ours 16KB
+		if (bloomBitsPerKey > 0){ tableConfig.setFilterPolicy(new BloomFilter(bloomBitsPerKey)); }// 10, false
+		if (partitioned){
+			tableConfig.setIndexType(IndexType.kTwoLevelIndexSearch)
+				.setPartitionFilters(true)
+				.setPinTopLevelIndexAndFilter(true)
+				.setMetadataBlockSize(4096);// 4k is default
 		}
-
-		//tableConfig.setCacheIndexAndFilterBlocks(true);
-		//tableConfig.setCacheIndexAndFilterBlocksWithHighPriority(true);
-		tableConfig.setBlockSize(16 * 1024);// Default: 4KB - optimal for point gets
-		tableConfig.setFilterPolicy(new BloomFilter());// 10, false
-		// Consider partitioned filters for large datasets
-		//tableConfig.setPartitionFilters(true);
-		//tableConfig.setMetadataBlockSize(4096);// 4k is default
 		return tableConfig;
 	}
 
@@ -208,7 +483,7 @@ public final class RocksDBConfig {
 	/// "old" t =  64_588 ~ 77_413,76 op/s
 	/// "new" t = 12_6040 ~ 39_669,95 op/s
 	public static void main (String[] args) throws RocksDBException {
-		//System.setProperty("blockCache", "true");// -DblockCache=true
+		//System.setProperty("rocksdb.memory", "2g");// -Drocksdb.memory=2g -Drocksdb.cache=hyperClock
 
 		ColumnFamilyHandle h = getHandle("harry");
 
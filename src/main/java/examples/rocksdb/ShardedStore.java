@@ -0,0 +1,308 @@
+package examples.rocksdb;
+
+import com.google.common.hash.Hashing;
+import examples.MagicUtils;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.jspecify.annotations.Nullable;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/// N independent RocksDB instances (own WAL, own write path, own compactions) behind one key space:
+/// one [RocksDBConfig] has one WAL ⇒ all writers serialize on its write group leader; N shards ⇒ N write paths.
+///
+/// - hash partitioning (murmur3 of the key): even load, scans are k-way merged
+/// - range partitioning (sorted split points): scans are sequential, shard by shard
+/// - one [MemoryBudget] for all shards: the same block cache and memtable limit as a single instance
+/// - each shard in its own directory: `-Drocksdb.shard.paths=/disk1,/disk2` spreads shards over disks (round-robin)
+///
+/// No cross-shard atomicity: [#putAll] is atomic per shard only, [#scan] sees each shard at its own point in time.
+/// Background compactions/flushes of all shards share the default Env thread pools.
+///
+/// The routing (shard count, hash/range, split points) is saved as `shards.json` next to `shard-0` on the first open:
+/// a reopen with another one would look keys up in the wrong shard ⇒ it fails instead.
+@Slf4j
+public final class ShardedStore implements AutoCloseable {
+	static {
+		RocksDB.loadLibrary();// the shared budget (native cache) is created before any RocksDBConfig
+	}
+	private final MemoryBudget budget;
+	private final List<RocksDBConfig> shards;
+	private final List<ColumnFamilyHandle> handles;
+	/// null = hash partitioning; else N-1 ascending boundaries: shard i holds keys in [split[i-1], split[i])
+	private final byte @Nullable [][] splitPoints;
+	static final String LAYOUT_FILE = "shards.json";
+
+	/// What routes a key to its shard, as saved in [#LAYOUT_FILE]
+	/// @param splitPoints hex; empty for hash partitioning
+	record Layout (int shards, String partitioning, List<String> splitPoints) {
+		static Layout of (int shards, @Nullable List<byte[]> splitPoints) {
+			return splitPoints == null ? new Layout(shards, "hash", List.of())
+					: new Layout(shards, "range", splitPoints.stream().map(HexFormat.of()::formatHex).toList());
+		}
+
+		/// the first open saves it; a reopen must route the same way
+		void checkOrSave (Path dir) throws IOException {
+			val file = dir.resolve(LAYOUT_FILE);
+			if (Files.exists(file)){
+				val saved = ColumnFamilyProfile.JSON.readValue(file.toFile(), Layout.class);
+				if (!saved.equals(this))
+						throw new IllegalArgumentException("ShardedStore: "+ file +" has "+ saved +", but opened with "+ this);
+			} else {
+				Files.createDirectories(dir);
+				val tmp = file.resolveSibling(LAYOUT_FILE +".tmp");
+				ColumnFamilyProfile.JSON.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), this);
+				Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+	}
+
+	/// @param dirs shard i lives in `dirs[i % dirs.size()]/shard-i`
+	/// @param splitPoints null = hash partitioning; else `shards - 1` ascending (unsigned bytewise) range boundaries
+	/// @throws IllegalArgumentException also if `dirs[0]` holds a store with another layout
+	public ShardedStore (int shards, List<Path> dirs, @Nullable List<byte[]> splitPoints, String columnFamilyName,
+			Function<String,ColumnFamilyProfile> profiles) throws RocksDBException, IOException {
+		if (shards < 1 || dirs.isEmpty())
+				throw new IllegalArgumentException("ShardedStore: shards ≥ 1 and at least one dir, but "+ shards +", "+ dirs);
+		if (splitPoints != null){
+			if (splitPoints.size() != shards - 1)
+					throw new IllegalArgumentException("ShardedStore: "+ shards +" range shards need "+ (shards - 1) +" split points, but "+ splitPoints.size());
+			for (int i = 1; i < splitPoints.size(); i++){
+				if (Arrays.compareUnsigned(splitPoints.get(i - 1), splitPoints.get(i)) >= 0)
+						throw new IllegalArgumentException("ShardedStore: split points must be strictly ascending, see #"+ i);
+			}
+			this.splitPoints = splitPoints.toArray(byte[][]::new);
+		} else {
+			this.splitPoints = null;
+		}
+		Layout.of(shards, splitPoints).checkOrSave(dirs.get(0));// before any shard-i is created
+		budget = MemoryBudget.fromSystemProperties();
+		val confs = new ArrayList<RocksDBConfig>(shards);
+		val hs = new ArrayList<ColumnFamilyHandle>(shards);
+		try {
+			for (int i = 0; i < shards; i++){
+				val conf = new RocksDBConfig(dirs.get(i % dirs.size()).resolve("shard-" + i), false, profiles, budget);
+				confs.add(conf);
+				hs.add(conf.createColumnFamily(columnFamilyName));
+			}
+		} catch (RocksDBException | RuntimeException e){
+			confs.forEach(MagicUtils::close);
+			MagicUtils.close(budget);
+			throw e;
+		}
+		this.shards = List.copyOf(confs);
+		handles = List.copyOf(hs);
+		log.info("ShardedStore: {} {} shards in {}, memory: {}", shards, splitPoints == null ? "hash" : "range", dirs, memoryReport());
+	}//new
+
+	/// `-Drocksdb.shards=4 -Drocksdb.shard.paths=/disk1/db,/disk2/db` (default: `rocksdb.path` or a new temp dir), hash partitioning
+	public static ShardedStore fromSystemProperties (String columnFamilyName) throws Exception {
+		int shards = Integer.getInteger("rocksdb.shards", Runtime.getRuntime().availableProcessors());
+		String paths = System.getProperty("rocksdb.shard.paths", System.getProperty("rocksdb.path", ""));
+		List<Path> dirs = paths.isBlank() ? List.of(Files.createTempDirectory("rocksdbShards"))
+				: Arrays.stream(paths.split("[,;]+")).map(String::trim).filter(p->!p.isEmpty()).map(Path::of).toList();
+		return new ShardedStore(shards, dirs, null, columnFamilyName, cf->ColumnFamilyProfile.fromSystemProperties());
+	}
+
+	public int shardCount (){ return shards.size(); }
+
+	public RocksDBConfig shard (int shard){ return shards.get(shard); }
+
+	/// key → shard number
+	public int shardOf (byte[] key) {
+		if (splitPoints == null){
+			return Math.floorMod(Hashing.murmur3_32_fixed().hashBytes(key).asInt(), shards.size());
+		}
+		int lo = 0, hi = splitPoints.length;// first split point > key
+		while (lo < hi){
+			int mid = (lo + hi) >>> 1;
+			if (Arrays.compareUnsigned(splitPoints[mid], key) <= 0) lo = mid + 1; else hi = mid;
+		}
+		return lo;
+	}
+
+	private RocksDB db (int shard){ return shards.get(shard).rocksDB(); }
+
+	public byte @Nullable [] get (byte[] key) throws RocksDBException {
+		int s = shardOf(key);
+		return db(s).get(handles.get(s), key);
+	}
+
+	public void put (byte[] key, byte[] value) throws RocksDBException {
+		int s = shardOf(key);
+		db(s).put(handles.get(s), key, value);
+	}
+
+	public void delete (byte[] key) throws RocksDBException {
+		int s = shardOf(key);
+		db(s).delete(handles.get(s), key);
+	}
+
+	/// Keys grouped by shard → one multiGet per shard, shards in parallel ([MagicUtils#offload]); the last group runs on the caller
+	/// @return values in the order of `keys` (null = not found)
+	public List<byte @Nullable []> multiGet (List<byte[]> keys) throws RocksDBException {
+		val groups = groupByShard(keys);
+		val result = new ArrayList<byte @Nullable []>(keys.size());
+		for (int i = 0; i < keys.size(); i++){ result.add(null); }
+		val futures = new ArrayList<CompletableFuture<Void>>();
+		int last = -1;
+		for (int s = 0; s < groups.length; s++){
+			if (groups[s] == null){ continue; }
+			if (last >= 0){
+				int shard = last;
+				futures.add(MagicUtils.offload(()->multiGet(shard, groups[shard], keys, result)));
+			}
+			last = s;
+		}
+		if (last >= 0){ multiGet(last, groups[last], keys, result); }
+		for (val f : futures){
+			try {
+				f.join();
+			} catch (RuntimeException e){
+				if (e.getCause() instanceof RocksDBException re){ throw re; }
+				throw e;
+			}
+		}
+		return result;
+	}
+
+	private @Nullable Void multiGet (int shard, IntList positions, List<byte[]> keys, List<byte @Nullable []> result) throws RocksDBException {
+		val shardKeys = new ArrayList<byte[]>(positions.size);
+		val shardHandles = new ArrayList<ColumnFamilyHandle>(positions.size);
+		for (int i = 0; i < positions.size; i++){
+			shardKeys.add(keys.get(positions.items[i]));
+			shardHandles.add(handles.get(shard));
+		}
+		List<byte[]> values = db(shard).multiGetAsList(shardHandles, shardKeys);
+		for (int i = 0; i < positions.size; i++){
+			result.set(positions.items[i], values.get(i));// disjoint positions: no race
+		}
+		return null;
+	}
+
+	/// One [WriteBatch] per shard, written in parallel: atomic per shard, not across shards
+	public void putAll (List<Map.Entry<byte[],byte[]>> entries, WriteOptions writeOptions) throws RocksDBException {
+		val keys = entries.stream().map(Map.Entry::getKey).toList();
+		val groups = groupByShard(keys);
+		val futures = new ArrayList<CompletableFuture<Void>>();
+		for (int s = 0; s < groups.length; s++){
+			if (groups[s] == null){ continue; }
+			int shard = s;
+			futures.add(MagicUtils.offload(()->{
+				try (val batch = new WriteBatch()){
+					IntList positions = groups[shard];
+					for (int i = 0; i < positions.size; i++){
+						val e = entries.get(positions.items[i]);
+						batch.put(handles.get(shard), e.getKey(), e.getValue());
+					}
+					db(shard).write(writeOptions, batch);
+				}
+				return null;
+			}));
+		}
+		try {
+			CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+		} catch (RuntimeException e){
+			if (e.getCause() instanceof RocksDBException re){ throw re; }
+			throw e;
+		}
+	}
+
+	/// positions of keys per shard (null = no keys for the shard)
+	private IntList[] groupByShard (List<byte[]> keys) {
+		val groups = new IntList[shards.size()];
+		for (int i = 0; i < keys.size(); i++){
+			int s = shardOf(keys.get(i));
+			if (groups[s] == null){ groups[s] = new IntList(Math.max(4, keys.size() / shards.size() * 2)); }
+			groups[s].add(i);
+		}
+		return groups;
+	}
+
+	/// growable int[] without boxing
+	private static final class IntList {
+		int[] items;
+		int size;
+
+		IntList (int capacity){ items = new int[capacity]; }
+
+		void add (int value) {
+			if (size == items.length){ items = Arrays.copyOf(items, size * 2); }
+			items[size++] = value;
+		}
+	}
+
+	/// Up to `limit` entries with key ≥ `startKey` in key order (unsigned bytewise, the default RocksDB comparator):
+	/// range partitioning ⇒ shard after shard; hash ⇒ k-way merge of all shard iterators
+	public List<Map.Entry<byte[],byte[]>> scan (byte[] startKey, int limit) {
+		val result = new ArrayList<Map.Entry<byte[],byte[]>>(Math.min(limit, 1024));
+		if (limit <= 0){ return result; }
+		if (splitPoints != null){
+			for (int s = shardOf(startKey); s < shards.size() && result.size() < limit; s++){
+				try (val it = db(s).newIterator(handles.get(s))){
+					for (it.seek(startKey); it.isValid() && result.size() < limit; it.next()){
+						result.add(new SimpleImmutableEntry<>(it.key(), it.value()));
+					}
+				}
+			}
+			return result;
+		}
+		val iterators = new ArrayList<RocksIterator>(shards.size());
+		try {
+			val heap = new PriorityQueue<Head>(shards.size(), Comparator.comparing(Head::key, Arrays::compareUnsigned));
+			for (int s = 0; s < shards.size(); s++){
+				val it = db(s).newIterator(handles.get(s));
+				iterators.add(it);
+				it.seek(startKey);
+				if (it.isValid()){ heap.add(new Head(it.key(), it)); }
+			}
+			while (!heap.isEmpty() && result.size() < limit){
+				val head = heap.poll();
+				val it = head.iterator();
+				result.add(new SimpleImmutableEntry<>(head.key(), it.value()));
+				it.next();
+				if (it.isValid()){ heap.add(new Head(it.key(), it)); }
+			}
+		} finally {
+			iterators.forEach(MagicUtils::close);
+		}
+		return result;
+	}
+
+	/// current key of a shard iterator (copied once: the comparator reads it many times)
+	private record Head (byte[] key, RocksIterator iterator) {}
+
+	/// Native memory of all shards vs the one shared budget
+	public String memoryReport () {
+		return budget.report(shards.stream().map(RocksDBConfig::rocksDB).toList());
+	}
+
+	/// Closes all shards in parallel (each flushes its memtables), then the shared budget
+	@Override
+	public void close () {
+		shards.stream()
+			.map(conf->CompletableFuture.runAsync(conf::close, MagicUtils::execute))
+			.toList()
+			.forEach(CompletableFuture::join);
+		MagicUtils.close(budget);
+	}
+}
@@ -0,0 +1,287 @@
+package examples.rocksdb;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.util.concurrent.RateLimiter;
+import examples.rocksdb.DurableWriter.Durability;
+import lombok.With;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.jspecify.annotations.Nullable;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.MutableColumnFamilyOptions;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.Status;
+import org.rocksdb.WriteBatch;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import static examples.MagicUtils.now;
+
+/// One keyspace per tenant: column family `tenant.<name>` created and dropped at runtime (drop = O(1): the files go away
+/// with the handle, see [RocksDBConfig#dropColumnFamily]). Tenants with the same quota share one [org.rocksdb.ColumnFamilyOptions]
+/// of [RocksDBConfig] ⇒ hundreds of CFs don't multiply native option/table objects. Limits per tenant:
+///
+/// - memtables: `memtableBytes × maxMemtables` (all of them still count against the one [MemoryBudget]) ⇒ a noisy tenant
+///   flushes early instead of taking everybody's memtable budget
+/// - write rate: bytes/s token bucket ([RateLimiter], 1 s burst); over it a writer waits ≤ `maxThrottle`, then gets
+///   [RocksDBException] `Busy` like [WriteAdmission]
+///
+/// Quotas are saved to `tenants.json` of the db dir; open the db with [#profiles] to get them back on reopen
+/// (opened without it, the constructor puts the saved memtable limits back with `SetOptions`).
+/// [#setQuota] changes a live tenant with `SetOptions` (no reopen).
+@Slf4j
+public final class TenantStore {
+	public static final String PREFIX = "tenant.";
+	static final String FILE = "tenants.json";
+	static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+	/// @param writeBytesPerSec 0 = unlimited
+	@With
+	public record Quota (long memtableBytes, int maxMemtables, long writeBytesPerSec) {
+		public static final Quota DEFAULT = new Quota(8L << 20, 2, 0);
+
+		public Quota {
+			if (memtableBytes < 64 * 1024 || maxMemtables < 1 || writeBytesPerSec < 0)
+					throw new IllegalArgumentException("Quota: memtableBytes ≥ 64 KB, maxMemtables ≥ 1, writeBytesPerSec ≥ 0, but "+ memtableBytes +", "+ maxMemtables +", "+ writeBytesPerSec);
+		}
+
+		ColumnFamilyProfile applyTo (ColumnFamilyProfile base) {
+			return base.withWriteBufferSize(memtableBytes).withMaxWriteBufferNumber(maxMemtables);
+		}
+	}
+
+	public final class Tenant {
+		private final String name;
+		private final ColumnFamilyHandle handle;
+		private volatile Quota quota;
+		private volatile @Nullable RateLimiter limiter;
+		private final LongAdder writes = new LongAdder(), bytes = new LongAdder(), throttled = new LongAdder(), rejected = new LongAdder();
+
+		Tenant (String name, ColumnFamilyHandle handle, Quota quota) {
+			this.name = name;
+			this.handle = handle;
+			quota(quota);
+		}//new
+
+		public String name (){ return name; }
+
+		public ColumnFamilyHandle handle (){ return handle; }
+
+		public Quota quota (){ return quota; }
+
+		private void quota (Quota q) {
+			quota = q;
+			val l = limiter;
+			if (q.writeBytesPerSec == 0){ limiter = null; }
+			else if (l == null){ limiter = RateLimiter.create(q.writeBytesPerSec); }
+			else { l.setRate(q.writeBytesPerSec); }
+		}
+
+		public long put (Durability durability, byte[] key, byte[] value) throws RocksDBException {
+			admit(key.length + value.length);
+			return conf.writer().put(durability, handle, key, value);
+		}
+
+		/// `batch` must write to [#handle] only
+		public long write (Durability durability, WriteBatch batch) throws RocksDBException {
+			admit(batch.getDataSize());
+			return conf.writer().write(durability, batch);
+		}
+
+		public long delete (Durability durability, byte[] key) throws RocksDBException {
+			admit(key.length);
+			return conf.writer().delete(durability, handle, key);
+		}
+
+		public byte @Nullable [] get (byte[] key) throws RocksDBException {
+			return conf.get(handle, key);
+		}
+
+		/// active + immutable memtables of this tenant now
+		public long memtableBytes () throws RocksDBException {
+			return conf.rocksDB().getLongProperty(handle, "rocksdb.cur-size-all-mem-tables");
+		}
+
+		private void admit (long size) throws RocksDBException {
+			val l = limiter;
+			if (l != null && !l.tryAcquire(permits(size))){
+				if (l.tryAcquire(permits(size), maxThrottle)){
+					throttled.increment();
+				} else {
+					rejected.increment();
+					throw new RocksDBException("TenantStore: "+ name +" is over its write quota of "+ quota.writeBytesPerSec +" bytes/s",
+						new Status(Status.Code.Busy, Status.SubCode.None, "tenant write quota"));
+				}
+			}
+			writes.increment();
+			bytes.add(size);
+		}
+
+		static int permits (long size){ return (int) Math.max(1, Math.min(Integer.MAX_VALUE, size)); }
+
+		@Override
+		public String toString () {
+			return String.format(Locale.ROOT, "%s: %s, %,d writes, %,d bytes, %,d throttled, %,d rejected",
+				name, quota, writes.sum(), bytes.sum(), throttled.sum(), rejected.sum());
+		}
+	}
+
+	private final RocksDBConfig conf;
+	private final Quota defaultQuota;
+	private final Duration maxThrottle;
+	private final ConcurrentHashMap<String,Tenant> tenants = new ConcurrentHashMap<>();
+
+	/// Registers the tenant CFs `conf` has opened, with their saved quotas: memtable limits a CF was opened with
+	/// (e.g. the base profile, `conf` opened without [#profiles]) are changed to its quota
+	public TenantStore (RocksDBConfig conf, Quota defaultQuota, Duration maxThrottle) throws IOException, RocksDBException {
+		this.conf = conf;
+		this.defaultQuota = defaultQuota;
+		this.maxThrottle = maxThrottle;
+		val saved = load(conf.path());
+		int changed = 0;
+		for (String cf : conf.getColumnFamilyNames()){
+			if (cf.startsWith(PREFIX)){
+				String name = cf.substring(PREFIX.length());
+				val quota = saved.getOrDefault(name, defaultQuota);
+				val handle = conf.handle(cf);
+				if (applyMemtableQuota(handle, quota)){ changed++; }
+				tenants.put(name, new Tenant(name, handle, quota));
+			}
+		}
+		if (changed > 0){ log.info("TenantStore: memtable quota of {} tenants set with SetOptions (open with TenantStore.profiles to skip it)", changed); }
+	}//new
+
+	/// CF profiles for [RocksDBConfig]: tenant CFs get their saved memtable quota (the default one if none), other CFs `base`
+	public static Function<String,ColumnFamilyProfile> profiles (Path dbDir, ColumnFamilyProfile base, Quota defaultQuota) {
+		final Map<String,Quota> saved;
+		try {
+			saved = load(dbDir);
+		} catch (IOException e){
+			throw new UncheckedIOException("profiles: can't read "+ dbDir.resolve(FILE), e);
+		}
+		return columnFamilyName->columnFamilyName.startsWith(PREFIX)
+				? saved.getOrDefault(columnFamilyName.substring(PREFIX.length()), defaultQuota).applyTo(base)
+				: base;
+	}
+
+	static Map<String,Quota> load (Path dbDir) throws IOException {
+		val file = dbDir.resolve(FILE);
+		return Files.exists(file) ? ColumnFamilyProfile.JSON.readValue(file.toFile(), new TypeReference<TreeMap<String,Quota>>(){})
+				: Map.of();
+	}
+
+	/// under this
+	private void save () throws IOException {
+		val m = new TreeMap<String,Quota>();
+		tenants.forEach((name, t)->m.put(name, t.quota));
+		val file = conf.path().resolve(FILE);
+		val tmp = file.resolveSibling(FILE +".tmp");
+		ColumnFamilyProfile.JSON.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), m);
+		Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	public Tenant create (String name) throws RocksDBException, IOException {
+		return create(name, defaultQuota);
+	}
+
+	/// New tenant = new CF with `quota`; existing ⇒ as it is (see [#setQuota])
+	public synchronized Tenant create (String name, Quota quota) throws RocksDBException, IOException {
+		Tenant t = tenants.get(name);
+		if (t != null){ return t; }
+		if (!NAME.matcher(name).matches())
+				throw new IllegalArgumentException("create: tenant name must match "+ NAME +": "+ name);
+		long start = now();
+		val handle = conf.createColumnFamily(PREFIX + name, quota.applyTo(ColumnFamilyProfile.fromSystemProperties()));
+		t = new Tenant(name, handle, quota);
+		tenants.put(name, t);
+		save();
+		log.debug("create: tenant {} in {} ms, {}", name, now() - start, quota);
+		return t;
+	}
+
+	/// Many new tenants with one CF batch (see [RocksDBConfig#createColumnFamilies]); existing ones stay as they are
+	public synchronized List<Tenant> create (Collection<String> names, Quota quota) throws RocksDBException, IOException {
+		for (String name : names){
+			if (!NAME.matcher(name).matches())
+					throw new IllegalArgumentException("create: tenant name must match "+ NAME +": "+ name);
+		}
+		long start = now();
+		val handles = conf.createColumnFamilies(names.stream().map(name->PREFIX + name).toList(), quota.applyTo(ColumnFamilyProfile.fromSystemProperties()));
+		val result = new ArrayList<Tenant>(names.size());
+		int i = 0;
+		for (String name : names){
+			val handle = handles.get(i++);
+			result.add(tenants.computeIfAbsent(name, n->new Tenant(n, handle, quota)));
+		}
+		save();
+		log.info("create: {} tenants in {} ms", names.size(), now() - start);
+		return result;
+	}
+
+	/// Drops the tenant's CF with all its data
+	/// @return false if there is no such tenant
+	public synchronized boolean drop (String name) throws RocksDBException, IOException {
+		if (tenants.remove(name) == null){ return false; }
+		conf.dropColumnFamily(PREFIX + name);
+		save();
+		return true;
+	}
+
+	/// New limits for a live tenant: memtable sizes via `SetOptions` (from the next memtable), the write rate at once
+	public synchronized Tenant setQuota (String name, Quota quota) throws RocksDBException, IOException {
+		val t = tenant(name);
+		applyMemtableQuota(t.handle, quota);
+		t.quota(quota);
+		save();
+		return t;
+	}
+
+	/// Live memtable limits of a tenant CF := its quota; `SetOptions` only if they differ (each call rewrites the OPTIONS file)
+	/// @return true if changed
+	private boolean applyMemtableQuota (ColumnFamilyHandle handle, Quota quota) throws RocksDBException {
+		long writeBufferSize = conf.memoryBudget.writeBufferSize(quota.memtableBytes);
+		val live = conf.rocksDB().getOptions(handle);
+		if (live.writeBufferSize() == writeBufferSize && live.maxWriteBufferNumber() == quota.maxMemtables){ return false; }
+		conf.rocksDB().setOptions(handle, MutableColumnFamilyOptions.builder()
+			.setWriteBufferSize(writeBufferSize)
+			.setMaxWriteBufferNumber(quota.maxMemtables)
+			.build());
+		return true;
+	}
+
+	public Tenant tenant (String name) throws IllegalArgumentException {
+		val t = tenants.get(name);
+		if (t != null)
+				return t;
+		else
+				throw new IllegalArgumentException("tenant: NOT found: "+ name);
+	}
+
+	public @Nullable Tenant tenantOrNull (String name){ return tenants.get(name); }
+
+	public Set<String> names (){ return Collections.unmodifiableSet(tenants.keySet()); }
+
+	public int size (){ return tenants.size(); }
+
+	@Override
+	public String toString () {
+		return "TenantStore: "+ tenants.size() +" tenants in "+ conf.path() +", default "+ defaultQuota +", "+ conf.sharedOptionsCount() +" distinct CF options";
+	}
+}
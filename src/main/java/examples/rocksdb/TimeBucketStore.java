@@ -0,0 +1,154 @@
+package examples.rocksdb;
+
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.jspecify.annotations.Nullable;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static examples.MagicUtils.now;
+
+/// Time-partitioned store: data is written into rolling column families (one per `bucket` period, e.g. a day)
+/// named `prefix@<ISO start of bucket>`. Expiry drops the whole CF: O(1), no tombstones, no compaction work,
+/// expired bytes leave disk and cache at once (vs [TtlDB][org.rocksdb.TtlDB]: removed only by compaction).
+///
+/// Reads fan out newest → oldest bucket; each bucket is asked `keyMayExist` (memtable + bloom filter) first.
+/// Key range expiry inside buckets: [#purgeRange] (`DeleteRange` tombstone).
+@Slf4j
+public final class TimeBucketStore {
+	static final char SEPARATOR = '@';
+
+	private final RocksDBConfig conf;
+	private final String prefix;
+	private final long bucketMillis;
+	private final int retention;
+	/// newest first; copy-on-write
+	private volatile List<Bucket> buckets;
+
+	record Bucket (long index, String name, ColumnFamilyHandle handle) {}
+
+	/// @param prefix name of the store (CF name prefix)
+	/// @param bucket period of one CF (e.g. 1 day)
+	/// @param retention number of buckets to keep (e.g. 7 days)
+	public TimeBucketStore (RocksDBConfig conf, String prefix, Duration bucket, int retention) {
+		if (prefix.indexOf(SEPARATOR) >= 0 || retention < 1 || bucket.toMillis() <= 0)
+				throw new IllegalArgumentException("TimeBucketStore: prefix without "+ SEPARATOR +", retention ≥ 1, bucket > 0, but "+ prefix +", "+ retention +", "+ bucket);
+		this.conf = conf;
+		this.prefix = prefix;
+		this.bucketMillis = bucket.toMillis();
+		this.retention = retention;
+		// buckets created before restart
+		val list = new ArrayList<Bucket>();
+		for (String name : conf.getColumnFamilyNames()){
+			if (name.startsWith(prefix + SEPARATOR)){
+				long index = Instant.parse(name.substring(prefix.length() + 1)).toEpochMilli() / bucketMillis;
+				list.add(new Bucket(index, name, conf.handle(name)));
+			}
+		}
+		list.sort(Comparator.comparingLong(Bucket::index).reversed());
+		buckets = List.copyOf(list);
+	}//new
+
+	/// CF of a time bucket? (they get bloom filters on all levels: most fan-out lookups are misses)
+	public static boolean isBucket (String columnFamilyName) {
+		return columnFamilyName.indexOf(SEPARATOR) > 0;
+	}
+
+	public List<String> bucketNames () {
+		return buckets.stream().map(Bucket::name).toList();
+	}
+
+	public void put (byte[] key, byte[] value) throws RocksDBException {
+		put(System.currentTimeMillis(), key, value);
+	}
+
+	/// Write into the bucket of `timestampMillis` (created on demand)
+	/// @throws IllegalArgumentException the bucket is already expired
+	public void put (long timestampMillis, byte[] key, byte[] value) throws RocksDBException {
+		conf.rocksDB().put(bucket(timestampMillis / bucketMillis).handle(), key, value);
+	}
+
+	/// newest → oldest; bloom filter/memtable check before each real lookup
+	public byte @Nullable [] get (byte[] key) throws RocksDBException {
+		val db = conf.rocksDB();
+		for (Bucket b : buckets){
+			if (!db.keyMayExist(b.handle(), key, null)){ continue; }// definitely not here
+			byte[] value = db.get(b.handle(), key);
+			if (value != null){ return value; }
+		}
+		return null;
+	}
+
+	/// Delete the key in all buckets (one atomic batch)
+	public void delete (byte[] key) throws RocksDBException {
+		try (val batch = new WriteBatch(); val wo = new WriteOptions()){
+			for (Bucket b : buckets){
+				batch.delete(b.handle(), key);
+			}
+			conf.rocksDB().write(wo, batch);
+		}
+	}
+
+	/// Key range expiry [from, to) in all buckets: one range tombstone per bucket instead of a tombstone per key
+	public void purgeRange (byte[] fromInclusive, byte[] toExclusive) throws RocksDBException {
+		for (Bucket b : buckets){
+			conf.rocksDB().deleteRange(b.handle(), fromInclusive, toExclusive);
+		}
+	}
+
+	/// Drop buckets older than `retention` (call it from a scheduler, e.g. once per bucket period)
+	/// @return number of dropped buckets
+	public int expire () throws RocksDBException {
+		return expire(System.currentTimeMillis());
+	}
+
+	public synchronized int expire (long nowMillis) throws RocksDBException {
+		long oldestAlive = nowMillis / bucketMillis - retention + 1;
+		val keep = new ArrayList<Bucket>();
+		val drop = new ArrayList<Bucket>();
+		for (Bucket b : buckets){
+			(b.index() >= oldestAlive ? keep : drop).add(b);
+		}
+		if (drop.isEmpty()){ return 0; }
+		buckets = List.copyOf(keep);// readers don't see them anymore
+		long t = now();
+		for (Bucket b : drop){
+			conf.dropColumnFamily(b.name());
+		}
+		log.info("expire: dropped {} buckets {} in {} ms", drop.size(), drop.stream().map(Bucket::name).toList(), now() - t);
+		return drop.size();
+	}
+
+	private Bucket bucket (long index) throws RocksDBException {
+		List<Bucket> list = buckets;
+		if (!list.isEmpty() && list.get(0).index() == index){ return list.get(0); }// fast path: current bucket
+		for (Bucket b : list){
+			if (b.index() == index){ return b; }
+		}
+		return createBucket(index);
+	}
+
+	private synchronized Bucket createBucket (long index) throws RocksDBException {
+		for (Bucket b : buckets){
+			if (b.index() == index){ return b; }// created by other thread
+		}
+		if (index <= System.currentTimeMillis() / bucketMillis - retention)
+				throw new IllegalArgumentException("createBucket: bucket is already expired: "+ Instant.ofEpochMilli(index * bucketMillis));
+		String name = prefix + SEPARATOR + Instant.ofEpochMilli(index * bucketMillis);
+		val b = new Bucket(index, name, conf.createColumnFamily(name));
+		val list = new ArrayList<>(buckets);
+		list.add(b);
+		list.sort(Comparator.comparingLong(Bucket::index).reversed());
+		buckets = List.copyOf(list);
+		log.info("createBucket: {}", name);
+		return b;
+	}
+}
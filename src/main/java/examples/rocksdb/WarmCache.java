@@ -0,0 +1,171 @@
+package examples.rocksdb;
+
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.jspecify.annotations.Nullable;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BooleanSupplier;
+
+import static examples.MagicUtils.now;
+
+/// Warm restart: remembers a sample of recently read keys (per CF) and, after the next open,
+/// prefetches them with `multiGet` in background ⇒ hot blocks are in the block cache before the traffic needs them.
+///
+/// Frequently read keys are sampled more often ⇒ the ring of the last N sampled keys ≈ hot key set.
+/// `-Drocksdb.warm.sample=16` (1 of N reads is recorded), `-Drocksdb.warm.keys=100000` (per CF; allocated on the CF's first sampled read).
+/// CFs created at runtime get a ring with [#add], dropped ones lose it with [#remove].
+@Slf4j
+final class WarmCache {
+	static final String FILE_NAME = "warm-keys.bin";
+	private static final int VERSION = 1;
+	private static final int BATCH = 512;
+
+	private final Path file;
+	private final int sampleRate;
+	private final int keysPerCf;
+	private final Map<ColumnFamilyHandle,KeyRing> rings = Collections.synchronizedMap(new IdentityHashMap<>());
+
+	WarmCache (Path dbDir, Map<String,ColumnFamilyHandle> handles) {
+		file = dbDir.resolve(FILE_NAME);
+		sampleRate = Math.max(1, Integer.getInteger("rocksdb.warm.sample", 16));
+		keysPerCf = Math.max(1, Integer.getInteger("rocksdb.warm.keys", 100_000));
+		handles.forEach(this::add);
+	}//new
+
+	private static final class KeyRing {
+		final String columnFamilyName;
+		final int capacity;
+		/// null until the first key: hundreds of tenant CFs that are never read cost nothing
+		volatile @Nullable AtomicReferenceArray<byte[]> keys;
+		final AtomicLong next = new AtomicLong();
+
+		KeyRing (String columnFamilyName, int capacity) {
+			this.columnFamilyName = columnFamilyName;
+			this.capacity = capacity;
+		}
+
+		void add (byte[] key) {
+			var k = keys;
+			if (k == null){
+				synchronized (this){
+					k = keys;
+					if (k == null){ keys = k = new AtomicReferenceArray<>(capacity); }
+				}
+			}
+			k.lazySet((int)(next.getAndIncrement() % capacity), key);
+		}
+	}
+
+	/// CF opened or created at runtime ([RocksDBConfig#createColumnFamily], tenants): its reads are sampled from now on
+	void add (String columnFamilyName, ColumnFamilyHandle handle) {
+		rings.putIfAbsent(handle, new KeyRing(columnFamilyName, keysPerCf));
+	}
+
+	/// CF dropped: its keys are neither saved nor prefetched any more
+	void remove (ColumnFamilyHandle handle) {
+		rings.remove(handle);
+	}
+
+	/// hot path: cheap random sampling, no locks
+	void record (ColumnFamilyHandle handle, byte[] key) {
+		if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0){ return; }
+		KeyRing ring = rings.get(handle);
+		if (ring != null){ ring.add(key); }
+	}
+
+	/// write the hot key set: tmp file + atomic move (a crash never leaves a half-written file)
+	synchronized void save () throws IOException {
+		long t = now();
+		Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+		int total = 0;
+		try (val out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024))){
+			out.writeInt(VERSION);
+			List<KeyRing> snapshot;
+			synchronized (rings){ snapshot = new ArrayList<>(rings.values()); }
+			snapshot.removeIf(ring->ring.keys == null);// never read since the open
+			out.writeInt(snapshot.size());
+			for (KeyRing ring : snapshot){
+				val ringKeys = Objects.requireNonNull(ring.keys);// once allocated, never null again
+				val keys = new ArrayList<byte[]>(ringKeys.length());
+				for (int i = 0; i < ringKeys.length(); i++){
+					byte[] key = ringKeys.get(i);
+					if (key != null){ keys.add(key); }
+				}
+				out.writeUTF(ring.columnFamilyName);
+				out.writeInt(keys.size());
+				for (byte[] key : keys){
+					out.writeInt(key.length);
+					out.write(key);
+				}
+				total += keys.size();
+			}
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		log.info("WarmCache.save: {} keys → {} in {} ms", total, file, now() - t);
+	}
+
+	/// Read the saved key set and pull the blocks into the block cache (values are thrown away)
+	/// @param stop checked before every batch: the db is closing ⇒ the handles are about to be closed
+	/// @return number of prefetched keys
+	int prefetch (RocksDB db, Map<String,ColumnFamilyHandle> handles, BooleanSupplier stop) throws IOException, RocksDBException {
+		if (!Files.isReadable(file)){ return 0; }
+		long t = now();
+		val keysByCf = new LinkedHashMap<String,List<byte[]>>();
+		try (val in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))){
+			if (in.readInt() != VERSION){
+				log.warn("WarmCache.prefetch: unknown version of {}", file);
+				return 0;
+			}
+			for (int cf = in.readInt(); cf > 0; cf--){
+				String columnFamilyName = in.readUTF();
+				int count = in.readInt();
+				val keys = new ArrayList<byte[]>(count);
+				for (int i = 0; i < count; i++){
+					byte[] key = new byte[in.readInt()];
+					in.readFully(key);
+					keys.add(key);
+				}
+				keysByCf.put(columnFamilyName, keys);
+			}
+		}
+		int total = 0;
+		boolean stopped = false;
+		for (val e : keysByCf.entrySet()){
+			ColumnFamilyHandle handle = handles.get(e.getKey());
+			if (handle == null){ continue; }// CF was dropped
+			List<byte[]> keys = e.getValue();
+			// the next save must not forget the keys that were hot before the restart (even if we stop: close saves them)
+			KeyRing ring = rings.get(handle);
+			if (ring != null){ keys.forEach(ring::add); }
+			for (int from = 0; from < keys.size() && !stopped; from += BATCH){
+				if (stop.getAsBoolean()){ stopped = true; break; }
+				List<byte[]> batch = keys.subList(from, Math.min(keys.size(), from + BATCH));
+				db.multiGetAsList(Collections.nCopies(batch.size(), handle), batch);
+				total += batch.size();
+			}
+		}
+		log.info("WarmCache.prefetch: {} keys from {} in {} ms{}", total, file, now() - t, stopped ? " (stopped: closing)" : "");
+		return total;
+	}
+}
@@ -0,0 +1,226 @@
+package examples.rocksdb;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.Status;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/// Admission control in front of the RocksDB write path. RocksDB itself stalls writers when L0 files or pending compaction bytes
+/// grow (`delayed_write_rate`, then a full stop) ⇒ every writer waits seconds at once. Here a sampler watches the same signals
+/// (`rocksdb.actual-delayed-write-rate`, `rocksdb.is-write-stopped`, `rocksdb.num-files-at-level0`,
+/// `rocksdb.estimate-pending-compaction-bytes`) and adapts the number of in-flight writes (AIMD):
+///
+/// - stop / delayed writes → limit × 0.5
+/// - pressure (L0 / slowdown trigger, pending / soft limit) > 80% → limit × 0.9
+/// - otherwise → limit + `increaseStep`
+///
+/// Writers over the limit wait up to `maxWait` in a bounded queue, then are rejected early with
+/// [RocksDBException] status `Busy` (callers already handle RocksDBException for writes).
+@Slf4j
+public final class WriteAdmission implements AutoCloseable {
+	/// RocksDB defaults: `level0_slowdown_writes_trigger`, `soft_pending_compaction_bytes_limit`
+	public static final int L0_SLOWDOWN_TRIGGER = 20;
+	public static final long SOFT_PENDING_COMPACTION_BYTES = 64L << 30;
+
+	private final RocksDBConfig conf;
+	private final List<ColumnFamilyHandle> watched;
+	private final int minLimit, maxLimit, increaseStep, maxQueued;
+	private final long maxWaitNanos;
+	private final int l0SlowdownTrigger;
+	private final long softPendingCompactionBytes;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition available = lock.newCondition();
+	private double limit;// guarded by lock
+	private int inFlight, queued;// guarded by lock
+	private volatile double pressure;
+	private volatile boolean stalled;
+	private final LongAdder admitted = new LongAdder(), waited = new LongAdder(), rejected = new LongAdder();
+	private final AtomicBoolean closed = new AtomicBoolean();
+	private final Thread sampler;
+
+	/// @param watched column families whose L0/pending compaction bytes are watched (the write-heavy ones)
+	public WriteAdmission (RocksDBConfig conf, List<ColumnFamilyHandle> watched, int minLimit, int maxLimit, Duration maxWait, int maxQueued) {
+		this(conf, watched, minLimit, maxLimit, Math.max(1, maxLimit / 32), maxWait, maxQueued, Duration.ofMillis(100), L0_SLOWDOWN_TRIGGER, SOFT_PENDING_COMPACTION_BYTES);
+	}//new
+
+	public WriteAdmission (RocksDBConfig conf, List<ColumnFamilyHandle> watched, int minLimit, int maxLimit, int increaseStep, Duration maxWait, int maxQueued,
+			Duration samplePeriod, int l0SlowdownTrigger, long softPendingCompactionBytes) {
+		if (minLimit < 1 || maxLimit < minLimit || increaseStep < 1)
+				throw new IllegalArgumentException("WriteAdmission: 1 ≤ minLimit ≤ maxLimit, increaseStep ≥ 1, but "+ minLimit +", "+ maxLimit +", "+ increaseStep);
+		this.conf = conf;
+		this.watched = List.copyOf(watched);
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.increaseStep = increaseStep;
+		this.maxWaitNanos = maxWait.toNanos();
+		this.maxQueued = maxQueued;
+		this.l0SlowdownTrigger = l0SlowdownTrigger;
+		this.softPendingCompactionBytes = softPendingCompactionBytes;
+		limit = maxLimit;
+		// platform thread: property reads are JNI calls; must keep sampling when virtual carriers are busy
+		sampler = Thread.ofPlatform().daemon().name("WriteAdmission").start(()->{
+			while (!closed.get()){
+				try {
+					Thread.sleep(samplePeriod);
+				} catch (InterruptedException e){
+					break;// close
+				}
+				if (closed.get()){ break; }
+				try {
+					sample();
+				} catch (Throwable e){
+					if (!closed.get()){ log.warn("sample: failed to read stall properties", e); }
+				}
+			}
+		});
+	}//new
+
+	/// One control step: read the stall signals and move the limit
+	void sample () throws RocksDBException {
+		val db = conf.rocksDB();
+		boolean stopped = db.getLongProperty("rocksdb.is-write-stopped") != 0;
+		long delayedRate = db.getLongProperty("rocksdb.actual-delayed-write-rate");
+		double p = 0;
+		for (ColumnFamilyHandle h : watched){
+			p = Math.max(p, Long.parseLong(db.getProperty(h, "rocksdb.num-files-at-level0")) / (double) l0SlowdownTrigger);
+			p = Math.max(p, db.getLongProperty(h, "rocksdb.estimate-pending-compaction-bytes") / (double) softPendingCompactionBytes);
+		}
+		pressure = p;
+		stalled = stopped || delayedRate > 0;
+		lock.lock();
+		try {
+			double before = limit;
+			if (stalled)
+					limit = Math.max(minLimit, limit * 0.5);// multiplicative decrease
+			else if (p > 0.8)
+					limit = Math.max(minLimit, limit * 0.9);
+			else
+					limit = Math.min(maxLimit, limit + increaseStep);// additive increase
+			if (limit > before){ available.signalAll(); }
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/// Wait for a write slot: bounded queue, bounded wait
+	/// @throws RocksDBException status `Busy`: rejected (queue full or waited too long)
+	public void acquire () throws RocksDBException {
+		lock.lock();
+		try {
+			if (inFlight < (int) limit){
+				inFlight++;
+				admitted.increment();
+				return;
+			}
+			if (queued >= maxQueued){ throw reject("queue is full"); }
+			queued++;
+			waited.increment();
+			try {
+				long nanos = maxWaitNanos;
+				while (inFlight >= (int) limit){
+					if (nanos <= 0){ throw reject("waited " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + " ms"); }
+					nanos = available.awaitNanos(nanos);
+				}
+			} catch (InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw reject("interrupted");
+			} finally {
+				queued--;
+			}
+			inFlight++;
+			admitted.increment();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void release () {
+		lock.lock();
+		try {
+			inFlight--;
+			available.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private RocksDBException reject (String reason) {
+		rejected.increment();
+		return new RocksDBException("WriteAdmission: rejected, " + reason + "; " + this, new Status(Status.Code.Busy, Status.SubCode.None, reason));
+	}
+
+	public <T> T admit (Callable<T> write) throws Exception {
+		acquire();
+		try {
+			return write.call();
+		} finally {
+			release();
+		}
+	}
+
+	public void put (ColumnFamilyHandle handle, byte[] key, byte[] value) throws RocksDBException {
+		acquire();
+		try {
+			conf.rocksDB().put(handle, key, value);
+		} finally {
+			release();
+		}
+	}
+
+	public void write (WriteOptions writeOptions, WriteBatch batch) throws RocksDBException {
+		acquire();
+		try {
+			conf.rocksDB().write(writeOptions, batch);
+		} finally {
+			release();
+		}
+	}
+
+	public int limit () {
+		lock.lock();
+		try {
+			return (int) limit;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long admitted (){ return admitted.sum(); }
+
+	public long rejected (){ return rejected.sum(); }
+
+	@Override
+	public String toString () {
+		lock.lock();
+		try {
+			return String.format(Locale.ENGLISH, "limit=%d in-flight=%d queued=%d pressure=%.0f%%%s admitted=%d waited=%d rejected=%d",
+				(int) limit, inFlight, queued, pressure * 100, stalled ? " STALL" : "", admitted.sum(), waited.sum(), rejected.sum());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/// Stops the sampler (call before the db is closed: a property read on a closed db crashes the JVM)
+	@Override
+	public void close () {
+		if (closed.compareAndSet(false, true)){
+			sampler.interrupt();
+			Uninterruptibles.joinUninterruptibly(sampler);
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package examples.ycsb;
+
+import examples.MagicUtils;
+import examples.bitcask.BitcaskStore;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/// [BitcaskStore]: appends + in-memory keydir, no LSM compaction. Hash index: no ordered scans (workload E is not supported).
+/// `-Dbitcask.path` (default: temp dir) and [BitcaskStore.Options#fromSystemProperties]
+public final class BitcaskEngine implements KeyValueEngine {
+	private final BitcaskStore store;
+
+	public BitcaskEngine () throws IOException {
+		this(new BitcaskStore(defaultPath(), BitcaskStore.Options.fromSystemProperties()));
+	}//new
+
+	public BitcaskEngine (BitcaskStore store) {
+		this.store = store;
+	}//new
+
+	private static Path defaultPath () throws IOException {
+		String path = System.getProperty("bitcask.path");
+		return path != null ? Path.of(path)
+				: Files.createTempDirectory("bitcask");
+	}
+
+	@Override public String name (){ return "bitcask"; }
+
+	public BitcaskStore store (){ return store; }
+
+	@Override
+	public byte @Nullable [] read (byte[] key) throws IOException {
+		return store.get(key);
+	}
+
+	@Override
+	public void update (byte[] key, byte[] value) throws IOException {
+		store.put(key, value);
+	}
+
+	@Override
+	public int scan (byte[] startKey, int count) {
+		throw new UnsupportedOperationException("scan: BitcaskEngine is a hash index (no key order)");
+	}
+
+	@Override
+	public void close () {
+		MagicUtils.close(store);
+	}
+}
@@ -0,0 +1,69 @@
+package examples.ycsb;
+
+import java.util.Locale;
+
+/// Log-linear latency histogram (HdrHistogram-like, ≤ 3% error): 32 linear sub-buckets per power of 2, 0 ns … 2^63 ns.
+/// NOT thread-safe: one per client thread, [#add] them after the run.
+public final class Histogram {
+	private static final int SUB_BITS = 5;
+	private static final int SUB = 1 << SUB_BITS;
+	private final long[] counts = new long[(64 - SUB_BITS + 1) * SUB];
+	private long count, sum, max;
+
+	public void record (long nanos) {
+		long v = Math.max(0, nanos);
+		counts[index(v)]++;
+		count++;
+		sum += v;
+		if (v > max){ max = v; }
+	}
+
+	static int index (long v) {
+		if (v < SUB){ return (int) v; }
+		int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+		return shift * SUB + (int)(v >>> shift);
+	}
+
+	/// middle of the bucket
+	static long value (int index) {
+		if (index < 2 * SUB){ return index; }
+		int shift = index / SUB - 1;
+		long low = (long)(index % SUB + SUB) << shift;
+		return low + (1L << shift) / 2;
+	}
+
+	public Histogram add (Histogram other) {
+		for (int i = 0; i < counts.length; i++){
+			counts[i] += other.counts[i];
+		}
+		count += other.count;
+		sum += other.sum;
+		max = Math.max(max, other.max);
+		return this;
+	}
+
+	public long count (){ return count; }
+
+	public long max (){ return max; }
+
+	public double mean (){ return count > 0 ? sum / (double) count : 0; }
+
+	/// @param percentile 0..100, e.g. 99.9
+	public long percentile (double percentile) {
+		if (count == 0){ return 0; }
+		long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++){
+			seen += counts[i];
+			if (seen >= rank){ return Math.min(value(i), max); }
+		}
+		return max;
+	}
+
+	/// µs
+	@Override
+	public String toString () {
+		return String.format(Locale.ENGLISH, "n=%d mean=%.1f p50=%.1f p95=%.1f p99=%.1f p99.9=%.1f max=%.1f µs",
+			count, mean() / 1000, percentile(50) / 1000.0, percentile(95) / 1000.0, percentile(99) / 1000.0, percentile(99.9) / 1000.0, max / 1000.0);
+	}
+}
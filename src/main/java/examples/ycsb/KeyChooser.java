@@ -0,0 +1,120 @@
+package examples.ycsb;
+
+import lombok.val;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/// Picks the next key number in `[0, itemCount)`; `itemCount` grows with inserts (workloads D, E).
+/// Instances are NOT thread-safe (zipfian caches its zeta): one chooser per client thread.
+///
+/// Algorithms as in YCSB (`ZipfianGenerator`, `ScrambledZipfianGenerator`, `HotspotIntegerGenerator`, `SkewedLatestGenerator`)
+/// @see <a href="https://github.com/brianfrankcooper/YCSB/tree/master/core/src/main/java/site/ycsb/generator">YCSB generators</a>
+public interface KeyChooser {
+	long next (long itemCount);
+
+	enum Distribution {
+		UNIFORM, ZIPFIAN, SCRAMBLED_ZIPFIAN, HOTSPOT, LATEST;
+
+		public KeyChooser newChooser () {
+			return switch (this){
+				case UNIFORM -> n->ThreadLocalRandom.current().nextLong(n);
+				case ZIPFIAN -> new Zipfian(Zipfian.ZIPFIAN_CONSTANT);
+				case SCRAMBLED_ZIPFIAN -> new ScrambledZipfian();
+				case HOTSPOT -> new Hotspot(0.2, 0.8);
+				case LATEST -> new Latest();
+			};
+		}
+	}
+
+	/// Item 0 is the most popular: P(i) ∝ 1/(i+1)^θ. Gray et al., "Quickly Generating Billion-Record Synthetic Databases"
+	final class Zipfian implements KeyChooser {
+		public static final double ZIPFIAN_CONSTANT = 0.99;
+		final double theta, zeta2theta, alpha;
+		long countForZeta;
+		double zetan, eta;
+
+		public Zipfian (double theta) {
+			this.theta = theta;
+			zeta2theta = zeta(0, 2, theta, 0);
+			alpha = 1.0 / (1.0 - theta);
+		}//new
+
+		/// with precomputed zeta of a huge item count (zeta is O(n) to compute)
+		Zipfian (double theta, long itemCount, double zetan) {
+			this(theta);
+			countForZeta = itemCount;
+			this.zetan = zetan;
+			eta = eta(itemCount);
+		}//new
+
+		static double zeta (long from, long to, double theta, double initialSum) {
+			double sum = initialSum;
+			for (long i = from; i < to; i++){
+				sum += 1 / Math.pow(i + 1, theta);
+			}
+			return sum;
+		}
+
+		double eta (long n) {
+			return (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta2theta / zetan);
+		}
+
+		@Override
+		public long next (long itemCount) {
+			if (itemCount != countForZeta){// incremental: the item count only grows in practice
+				zetan = itemCount > countForZeta ? zeta(countForZeta, itemCount, theta, zetan) : zeta(0, itemCount, theta, 0);
+				countForZeta = itemCount;
+				eta = eta(itemCount);
+			}
+			double u = ThreadLocalRandom.current().nextDouble();
+			double uz = u * zetan;
+			if (uz < 1.0){ return 0; }
+			if (uz < 1.0 + Math.pow(0.5, theta)){ return Math.min(1, itemCount - 1); }
+			return Math.min((long)(itemCount * Math.pow(eta * u - eta + 1, alpha)), itemCount - 1);
+		}
+	}
+
+	/// Zipfian popularity, but the hot items are spread over the key space (hash of a zipfian over 10B items)
+	final class ScrambledZipfian implements KeyChooser {
+		static final long ITEM_COUNT = 10_000_000_000L;
+		/// zeta(10B, 0.99) precomputed by YCSB
+		static final double ZETAN = 26.46902820178302;
+		final Zipfian zipfian = new Zipfian(Zipfian.ZIPFIAN_CONSTANT, ITEM_COUNT, ZETAN);
+
+		@Override
+		public long next (long itemCount) {
+			return Long.remainderUnsigned(fnv64(zipfian.next(ITEM_COUNT)), itemCount);
+		}
+	}
+
+	/// `hotOpnFraction` of operations go to the first `hotSetFraction` of keys, uniform inside both sets
+	record Hotspot (double hotSetFraction, double hotOpnFraction) implements KeyChooser {
+		@Override
+		public long next (long itemCount) {
+			val r = ThreadLocalRandom.current();
+			long hot = Math.max(1, (long)(itemCount * hotSetFraction));
+			if (hot >= itemCount || r.nextDouble() < hotOpnFraction){ return r.nextLong(hot); }
+			return hot + r.nextLong(itemCount - hot);
+		}
+	}
+
+	/// The most recently inserted keys are the hottest (zipfian distance from the newest key)
+	final class Latest implements KeyChooser {
+		final Zipfian zipfian = new Zipfian(Zipfian.ZIPFIAN_CONSTANT);
+
+		@Override
+		public long next (long itemCount) {
+			return itemCount - 1 - zipfian.next(itemCount);
+		}
+	}
+
+	/// FNV-1a 64 of the 8 bytes of `v`
+	static long fnv64 (long v) {
+		long hash = 0xCBF29CE484222325L;
+		for (int i = 0; i < 8; i++, v >>>= 8){
+			hash ^= v & 0xFF;
+			hash *= 0x100000001B3L;
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,39 @@
+package examples.ycsb;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.Locale;
+
+/// Minimal storage contract the workload generator drives: any engine of the project (or of tests) plugs in with an adapter.
+/// Implementations must be thread-safe: every client thread calls them concurrently.
+public interface KeyValueEngine extends AutoCloseable {
+	String name ();
+
+	byte @Nullable [] read (byte[] key) throws Exception;
+
+	void update (byte[] key, byte[] value) throws Exception;
+
+	/// new record; most engines don't distinguish it from update
+	default void insert (byte[] key, byte[] value) throws Exception {
+		update(key, value);
+	}
+
+	/// Ordered scan of up to `count` records starting at `startKey`
+	/// @return number of records actually read
+	int scan (byte[] startKey, int count) throws Exception;
+
+	@Override
+	default void close () {}
+
+	/// `rocksdb`, `sharded` (`-Drocksdb.shards=N`), `memory`, `offheap`, `bitcask` or a class name of an engine with a public no-arg constructor (e.g. a test adapter)
+	static KeyValueEngine create (String engine) throws Exception {
+		return switch (engine.toLowerCase(Locale.ROOT)){
+			case "rocksdb" -> new RocksDBEngine();
+			case "sharded" -> new ShardedEngine();
+			case "memory" -> new MemoryEngine();
+			case "offheap" -> new OffHeapEngine();
+			case "bitcask" -> new BitcaskEngine();
+			default -> (KeyValueEngine) Class.forName(engine).getDeclaredConstructor().newInstance();
+		};
+	}
+}
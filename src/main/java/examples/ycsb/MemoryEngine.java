@@ -0,0 +1,32 @@
+package examples.ycsb;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/// On-heap ordered map: the "no storage engine" baseline (generator + JVM overhead only)
+public final class MemoryEngine implements KeyValueEngine {
+	private final ConcurrentSkipListMap<byte[],byte[]> map = new ConcurrentSkipListMap<>(Arrays::compareUnsigned);
+
+	@Override public String name (){ return "memory"; }
+
+	@Override
+	public byte @Nullable [] read (byte[] key) {
+		return map.get(key);
+	}
+
+	@Override
+	public void update (byte[] key, byte[] value) {
+		map.put(key, value);
+	}
+
+	@Override
+	public int scan (byte[] startKey, int count) {
+		int n = 0;
+		for (var it = map.tailMap(startKey).values().iterator(); it.hasNext() && n < count; n++){
+			it.next();
+		}
+		return n;
+	}
+}
@@ -0,0 +1,37 @@
+package examples.ycsb;
+
+import com.google.common.primitives.Longs;
+import examples.offheap.OffHeapLongMap;
+import org.jspecify.annotations.Nullable;
+
+/// [OffHeapLongMap]: the ceiling for in-memory point lookups without JNI and without per-entry heap objects.
+/// YCSB keys are 8 bytes ⇒ one `long`. Hash map: no ordered scans (workload E is not supported).
+/// `-Doffheap.expected=1000000` initial capacity (it grows anyway)
+public final class OffHeapEngine implements KeyValueEngine {
+	private final OffHeapLongMap map = new OffHeapLongMap(Long.getLong("offheap.expected", 1_000_000));
+
+	@Override public String name (){ return "offheap"; }
+
+	public OffHeapLongMap map (){ return map; }
+
+	static long key (byte[] key) {
+		if (key.length != Long.BYTES)
+				throw new IllegalArgumentException("OffHeapEngine: keys are 8-byte longs, but "+ key.length);
+		return Longs.fromByteArray(key);
+	}
+
+	@Override
+	public byte @Nullable [] read (byte[] key) {
+		return map.get(key(key));
+	}
+
+	@Override
+	public void update (byte[] key, byte[] value) {
+		map.put(key(key), value);
+	}
+
+	@Override
+	public int scan (byte[] startKey, int count) {
+		throw new UnsupportedOperationException("scan: OffHeapEngine is a hash map (no key order)");
+	}
+}
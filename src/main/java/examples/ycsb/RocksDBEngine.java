@@ -0,0 +1,60 @@
+package examples.ycsb;
+
+import examples.MagicUtils;
+import examples.rocksdb.DurableWriter.Durability;
+import examples.rocksdb.RocksDBConfig;
+import lombok.val;
+import org.jspecify.annotations.Nullable;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDBException;
+
+/// [RocksDBConfig] runtime column family `ycsb` (no TTL); all cache/compaction settings come from `-Drocksdb.*`,
+/// updates are written with `-Drocksdb.durability=WAL` ([DurableWriter.Durability])
+public final class RocksDBEngine implements KeyValueEngine {
+	private final RocksDBConfig conf;
+	private final ColumnFamilyHandle handle;
+	private final boolean owner;
+	private final Durability durability = Durability.fromSystemProperties();
+
+	public RocksDBEngine () throws RocksDBException {
+		this(new RocksDBConfig(), "ycsb", true);
+	}//new
+
+	/// @param owner close `conf` on [#close]
+	public RocksDBEngine (RocksDBConfig conf, String columnFamilyName, boolean owner) throws RocksDBException {
+		this.conf = conf;
+		this.handle = conf.createColumnFamily(columnFamilyName);
+		this.owner = owner;
+	}//new
+
+	@Override public String name (){ return "rocksdb"; }
+
+	public RocksDBConfig conf (){ return conf; }
+
+	@Override
+	public byte @Nullable [] read (byte[] key) throws RocksDBException {
+		return conf.get(handle, key);
+	}
+
+	@Override
+	public void update (byte[] key, byte[] value) throws RocksDBException {
+		conf.writer().put(durability, handle, key, value);
+	}
+
+	@Override
+	public int scan (byte[] startKey, int count) {
+		int n = 0;
+		try (val it = conf.rocksDB().newIterator(handle)){
+			for (it.seek(startKey); it.isValid() && n < count; it.next()){
+				it.value();// the value is copied out like a real reader does
+				n++;
+			}
+		}
+		return n;
+	}
+
+	@Override
+	public void close () {
+		if (owner){ MagicUtils.close(conf); }
+	}
+}
@@ -0,0 +1,41 @@
+package examples.ycsb;
+
+import examples.MagicUtils;
+import examples.rocksdb.ShardedStore;
+
+/// [ShardedStore]: `-Drocksdb.shards=N` RocksDB instances (N WALs) with one shared memory budget
+public final class ShardedEngine implements KeyValueEngine {
+	private final ShardedStore store;
+
+	public ShardedEngine () throws Exception {
+		this(ShardedStore.fromSystemProperties("ycsb"));
+	}//new
+
+	public ShardedEngine (ShardedStore store) {
+		this.store = store;
+	}//new
+
+	@Override public String name (){ return "sharded" + store.shardCount(); }
+
+	public ShardedStore store (){ return store; }
+
+	@Override
+	public byte[] read (byte[] key) throws Exception {
+		return store.get(key);
+	}
+
+	@Override
+	public void update (byte[] key, byte[] value) throws Exception {
+		store.put(key, value);
+	}
+
+	@Override
+	public int scan (byte[] startKey, int count) {
+		return store.scan(startKey, count).size();
+	}
+
+	@Override
+	public void close () {
+		MagicUtils.close(store);
+	}
+}
@@ -0,0 +1,79 @@
+package examples.ycsb;
+
+import examples.ycsb.KeyChooser.Distribution;
+import lombok.With;
+
+import java.util.Locale;
+
+/// Operation mix + key distribution + value sizes. Presets = YCSB core workloads A–F:
+///
+/// - A update heavy: 50% read, 50% update, zipfian
+/// - B read mostly: 95% read, 5% update, zipfian
+/// - C read only: 100% read, zipfian
+/// - D read latest: 95% read, 5% insert, latest
+/// - E short ranges: 95% scan (1..100 records), 5% insert, zipfian
+/// - F read-modify-write: 50% read, 50% RMW, zipfian
+///
+/// `-Dycsb.records=1000000 -Dycsb.operations=1000000 -Dycsb.distribution=hotspot -Dycsb.valueSize=100..4000` override presets
+@With
+public record Workload (
+	String name,
+	double read,
+	double update,
+	double insert,
+	double scan,
+	double readModifyWrite,
+	Distribution distribution,
+	long recordCount,
+	long operationCount,
+	int minValueSize,
+	int maxValueSize,
+	int maxScanLength
+) {
+	public static final Workload A = preset("A", 0.5, 0.5, 0, 0, 0, Distribution.ZIPFIAN);
+	public static final Workload B = preset("B", 0.95, 0.05, 0, 0, 0, Distribution.ZIPFIAN);
+	public static final Workload C = preset("C", 1, 0, 0, 0, 0, Distribution.ZIPFIAN);
+	public static final Workload D = preset("D", 0.95, 0, 0.05, 0, 0, Distribution.LATEST);
+	public static final Workload E = preset("E", 0, 0, 0.05, 0.95, 0, Distribution.ZIPFIAN);
+	public static final Workload F = preset("F", 0.5, 0, 0, 0, 0.5, Distribution.ZIPFIAN);
+
+	private static Workload preset (String name, double read, double update, double insert, double scan, double rmw, Distribution distribution) {
+		return new Workload(name, read, update, insert, scan, rmw, distribution, 1_000_000, 1_000_000, 1000, 1000, 100);
+	}
+
+	public Workload {
+		double total = read + update + insert + scan + readModifyWrite;
+		if (Math.abs(total - 1) > 1e-9 || recordCount < 1 || minValueSize < 1 || minValueSize > maxValueSize || maxScanLength < 1)
+				throw new IllegalArgumentException("Workload: proportions must sum to 1, records ≥ 1, 1 ≤ minValueSize ≤ maxValueSize, but "+ this);
+	}
+
+	public static Workload of (String name) {
+		return switch (name.trim().toUpperCase(Locale.ROOT)){
+			case "A" -> A;
+			case "B" -> B;
+			case "C" -> C;
+			case "D" -> D;
+			case "E" -> E;
+			case "F" -> F;
+			default -> throw new IllegalArgumentException("Workload.of: unknown workload (A..F): "+ name);
+		};
+	}
+
+	/// Preset with `-Dycsb.*` overrides
+	public static Workload fromSystemProperties (String name) {
+		Workload w = of(name)
+			.withRecordCount(Long.getLong("ycsb.records", 1_000_000))
+			.withOperationCount(Long.getLong("ycsb.operations", 1_000_000));
+		String distribution = System.getProperty("ycsb.distribution");
+		if (distribution != null && !distribution.isBlank()){
+			w = w.withDistribution(Distribution.valueOf(distribution.trim().toUpperCase(Locale.ROOT).replace('-', '_')));
+		}
+		String valueSize = System.getProperty("ycsb.valueSize");// 1000 or 100..4000
+		if (valueSize != null && !valueSize.isBlank()){
+			String[] range = valueSize.split("\\.\\.");
+			int min = Integer.parseInt(range[0].trim());
+			w = w.withMinValueSize(min).withMaxValueSize(range.length > 1 ? Integer.parseInt(range[1].trim()) : min);
+		}
+		return w;
+	}
+}
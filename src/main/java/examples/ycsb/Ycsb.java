@@ -0,0 +1,213 @@
+package examples.ycsb;
+
+import com.sun.management.ThreadMXBean;
+import examples.PhaseStats;
+import examples.bench.BenchmarkResult;
+import lombok.val;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static examples.MagicUtils.now;
+
+/// YCSB-style load generator over any [KeyValueEngine]: load phase (insert `recordCount` records), then run phases
+/// of [Workload] mixes with skewed key choosers; per-operation latency histograms.
+///
+/// `gradle run -Dycsb.engine=rocksdb -Dycsb.threads=8 -Dycsb.workload=A,B,C,F,D,E` (or workloads as program arguments);
+/// `-Dycsb.engine=memory` or a class name of an adapter; engine settings as usual (`-Drocksdb.memory=2g` …).
+/// Results are appended to `build/bench/results.jsonl|csv` ([BenchmarkResult]).
+///
+/// Keys are 8 bytes: FNV hash of the key number (inserts are scattered over the key space like in YCSB);
+/// `-Dycsb.orderedInserts=true` ⇒ big-endian key number (append-only inserts).
+/// Client threads are platform threads: one thread = one YCSB client, engine calls are mostly JNI.
+public final class Ycsb {
+	public static final String READ = "READ", UPDATE = "UPDATE", INSERT = "INSERT", SCAN = "SCAN", RMW = "READ-MODIFY-WRITE";
+
+	private final KeyValueEngine engine;
+	private final int threads;
+	private final boolean orderedInserts;
+	/// key numbers [0, inserted) exist: moves over an insert only when all inserts below it are done (acknowledged)
+	private final AtomicLong inserted = new AtomicLong();
+	private final AtomicLong nextInsert = new AtomicLong();
+	/// done inserts above `inserted` (a gap below them is still in flight); guarded by itself
+	private final HashSet<Long> acknowledged = new HashSet<>();
+
+	public Ycsb (KeyValueEngine engine, int threads, boolean orderedInserts) {
+		this.engine = engine;
+		this.threads = Math.max(1, threads);
+		this.orderedInserts = orderedInserts;
+	}//new
+
+	/// @param allocatedBytes heap allocated by the client threads (generator + engine client side)
+	/// @param phase the whole JVM during the run: allocation incl. engine threads, GC pauses, direct/native memory
+	public record Result (String engine, String workload, int threads, long operations, long millis, Map<String,Histogram> latency, long allocatedBytes,
+												PhaseStats phase) {
+		public double throughput () {
+			return operations * 1000.0 / Math.max(1, millis);
+		}
+
+		@Override
+		public String toString () {
+			val sb = new StringBuilder(String.format(Locale.ENGLISH, "[%s] %s × %d threads: %d ops in %d ms = %.0f op/s, allocated %d MB (%d bytes/op)",
+				engine, workload, threads, operations, millis, throughput(), allocatedBytes >> 20, allocatedBytes / Math.max(1, operations)));
+			sb.append("\n  JVM: ").append(phase.memory());
+			latency.forEach((op, h)->sb.append("\n  ").append(String.format("%-18s", op)).append(h));
+			return sb.toString();
+		}
+	}
+
+	/// Insert records [already loaded, `recordCount`)
+	public Result load (Workload w) throws Exception {
+		long from = inserted.get();
+		long count = Math.max(0, w.recordCount() - from);
+		val result = execute("load " + w.name(), count, latency->{
+			val r = ThreadLocalRandom.current();
+			for (long n; (n = nextInsert.getAndIncrement()) < w.recordCount(); ){
+				byte[] key = key(n);
+				byte[] value = value(w, r);
+				long t = System.nanoTime();
+				engine.insert(key, value);
+				latency.get(INSERT).record(System.nanoTime() - t);
+			}
+		}, INSERT);
+		nextInsert.set(w.recordCount());// threads overshoot by one
+		inserted.set(w.recordCount());// all load threads are done
+		return result;
+	}
+
+	/// `operationCount` operations of the workload mix, split over client threads
+	public Result run (Workload w) throws Exception {
+		if (inserted.get() == 0){ load(w); }
+		val remaining = new AtomicLong(w.operationCount());
+		return execute(w.name() + "/" + w.distribution(), w.operationCount(), latency->{
+			val r = ThreadLocalRandom.current();
+			KeyChooser chooser = w.distribution().newChooser();
+			KeyChooser scanLength = KeyChooser.Distribution.UNIFORM.newChooser();
+			while (remaining.getAndDecrement() > 0){
+				double p = r.nextDouble();
+				// key and value are generated before the clock starts: every op is timed the same way (engine calls only)
+				String op;
+				long t, insert = -1;
+				if ((p -= w.read()) < 0){
+					op = READ;
+					byte[] key = key(chooser.next(inserted.get()));
+					t = System.nanoTime();
+					engine.read(key);
+				} else if ((p -= w.update()) < 0){
+					op = UPDATE;
+					byte[] key = key(chooser.next(inserted.get())), value = value(w, r);
+					t = System.nanoTime();
+					engine.update(key, value);
+				} else if ((p -= w.insert()) < 0){
+					op = INSERT;
+					insert = nextInsert.getAndIncrement();
+					byte[] key = key(insert), value = value(w, r);
+					t = System.nanoTime();
+					engine.insert(key, value);
+				} else if ((p -= w.scan()) < 0){
+					op = SCAN;
+					byte[] key = key(chooser.next(inserted.get()));
+					int length = 1 + (int) scanLength.next(w.maxScanLength());
+					t = System.nanoTime();
+					engine.scan(key, length);
+				} else {
+					op = RMW;
+					byte[] key = key(chooser.next(inserted.get())), value = value(w, r);
+					t = System.nanoTime();
+					byte[] old = engine.read(key);
+					if (old != null){ System.arraycopy(old, 0, value, 0, Math.min(8, Math.min(old.length, value.length))); }// "modify"
+					engine.update(key, value);
+				}
+				latency.get(op).record(System.nanoTime() - t);
+				if (insert >= 0){ acknowledge(insert); }
+			}
+		}, READ, UPDATE, INSERT, SCAN, RMW);
+	}
+
+	/// Insert `n` is done: readers may choose it once every insert below it is done too (like YCSB's acknowledged counter)
+	private void acknowledge (long n) {
+		synchronized (acknowledged){
+			long next = inserted.get();
+			if (n != next){ acknowledged.add(n); return; }
+			next++;
+			while (acknowledged.remove(next)){ next++; }
+			inserted.set(next);
+		}
+	}
+
+	private static final ThreadMXBean THREAD_MX_BEAN = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	interface Client {
+		void run (Map<String,Histogram> latency) throws Exception;
+	}
+
+	private Result execute (String workload, long operations, Client client, String... ops) throws Exception {
+		val failure = new AtomicReference<Throwable>();
+		val allocated = new AtomicLong();
+		val histograms = new ArrayList<Map<String,Histogram>>();
+		val list = new ArrayList<Thread>();
+		val mark = PhaseStats.start();
+		long t = now();
+		for (int i = 0; i < threads; i++){
+			val latency = new LinkedHashMap<String,Histogram>();
+			Arrays.stream(ops).forEach(op->latency.put(op, new Histogram()));
+			histograms.add(latency);
+			list.add(Thread.ofPlatform().name("ycsb-client-" + i).start(()->{
+				long bytes = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+				try {
+					client.run(latency);
+					allocated.addAndGet(THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() - bytes);
+				} catch (Throwable e){
+					failure.compareAndSet(null, e);
+				}
+			}));
+		}
+		for (Thread thread : list){ thread.join(); }
+		long millis = now() - t;
+		if (failure.get() instanceof Exception e){ throw e; }
+		if (failure.get() instanceof Error e){ throw e; }
+		val total = new LinkedHashMap<String,Histogram>();
+		for (String op : ops){
+			val h = new Histogram();
+			histograms.forEach(m->h.add(m.get(op)));
+			if (h.count() > 0){ total.put(op, h); }
+		}
+		return new Result(engine.name(), workload, threads, operations, millis, total, allocated.get(), mark.end(workload, operations));
+	}
+
+	byte[] key (long keyNumber) {
+		long k = orderedInserts ? keyNumber : KeyChooser.fnv64(keyNumber);
+		byte[] key = new byte[8];
+		for (int i = 7; i >= 0; i--, k >>>= 8){
+			key[i] = (byte) k;
+		}
+		return key;
+	}
+
+	static byte[] value (Workload w, ThreadLocalRandom r) {
+		byte[] value = new byte[w.minValueSize() == w.maxValueSize() ? w.minValueSize() : r.nextInt(w.minValueSize(), w.maxValueSize() + 1)];
+		r.nextBytes(value);
+		return value;
+	}
+
+	public static void main (String[] args) throws Exception {
+		List<String> workloads = args.length > 0 ? List.of(args) : List.of(System.getProperty("ycsb.workload", "A,B,C,F,D,E").split(","));
+		int threads = Integer.getInteger("ycsb.threads", Runtime.getRuntime().availableProcessors());
+		try (val engine = KeyValueEngine.create(System.getProperty("ycsb.engine", "rocksdb"))){
+			val ycsb = new Ycsb(engine, threads, Boolean.getBoolean("ycsb.orderedInserts"));
+			System.out.println(ycsb.load(Workload.fromSystemProperties(workloads.get(0))));
+			for (String name : workloads){
+				System.out.println(ycsb.run(Workload.fromSystemProperties(name)));
+			}
+		}
+	}
+}
@@ -0,0 +1,248 @@
+package examples;
+
+import examples.bench.BenchmarkResult;
+import examples.bitcask.BitcaskStore;
+import examples.ycsb.BitcaskEngine;
+import examples.ycsb.Histogram;
+import examples.ycsb.Workload;
+import examples.ycsb.Ycsb;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static examples.MagicUtils.asLatin1;
+import static examples.MagicUtils.now;
+import static examples.MagicUtils.progress;
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// [RocksDBTest] benchmarks (same keys and values) on the Bitcask engine; merge, restart from hints, torn tail, YCSB
+public class BitcaskStoreTest {
+	static final int MAX = 1_000_000;
+
+	static byte[] key (long i){ return Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1); }
+
+	static byte[] value (long i){ return Long.toString(7900_000_00_00L + i).repeat(7).getBytes(ISO_8859_1); }
+
+	static BitcaskStore.Options options (){ return BitcaskStore.Options.DEFAULT.withSync(BitcaskStore.Sync.NONE).withMergeCheckPeriod(Duration.ZERO); }
+
+	@Test  @SneakyThrows
+	void benchmark () {
+		try (val db = new BitcaskStore(Files.createTempDirectory("bitcask"), options())){
+			System.out.println("1️⃣ Create 1 mi keys");
+			long t = now();
+			try (val progress = progress("put", MAX)){
+				for (int i = 0; i < MAX; i++){
+					db.put(key(i), value(i));
+					progress.increment();
+				}
+			}
+			System.out.println(BenchmarkResult.record("bitcask", "put", t, now(), MAX));
+
+			System.out.println("2️⃣ Single thread sequential reads");
+			t = now();
+			try (val progress = progress("sequential get", MAX)){
+				for (int i = 0; i < MAX; i++){
+					assertEquals(asLatin1(value(i)), asLatin1(db.get(key(i))));
+					progress.increment();
+				}
+			}
+			System.out.println(BenchmarkResult.record("bitcask", "sequential get", t, now(), MAX));
+
+			System.out.println("3️⃣ Single thread random reads into a reused buffer");
+			t = now();
+			byte[] dst = new byte[128];
+			try (val progress = progress("get(key, dst)", MAX)){
+				for (int n = 0; n < MAX; n++){
+					int i = ThreadLocalRandom.current().nextInt(0, MAX);
+					assertEquals(value(i).length, db.get(key(i), dst));
+					progress.increment();
+				}
+			}
+			System.out.println(BenchmarkResult.record("bitcask", "random get into buffer", t, now(), MAX));
+
+			System.out.println("4️⃣ Multi threads random reads 🚀...");
+			t = now();
+			val w = new CountDownLatch(10);
+			val failure = new AtomicReference<Throwable>();
+			val progress = progress("10 threads get", MAX * 10L);
+			for (int th = 0; th < 10; th++){
+				Thread.ofPlatform().start(()->{
+					try {
+						for (int n = 0; n < MAX; n++){
+							int i = ThreadLocalRandom.current().nextInt(0, MAX);
+							assertEquals(asLatin1(value(i)), asLatin1(db.get(key(i))));
+							progress.increment();
+						}
+					} catch (Throwable e){
+						failure.set(e);
+					} finally {
+						w.countDown();
+					}
+				});
+			}
+			boolean done = w.await(15, TimeUnit.MINUTES);
+			progress.close();
+			assertTrue(done);
+			if (failure.get() != null) throw failure.get();
+			System.out.println(BenchmarkResult.record("bitcask", "random get × 10 threads", t, now(), MAX * 10L));
+			System.out.println(db);
+		}
+	}
+
+	@Test  @SneakyThrows
+	void benchmarkBatchWrite () {
+		try (val db = new BitcaskStore(Files.createTempDirectory("bitcask"), options().withSync(BitcaskStore.Sync.ALWAYS))){
+			System.out.println("1️⃣ Create 1 mi keys, batches of 5000, fsync per batch");
+			long t = now();
+			val batch = new ArrayList<Map.Entry<byte[],byte[]>>(5000);
+			try (val progress = progress("batch put", MAX)){
+				for (int i = 0; i < MAX; ){
+					batch.clear();
+					for (int j = 0; j < 5000; j++, i++){ batch.add(new SimpleImmutableEntry<>(key(i), value(i))); }
+					db.putAll(batch);
+					progress.add(batch.size());
+				}
+			}
+			System.out.println(BenchmarkResult.record("bitcask", "batch put + fsync", t, now(), MAX));
+			for (int i = 0; i < MAX; i++){ assertEquals(asLatin1(value(i)), asLatin1(db.get(key(i)))); }
+		}
+	}
+
+	/// Durable single puts from many virtual threads: group commit makes one fsync per crowd, not per write
+	@Test  @SneakyThrows
+	void concurrentPutGroupCommit () {
+		int n = 100_000;
+		try (val db = new BitcaskStore(Files.createTempDirectory("bitcask"), options().withSync(BitcaskStore.Sync.GROUP))){
+			long t = now();
+			val threads = new ArrayList<Thread>();
+			for (int i = 0; i < n; i++){
+				int k = i;
+				threads.add(Thread.startVirtualThread(()->{
+					try { db.put(key(k), value(k)); } catch (Exception e){ throw new IllegalStateException(e); }
+				}));
+			}
+			for (Thread th : threads){ th.join(); }
+			System.out.println("group commit: "+ BenchmarkResult.record("bitcask", "group commit put × virtual threads", t, now(), n));
+			for (int i = 0; i < n; i++){ assertArrayEquals(value(i), db.get(key(i))); }
+		}
+	}
+
+	@Test  @SneakyThrows
+	void mergeRestartTornTail () {
+		val dir = Files.createTempDirectory("bitcaskMerge");
+		int n = 50_000;
+		val small = options().withMaxSegmentBytes(1 << 20);
+		try (val db = new BitcaskStore(dir, small)){
+			for (int i = 0; i < n; i++){ db.put(key(i), value(i)); }
+			for (int i = 0; i < n; i += 2){ db.put(key(i), ("v2:"+ i).getBytes(ISO_8859_1)); }// half overwritten
+			for (int i = 1; i < n; i += 10){ assertTrue(db.delete(key(i))); }
+			assertFalse(db.delete(key(1)));
+			db.put(new byte[0], new byte[0]);
+			long expected = n - n / 10 + 1;
+			assertEquals(expected, db.size());
+			val before = db.stats();
+			System.out.println(before);
+			assertTrue(before.liveBytes() < before.diskBytes() * 0.7, before::toString);
+
+			long reclaimed = db.merge();
+			val after = db.stats();
+			System.out.println("merge: "+ after);
+			assertTrue(reclaimed > 0 && after.diskBytes() < before.diskBytes(), after::toString);
+			assertEquals(after.liveBytes(), after.diskBytes());
+			assertEquals(expected, db.size());
+			check(db, n);
+			db.put(key(3), "after merge".getBytes(ISO_8859_1));
+		}
+
+		long t = now();
+		try (val db = new BitcaskStore(dir, small)){// keydir from hints
+			System.out.println("reopen "+ (now() - t) +" ms: "+ db);
+			assertEquals(n - n / 10 + 1, db.size());
+			assertEquals("after merge", asLatin1(db.get(key(3))));
+			db.put(key(3), value(3));
+			check(db, n);
+		}
+
+		// crash: a segment without hint + half a record at the end
+		try (val files = Files.list(dir)){
+			val last = files.filter(f->f.toString().endsWith(".data")).sorted().toList().getLast();
+			Files.delete(last.resolveSibling(last.getFileName().toString().replace(".data", ".hint")));
+			try (val ch = FileChannel.open(last, StandardOpenOption.WRITE, StandardOpenOption.APPEND)){
+				ch.write(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 0, 0, 0, 10, 0, 0, 0, 20, 'x'}));
+			}
+		}
+		try (val db = new BitcaskStore(dir, small)){
+			assertEquals(n - n / 10 + 1, db.size());
+			check(db, n);
+			assertArrayEquals(new byte[0], db.get(new byte[0]));
+		}
+	}
+
+	/// The empty active segment after a merge is deleted on close: the next merge must not write its copies over the first one's
+	@Test  @SneakyThrows
+	void mergeReopenMerge () {
+		val dir = Files.createTempDirectory("bitcaskRemerge");
+		int n = 5000;
+		val small = options().withMaxSegmentBytes(64 * 1024);
+		try (val db = new BitcaskStore(dir, small)){
+			for (int i = 0; i < n; i++){ db.put(key(i), value(i)); }
+			db.merge();
+		}
+		try (val db = new BitcaskStore(dir, small)){
+			assertEquals(n, db.size());
+			for (int i = 0; i < n; i += 2){ db.put(key(i), ("v2:"+ i).getBytes(ISO_8859_1)); }
+			db.merge();
+			System.out.println("second merge: "+ db);
+		}
+		try (val db = new BitcaskStore(dir, small)){
+			assertEquals(n, db.size());
+			for (int i = 0; i < n; i++){
+				if (i % 2 == 0){ assertEquals("v2:"+ i, asLatin1(db.get(key(i)))); }
+				else { assertArrayEquals(value(i), db.get(key(i))); }
+			}
+			db.merge();// and once more with nothing new
+		}
+		try (val db = new BitcaskStore(dir, small)){
+			assertEquals(n, db.size());
+			assertArrayEquals(value(1), db.get(key(1)));
+		}
+	}
+
+	static void check (BitcaskStore db, int n) throws Exception {
+		for (int i = 0; i < n; i++){
+			byte[] v = db.get(key(i));
+			if (i % 10 == 1){ assertNull(v); }
+			else if (i % 2 == 0){ assertEquals("v2:"+ i, asLatin1(v)); }
+			else { assertArrayEquals(value(i), v); }
+		}
+	}
+
+	@Test  @SneakyThrows
+	void ycsb () {
+		try (val engine = new BitcaskEngine(new BitcaskStore(Files.createTempDirectory("bitcaskYcsb"), options().withMaxSegmentBytes(32 << 20).withMergeDeadRatio(0.3).withMergeCheckPeriod(Duration.ofSeconds(1))))){
+			val ycsb = new Ycsb(engine, 4, false);
+			System.out.println(ycsb.load(Workload.A.withRecordCount(300_000)));
+			for (String name : List.of("A", "B", "C", "F", "D")){// E = scans: a hash index has no key order
+				Ycsb.Result r = ycsb.run(Workload.of(name).withRecordCount(300_000).withOperationCount(300_000));
+				System.out.println(r);
+				assertEquals(300_000, r.latency().values().stream().mapToLong(Histogram::count).sum());
+			}
+			System.out.println(engine.store());
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package examples;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import examples.rocksdb.ColumnFamilyProfile;
+import examples.rocksdb.RocksDBConfig;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.FlushOptions;
+import org.rocksdb.RocksDB;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static examples.MagicUtils.now;
+import static examples.MagicUtils.perfToString;
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Key-value separation on/off × value size: write amplification (flush + compaction SST/blob bytes / user bytes, compressed),
+/// compaction time and point-read latency after 3 overwrite passes
+public class BlobDBTest {
+	static final long DATA_PER_PASS = 96L * 1024 * 1024;
+	static final int PASSES = 3;
+
+	@Test
+	void matrix () {
+		for (int valueSize : new int[]{1024, 16 * 1024, 128 * 1024}){
+			measure(valueSize, ColumnFamilyProfile.DEFAULT, "off");
+			measure(valueSize, ColumnFamilyProfile.DEFAULT.withBlobs(512), "blob ≥ 512");
+		}
+	}
+
+	@SneakyThrows
+	static void measure (int valueSize, ColumnFamilyProfile profile, String name) {
+		int keys = (int)(DATA_PER_PASS / valueSize);
+		try (val conf = new RocksDBConfig(Files.createTempDirectory("rocksdbBlob"), false, cf->profile)){
+			val h = conf.createColumnFamily("blob");
+			val db = conf.rocksDB();
+			long t = now();
+			for (int pass = 0; pass < PASSES; pass++){// overwrites ⇒ compaction rewrites (and GC relocates) old values
+				for (int i = 0; i < keys; ){
+					try (val batch = new WriteBatch(); val wo = new WriteOptions()){
+						for (int j = 0; j < 64 && i < keys; j++, i++){
+							batch.put(h, key(i), value(valueSize, pass, i));
+						}
+						db.write(wo, batch);
+					}
+				}
+				try (val fo = new FlushOptions().setWaitForFlush(true)){
+					db.flush(fo, h);
+				}
+			}
+			String write = perfToString(t, now(), (long) keys * PASSES);
+			long compaction = awaitCompactions(db, h);
+			Map<String,String> stats = db.getMapProperty(h, "rocksdb.cfstats");
+			double writtenGb = gb(stats, "compaction.Sum.WriteGB") + gb(stats, "compaction.Sum.WblobGB");
+			double userGb = (double) keys * PASSES * valueSize / (1L << 30);
+
+			val r = ThreadLocalRandom.current();
+			long[] latency = new long[20_000];
+			for (int n = 0; n < latency.length; n++){
+				int i = r.nextInt(keys);
+				long start = System.nanoTime();
+				byte[] v = conf.get(h, key(i));
+				latency[n] = System.nanoTime() - start;
+				assertArrayEquals(value(valueSize, PASSES - 1, i), v);
+			}
+			Arrays.sort(latency);
+			long sst = db.getLongProperty(h, "rocksdb.total-sst-files-size");
+			long blob = db.getLongProperty(h, "rocksdb.total-blob-file-size");
+			System.out.printf("value=%6d %-10s WA=%5.2f, compaction=%6.1f s (CPU %6.1f s, waited %5d ms), SST=%4d MB, blob=%4d MB, get p50=%5.1f µs p99=%6.1f µs, write %s%n",
+				valueSize, name, writtenGb / userGb, gb(stats, "compaction.Sum.CompSec"), gb(stats, "compaction.Sum.CompMergeCPU"), compaction,
+				sst >> 20, blob >> 20, latency[latency.length / 2] / 1000.0, latency[latency.length * 99 / 100] / 1000.0, write);
+		}
+	}
+
+	/// wait for background compactions triggered by the flushes (their cost belongs to the write path)
+	@SneakyThrows
+	static long awaitCompactions (RocksDB db, ColumnFamilyHandle h) {
+		long t = now();
+		while (db.getLongProperty(h, "rocksdb.compaction-pending") > 0 || db.getLongProperty("rocksdb.num-running-compactions") > 0){
+			Uninterruptibles.sleepUninterruptibly(Duration.ofMillis(50));
+		}
+		return now() - t;
+	}
+
+	static double gb (Map<String,String> stats, String name) {
+		String v = stats.get(name);
+		return v != null ? Double.parseDouble(v) : 0;
+	}
+
+	static byte[] key (int i) {
+		return Integer.toString(1_000_000_000 + i).getBytes(ISO_8859_1);
+	}
+
+	/// half random (incompressible), half repeated: ≈ 2:1 compression like typical JSON/protobuf payloads
+	static byte[] value (int size, int pass, int i) {
+		byte[] v = new byte[size];
+		val r = new Random(31L * i + pass);
+		for (int k = 0; k < size / 2; k += 8){
+			long x = r.nextLong();
+			for (int b = 0; b < 8 && k + b < size / 2; b++, x >>>= 8){ v[k + b] = (byte) x; }
+		}
+		Arrays.fill(v, size / 2, size, (byte)(pass + 'a'));
+		return v;
+	}
+}
@@ -0,0 +1,147 @@
+package examples;
+
+import examples.rocksdb.ChangeCapture;
+import examples.rocksdb.ChangeSink;
+import examples.rocksdb.ChangeSink.Change;
+import examples.rocksdb.ChangeSink.Op;
+import examples.rocksdb.RocksDBConfig;
+import io.nats.client.JetStream;
+import io.nats.client.PublishOptions;
+import io.nats.client.impl.Headers;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// WAL tailing into the in-process queue sink: order, all op kinds, restart from the persisted offset; file and NATS sinks
+public class ChangeCaptureTest {
+	static final int MAX = 200_000;
+
+	static byte[] b (String s){ return s.getBytes(ISO_8859_1); }
+
+	static String s (byte[] b){ return new String(b, ISO_8859_1); }
+
+	static List<Change> take (BlockingQueue<Change> queue, int count) throws InterruptedException {
+		val list = new ArrayList<Change>(count);
+		while (list.size() < count){
+			Change c = queue.poll(10, TimeUnit.SECONDS);
+			assertNotNull(c, "got only " + list.size() + " of " + count);
+			list.add(c);
+		}
+		return list;
+	}
+
+	@Test  @SneakyThrows
+	void queueSinkAndRestart () {
+		val dir = Files.createTempDirectory("rocksdbCdc");
+		val offset = dir.resolve("cdc.offset");
+		try (val conf = new RocksDBConfig(dir, false)){
+			val orders = conf.createColumnFamily("orders");
+			val harry = conf.handle("harry");
+			val queue = new LinkedBlockingQueue<Change>();
+			try (val cdc = new ChangeCapture(conf, new ChangeSink.QueueSink(queue), offset, false, 1000, Duration.ofMillis(20), Duration.ofSeconds(5))){
+				conf.rocksDB().put(orders, b("o1"), b("first"));
+				try (val batch = new WriteBatch(); val wo = new WriteOptions()){
+					batch.put(orders, b("o2"), b("second"));
+					batch.put(harry, b("h1"), b("wizard"));
+					batch.delete(orders, b("o1"));
+					batch.deleteRange(orders, b("a"), b("m"));
+					conf.rocksDB().write(wo, batch);
+				}
+				val changes = take(queue, 5);
+				assertEquals(List.of(Op.PUT, Op.PUT, Op.PUT, Op.DELETE, Op.DELETE_RANGE), changes.stream().map(Change::op).toList());
+				assertEquals(List.of("orders", "orders", "harry", "orders", "orders"), changes.stream().map(Change::columnFamily).toList());
+				assertEquals("first", s(changes.get(0).value()));// TtlDB suffix stripped
+				assertEquals("wizard", s(changes.get(2).value()));
+				assertNull(changes.get(3).value());
+				assertEquals("m", s(changes.get(4).value()));
+				for (int i = 1; i < changes.size(); i++){
+					assertEquals(changes.get(i - 1).sequence() + 1, changes.get(i).sequence());
+				}
+
+				// throughput: writers are not slowed down, CDC follows
+				var phase = PhaseStats.start();
+				for (int i = 0; i < MAX; i++){
+					conf.rocksDB().put(orders, b("k" + i), b(Integer.toString(i).repeat(7)));
+				}
+				val bulk = take(queue, MAX);
+				System.out.println(phase.end("put + CDC", MAX) +"; "+ cdc.stats());
+				for (int i = 0; i < MAX; i++){
+					assertEquals("k" + i, s(bulk.get(i).key()));
+				}
+				assertEquals(0, cdc.stats().gaps());
+			}
+			long shipped = Long.parseLong(Files.readString(offset).trim());
+			assertEquals(conf.rocksDB().getLatestSequenceNumber(), shipped);
+
+			// down: changes keep coming; restart continues at the offset, nothing old is shipped again
+			conf.rocksDB().put(orders, b("while-down"), b("x"));
+			try (val cdc = new ChangeCapture(conf, new ChangeSink.QueueSink(queue), offset, false, 1000, Duration.ofMillis(20), Duration.ofSeconds(5))){
+				conf.rocksDB().put(orders, b("after"), b("y"));
+				val changes = take(queue, 2);
+				assertEquals(List.of("while-down", "after"), changes.stream().map(c->s(c.key())).toList());
+				assertEquals(shipped + 1, changes.getFirst().sequence());
+				Thread.sleep(200);
+				assertTrue(queue.isEmpty(), queue::toString);
+				System.out.println(cdc.stats());
+			}
+		}
+	}
+
+	@Test  @SneakyThrows
+	void fileSink () {
+		val dir = Files.createTempDirectory("rocksdbCdcFile");
+		val log = dir.resolve("changes.bin");
+		try (val conf = new RocksDBConfig(dir.resolve("db"), false);
+				 val sink = new ChangeSink.FileSink(log)){
+			val h = conf.createColumnFamily("files");
+			try (val cdc = new ChangeCapture(conf, sink, dir.resolve("cdc.offset"), false, 100, Duration.ofMillis(20), Duration.ofSeconds(5))){
+				for (int i = 0; i < 1000; i++){ conf.rocksDB().put(h, b("f" + i), b("v" + i)); }
+				conf.rocksDB().delete(h, b("f0"));
+				long t = System.currentTimeMillis();
+				while (cdc.stats().lag() > 0){
+					assertTrue(System.currentTimeMillis() - t < 10_000, cdc.stats()::toString);
+					Thread.sleep(10);
+				}
+				System.out.println(cdc.stats());
+			}
+		}
+		val changes = ChangeSink.FileSink.read(log);
+		assertEquals(1001, changes.size());
+		assertEquals("v999", s(changes.get(999).value()));
+		assertEquals(Op.DELETE, changes.getLast().op());
+	}
+
+	/// JetStream stand-in (dynamic proxy): records what would be published
+	@Test  @SneakyThrows
+	void natsSink () {
+		val published = new ArrayList<String>();
+		val js = (JetStream) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{JetStream.class}, (proxy, method, args)->{
+			if (method.getName().equals("publishAsync") && args.length == 4){
+				val headers = (Headers) args[1];
+				published.add(args[0] +" "+ headers.getFirst("cdc-op") +" "+ headers.getFirst("cdc-key") +" "+ s((byte[]) args[2])
+					+" id="+ ((PublishOptions) args[3]).getMessageId());
+				return CompletableFuture.completedFuture(null);
+			}
+			throw new UnsupportedOperationException(method.toString());
+		});
+		val sink = new ChangeSink.NatsSink(js, "cdc");
+		sink.ship(List.of(new Change(7, "orders", Op.PUT, b("k1"), b("v1")), new Change(8, "a.b", Op.DELETE, b("k2"), null)))
+			.toCompletableFuture().get(5, TimeUnit.SECONDS);
+		assertEquals(List.of("cdc.orders PUT 6b31 v1 id=7", "cdc.a_b DELETE 6b32  id=8"), published);
+	}
+}
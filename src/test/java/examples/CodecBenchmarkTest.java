@@ -0,0 +1,114 @@
+package examples;
+
+import examples.codec.JacksonCodec;
+import examples.codec.RawCodec;
+import examples.codec.TypedStore;
+import examples.codec.ValueCodec;
+import examples.rocksdb.RocksDBConfig;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+
+import static examples.MagicUtils.now;
+import static examples.MagicUtils.perfToString;
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// encode/decode ns/op and bytes/value of our record for every codec + the same through RocksDB
+public class CodecBenchmarkTest {
+	public record Subscriber (long msisdn, String name, int balance, long updatedAt, boolean active) {}
+
+	static final class SubscriberRawCodec extends RawCodec<Subscriber> {
+		SubscriberRawCodec (){ super(8 + 2 + 0xFFFF + 4 + 8 + 1); }
+
+		@Override protected void write (Subscriber s, ByteBuffer out) {
+			out.putLong(s.msisdn());
+			putBytes(out, s.name().getBytes(UTF_8));
+			out.putInt(s.balance()).putLong(s.updatedAt()).put((byte)(s.active() ? 1 : 0));
+		}
+
+		@Override protected Subscriber read (ByteBuffer in) {
+			return new Subscriber(in.getLong(), new String(getBytes(in), UTF_8), in.getInt(), in.getLong(), in.get() != 0);
+		}
+	}
+
+	static final int MAX = 1_000_000;
+
+	static Subscriber subscriber (int i) {
+		return new Subscriber(7900_000_00_00L + i, "Subscriber #"+ i, i % 10_000, 1_760_000_000_000L + i, i % 3 != 0);
+	}
+
+	static List<ValueCodec<Subscriber>> codecs () {
+		return List.of(new SubscriberRawCodec(),
+			JacksonCodec.json(Subscriber.class), JacksonCodec.smile(Subscriber.class),
+			JacksonCodec.cbor(Subscriber.class), JacksonCodec.msgPack(Subscriber.class));
+	}
+
+	@Test
+	void encodeDecode () {
+		val values = new Subscriber[1024];
+		for (int i = 0; i < values.length; i++){ values[i] = subscriber(i); }
+
+		for (ValueCodec<Subscriber> codec : codecs()){
+			val encoded = new byte[values.length][];
+			for (int w = 0; w < 3; w++){// warm up JIT
+				for (int i = 0; i < values.length * 100; i++){
+					encoded[i & 1023] = codec.encode(values[i & 1023]);
+					assertEquals(values[i & 1023].msisdn(), codec.decode(encoded[i & 1023]).msisdn());
+				}
+			}
+			long t = System.nanoTime();
+			long bytes = 0;
+			for (int i = 0; i < MAX; i++){
+				bytes += (encoded[i & 1023] = codec.encode(values[i & 1023])).length;
+			}
+			long encode = System.nanoTime() - t;
+
+			t = System.nanoTime();
+			long sum = 0;
+			for (int i = 0; i < MAX; i++){
+				sum += codec.decode(encoded[i & 1023]).balance();
+			}
+			long decode = System.nanoTime() - t;
+			assertTrue(sum > 0);
+			System.out.printf(Locale.ENGLISH, "%-8s encode=%6.1f ns/op, decode=%6.1f ns/op, %5.1f bytes/value%n",
+				codec.name(), encode / (double) MAX, decode / (double) MAX, bytes / (double) MAX);
+		}
+	}
+
+	/// the raw codec's length prefix is an unsigned short: 65535 bytes round-trip, longer is rejected instead of truncated
+	@Test
+	void rawLongString () {
+		val codec = new SubscriberRawCodec();
+		val max = new Subscriber(1, "x".repeat(0xFFFF), 2, 3, true);
+		assertEquals(max, codec.decode(codec.encode(max)));
+		val e = assertThrows(IllegalArgumentException.class, ()->codec.encode(new Subscriber(1, "x".repeat(70 * 1024), 2, 3, true)));
+		assertTrue(e.getMessage().contains("71680"), e::getMessage);
+	}
+
+	@Test  @SneakyThrows
+	void typedStore () {
+		try (val conf = new RocksDBConfig(Files.createTempDirectory("rocksdbCodec"), false)){
+			for (ValueCodec<Subscriber> codec : codecs()){
+				val store = new TypedStore<>(conf, "subscriber-"+ codec.name(), codec);
+				int max = MAX / 5;
+				long t = now();
+				for (int i = 0; i < max; i++){
+					store.put(Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1), subscriber(i));
+				}
+				String put = perfToString(t, now(), max);
+
+				t = now();
+				for (int i = 0; i < max; i++){
+					assertEquals(subscriber(i), store.get(Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1)));
+				}
+				System.out.printf("%-8s put: %s; get: %s%n", codec.name(), put, perfToString(t, now(), max));
+			}
+		}
+	}
+}
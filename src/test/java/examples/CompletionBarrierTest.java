@@ -0,0 +1,87 @@
+package examples;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static examples.MagicUtils.now;
+import static examples.MagicUtils.perfToString;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// 5M async ops: list of futures + await one by one vs [CompletionBarrier] (heap after issuing, time, allocation)
+public class CompletionBarrierTest {
+	static final int MAX = 5_000_000;
+
+	@Test @SneakyThrows
+	void listVsBarrier () {
+		try (ExecutorService pool = Executors.newFixedThreadPool(4)){
+			System.gc();
+			long t = now();
+			long alloc = allocated();
+			val futures = new ArrayList<CompletableFuture<Integer>>(MAX);
+			for (int i = 0; i < MAX; i++){
+				int n = i;
+				futures.add(CompletableFuture.supplyAsync(()->n, pool));
+			}
+			long heap = usedHeap();
+			futures.forEach(MagicUtils::await);
+			long sum = 0;
+			for (val f : futures){ sum += MagicUtils.get(f); }
+			System.out.printf("list of futures: %s, used heap after issue=%d MB, allocated by issuer=%d MB%n", perfToString(t, now(), MAX), heap >> 20, (allocated() - alloc) >> 20);
+			assertEquals((long) MAX * (MAX - 1) / 2, sum);
+			futures.clear();
+
+			System.gc();
+			t = now();
+			alloc = allocated();
+			val barrier = new CompletionBarrier(10);
+			for (int i = 0; i < MAX; i++){
+				int n = i;
+				barrier.track(CompletableFuture.supplyAsync(()->n, pool));
+			}
+			heap = usedHeap();
+			assertTrue(barrier.await(Duration.ofMinutes(1)));
+			System.out.printf("barrier:         %s, used heap after issue=%d MB, allocated by issuer=%d MB; %s%n", perfToString(t, now(), MAX), heap >> 20, (allocated() - alloc) >> 20, barrier);
+			barrier.throwIfFailed();
+			assertEquals(MAX, barrier.progress().completed());
+		}
+	}
+
+	@Test @SneakyThrows
+	void failuresAndTimeout () {
+		val barrier = new CompletionBarrier(3);
+		for (int i = 0; i < 1000; i++){
+			barrier.track(i % 10 == 0 ? CompletableFuture.failedFuture(new IOException("#" + i)) : CompletableFuture.completedFuture(i));
+		}
+		val slow = new CompletableFuture<String>();
+		barrier.track(slow);
+		assertFalse(barrier.await(Duration.ofMillis(50)));
+		assertEquals(1, barrier.progress().pending());
+		assertThrows(IllegalStateException.class, ()->barrier.track(CompletableFuture.completedFuture(1)));// sealed
+
+		slow.complete("ok");
+		assertTrue(barrier.await(Duration.ofSeconds(1)));
+		assertEquals(100, barrier.progress().failed());
+		assertEquals(3, barrier.failures().size());
+		val e = assertThrows(IllegalStateException.class, barrier::throwIfFailed);
+		assertInstanceOf(IOException.class, e.getCause());
+		assertEquals(2, e.getSuppressed().length);
+		System.out.println(barrier);
+	}
+
+	static long usedHeap () {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	static long allocated () {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+	}
+}
@@ -0,0 +1,117 @@
+package examples;
+
+import examples.rocksdb.DurableWriter;
+import examples.rocksdb.DurableWriter.Durability;
+import examples.rocksdb.RocksDBConfig;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.WriteBatch;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static examples.MagicUtils.now;
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Throughput of 4 writer threads per durability level; durable sequence after SYNC, INTERVAL ack by the background syncer
+public class DurableWriterTest {
+	static final int THREADS = 4;
+
+	static byte[] key (long i){ return Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1); }
+
+	static byte[] value (long i){ return Long.toString(7900_000_00_00L + i).repeat(7).getBytes(ISO_8859_1); }
+
+	@Test  @SneakyThrows
+	void levels () {
+		try (val conf = new RocksDBConfig(Files.createTempDirectory("rocksdbDurable"), false);
+				 val writer = new DurableWriter(conf.rocksDB(), Duration.ofMillis(200))){
+			val h = conf.createColumnFamily("durable");
+
+			long walSeq = writer.put(Durability.WAL, h, key(1), value(1));
+			long noneSeq = writer.put(Durability.NONE, h, key(2), value(2));
+			assertTrue(noneSeq > walSeq);
+			long syncSeq = writer.put(Durability.SYNC, h, key(3), value(3));
+			assertTrue(writer.durableSequence() >= walSeq, writer::toString);// an fsync covers everything before it in the WAL
+			assertEquals(noneSeq + 1, syncSeq);
+			assertTrue(writer.durableSequence() >= syncSeq, writer::toString);
+
+			try (val batch = new WriteBatch()){
+				for (int i = 10; i < 20; i++){ batch.put(h, key(i), value(i)); }
+				long seq = writer.write(Durability.SYNC, batch);
+				assertTrue(writer.durableSequence() >= seq, writer::toString);// nobody else writes here
+			}
+
+			long intervalSeq = writer.put(Durability.INTERVAL, h, key(4), value(4));
+			long t = now();
+			assertTrue(writer.awaitDurable(intervalSeq, Duration.ofSeconds(5)), writer::toString);
+			System.out.println("INTERVAL write acked by the syncer in "+ (now() - t) +" ms");
+			assertTrue(now() - t < 2000);
+
+			val failure = new AtomicReference<Throwable>();// a platform thread's exception would only be printed
+			for (val d : Durability.values()){
+				val n = new AtomicLong();
+				val threads = new ArrayList<Thread>();
+				long start = now();
+				for (int th = 0; th < THREADS; th++){
+					int base = th * 10_000_000;
+					threads.add(Thread.ofPlatform().start(()->{
+						try {
+							for (int i = 0; now() - start < 1000; i++){
+								writer.put(d, h, key(base + i), value(base + i));
+								n.incrementAndGet();
+							}
+						} catch (Throwable e){
+							failure.compareAndSet(null, e);
+						}
+					}));
+				}
+				for (Thread th : threads){ th.join(); }
+				if (failure.get() != null){ throw failure.get(); }
+				long ms = now() - start;
+				System.out.printf("%-8s %,10d op/s, durable lag %,d%n", d, n.get() * 1000 / ms, conf.rocksDB().getLatestSequenceNumber() - writer.durableSequence());
+			}
+			System.out.println(writer);
+			assertTrue(writer.stats().syncs() > 0);
+			assertArrayEquals(value(3), conf.get(h, key(3)));
+		}
+	}
+
+	/// SYNC writers among WAL writers: the returned sequence number is durable on return (awaitDurable doesn't wait for the syncer)
+	@Test  @SneakyThrows
+	void syncSequenceUnderConcurrentWrites () {
+		try (val conf = new RocksDBConfig(Files.createTempDirectory("rocksdbDurableSeq"), false);
+				 val writer = new DurableWriter(conf.rocksDB(), Duration.ofSeconds(60))){// the background syncer never helps here
+			val h = conf.createColumnFamily("durable");
+			val seqs = ConcurrentHashMap.<Long>newKeySet();
+			val failure = new AtomicReference<Throwable>();
+			val threads = new ArrayList<Thread>();
+			for (int th = 0; th < THREADS * 2; th++){
+				int base = th * 10_000_000;
+				val d = th % 2 == 0 ? Durability.SYNC : Durability.WAL;
+				threads.add(Thread.ofPlatform().start(()->{
+					try {
+						for (int i = 0; i < 500; i++){
+							long seq = writer.put(d, h, key(base + i), value(base + i));
+							if (d == Durability.SYNC){
+								seqs.add(seq);
+								assertTrue(writer.awaitDurable(seq, Duration.ZERO), writer::toString);// no wait for the syncer
+							}
+						}
+					} catch (Throwable e){
+						failure.compareAndSet(null, e);
+					}
+				}));
+			}
+			for (Thread th : threads){ th.join(); }
+			if (failure.get() != null){ throw failure.get(); }
+			assertTrue(seqs.stream().allMatch(seq->seq > 0 && seq <= writer.durableSequence()), writer::toString);
+			System.out.println(writer);
+		}
+	}
+}
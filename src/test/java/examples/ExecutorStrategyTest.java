@@ -0,0 +1,89 @@
+package examples;
+
+import examples.BlockingExecutor.PinningMonitor;
+import examples.BlockingExecutor.Strategy;
+import examples.rocksdb.RocksDBConfig;
+import examples.ycsb.Histogram;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.ColumnFamilyHandle;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static examples.MagicUtils.now;
+import static examples.MagicUtils.perfToString;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// RocksDB get/put (90/10) from 10, 1k, 100k concurrent virtual-thread callers through each [BlockingExecutor.Strategy].
+/// Heartbeat = a virtual thread sleeping 1 ms: its wake-up lag is what other virtual threads feel when carriers are blocked in JNI
+public class ExecutorStrategyTest {
+	static final int KEYS = 100_000;
+	static final int OPERATIONS = 300_000;
+
+	@Test @SneakyThrows
+	void compareStrategies () {
+		try (val conf = new RocksDBConfig(Files.createTempDirectory("rocksdbExecutor"), false)){
+			val h = conf.handle("harry");
+			for (int i = 0; i < KEYS; i++){
+				conf.rocksDB().put(h, RocksDBConfig.intToBytes(i), RocksDBConfig.intToBytes(i * 2));
+			}
+			for (int callers : new int[]{10, 1_000, 100_000}){
+				for (Strategy strategy : Strategy.values()){
+					measure(conf, h, strategy, callers);
+				}
+			}
+		}
+	}
+
+	@SneakyThrows
+	static void measure (RocksDBConfig conf, ColumnFamilyHandle h, Strategy strategy, int callers) {
+		int perCaller = OPERATIONS / callers;
+		val db = conf.rocksDB();
+		val heartbeat = new Histogram();
+		val running = new AtomicBoolean(true);
+		try (val pinning = new PinningMonitor(Duration.ofMillis(1));
+				 val executor = new BlockingExecutor(strategy, Runtime.getRuntime().availableProcessors() + 4)){
+			Thread beat = Thread.startVirtualThread(()->{
+				while (running.get()){
+					long t = System.nanoTime();
+					try { Thread.sleep(1); } catch (InterruptedException e){ return; }
+					heartbeat.record(System.nanoTime() - t - 1_000_000);
+				}
+			});
+			long t = now();
+			val failure = new AtomicReference<Throwable>();// a virtual thread's AssertionError would only be printed
+			val threads = new ArrayList<Thread>(callers);
+			for (int c = 0; c < callers; c++){
+				threads.add(Thread.startVirtualThread(()->{
+					val r = ThreadLocalRandom.current();
+					try {
+						for (int i = 0; i < perCaller; i++){
+							byte[] key = RocksDBConfig.intToBytes(r.nextInt(KEYS));
+							if (r.nextInt(10) == 0){
+								executor.call(()->{ db.put(h, key, key); return null; });
+							} else {
+								assertNotNull(executor.call(()->db.get(h, key)));
+							}
+						}
+					} catch (Throwable e){
+						failure.compareAndSet(null, e);
+					}
+				}));
+			}
+			for (Thread thread : threads){ thread.join(); }
+			if (failure.get() != null){ running.set(false); throw failure.get(); }
+			String perf = perfToString(t, now(), (long) perCaller * callers);
+			running.set(false);
+			beat.join();
+			System.out.printf("%-8s callers=%6d: %s; heartbeat lag p50=%.2f p99=%.2f max=%.2f ms; pinned events=%d (%d ms)%n    %s%n",
+				strategy, callers, perf, heartbeat.percentile(50) / 1e6, heartbeat.percentile(99) / 1e6, heartbeat.max() / 1e6,
+				pinning.events(), pinning.pinnedTime().toMillis(), executor.stats());
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package examples;
 
+import examples.bench.BenchmarkResult;
 import lombok.val;
 import org.apache.ignite.Ignition;
 import org.apache.ignite.client.ClientCache;
@@ -18,7 +19,6 @@ import org.testcontainers.utility.DockerImageName;
 
 import static examples.MagicUtils.close;
 import static examples.MagicUtils.now;
-import static examples.MagicUtils.perfToString;
 import static org.junit.jupiter.api.Assertions.*;
 
 /// https://hub.docker.com/r/apacheignite/ignite/
@@ -80,7 +80,7 @@ public class IgniteClientClusterPerformanceTest {
 			if (++i % 10_000 == 0)
 					System.out.println(i);
 		}
-		System.out.printf("Write ____%s%n", perfToString(t, now(), 1_000_000));
+		System.out.printf("Write ____%s%n", BenchmarkResult.record("ignite-client", "put", t, now(), 1_000_000));
 
 		t = now();
 		for (int i = 0; i < 1_000_000; ){
@@ -88,6 +88,6 @@ public class IgniteClientClusterPerformanceTest {
 			if (++i % 10_000 == 0)
 					System.out.println(i);
 		}
-		System.out.printf("Random reads ____%s%n", perfToString(t, now(), 1_000_000));
+		System.out.printf("Random reads ____%s%n", BenchmarkResult.record("ignite-client", "random get", t, now(), 1_000_000));
 	}
 }
\ No newline at end of file
@@ -1,81 +1,51 @@
 package examples;
 
+import examples.bench.BenchmarkResult;
 import lombok.val;
-import org.apache.ignite.Ignite;
 import org.apache.ignite.IgniteCache;
-import org.apache.ignite.Ignition;
-import org.apache.ignite.cluster.ClusterState;
-import org.apache.ignite.configuration.CacheConfiguration;
-import org.apache.ignite.configuration.DataStorageConfiguration;
-import org.apache.ignite.configuration.IgniteConfiguration;
-import org.apache.ignite.spi.discovery.tcp.TcpDiscoverySpi;
-import org.apache.ignite.spi.discovery.tcp.ipfinder.vm.TcpDiscoveryVmIpFinder;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
-import java.util.List;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.LongStream;
 
 import static examples.MagicUtils.TEMP_DIR;
 import static examples.MagicUtils.close;
 import static examples.MagicUtils.now;
-import static examples.MagicUtils.perfToString;
 import static org.junit.jupiter.api.Assertions.*;
 
 /// https://ignite.apache.org/docs/ignite2/latest/
 /// use vm.options
+/// Region size, WAL mode, near cache, streamer and batch sizes: `-Dignite.*`, see [IgniteStore]
 //@Testcontainers
 //@TestInstance(TestInstance.Lifecycle.PER_CLASS)
 public class IgniteEmbeddedClusterPerformanceTest {
-	private static Ignite ignite;
+	private static IgniteStore<String,String> store;
 	private static IgniteCache<String, String> cache;
 
 	@BeforeAll
 	static void setupCluster() {
-		IgniteConfiguration cfg = new IgniteConfiguration();
-		cfg.setIgniteInstanceName("string-cache-test");
-		// cfg.setWorkDirectory(null); // Disable persistence for better performance
-
 		System.out.println(TEMP_DIR);
-
-		cfg.setWorkDirectory(TEMP_DIR);// Or another path
-		val storageCfg = new DataStorageConfiguration();
-		storageCfg.setStoragePath("ignitedb/storage");
-		storageCfg.setWalPath("ignitedb/wal");
-		storageCfg.setWalArchivePath("ignitedb/wal/archive");
-
-		// Enable persistence for the default data region
-		storageCfg.getDefaultDataRegionConfiguration().setPersistenceEnabled(true);
-
-		cfg.setDataStorageConfiguration(storageCfg);
-
-		TcpDiscoverySpi discoverySpi = new TcpDiscoverySpi();
-		TcpDiscoveryVmIpFinder ipFinder = new TcpDiscoveryVmIpFinder();
-		ipFinder.setAddresses(List.of("127.0.0.1:47500"));
-		discoverySpi.setIpFinder(ipFinder);
-		cfg.setDiscoverySpi(discoverySpi);
-
-		ignite = Ignition.start(cfg);
-		ignite.cluster().state(ClusterState.ACTIVE);
-
-		// Create cache with optimized configuration
-		CacheConfiguration<String, String> cacheCfg = new CacheConfiguration<>();
-		cacheCfg.setName("string-performance-cache");
-		cacheCfg.setBackups(0); // No backups for maximum performance
-		cacheCfg.setStatisticsEnabled(false); // Disable stats for performance
-
-		cache = ignite.getOrCreateCache(cacheCfg);
+		store = new IgniteStore<>(IgniteStore.Settings.fromSystemProperties(), TEMP_DIR, "string-cache-test", "string-performance-cache");
+		cache = store.cache();
 	}
 
 	@AfterAll
 	static void tearDownCluster () {
-		close(ignite);
+		close(store);
 	}
 
 	static final int MAX = 1_000_000;
 
+	static String key (long i){ return Long.toString(7900_000_00_00L + i); }
+
+	static String value (long i){ return key(i).repeat(7); }
+
 	@Test  @DisplayName("Single-node put performance")
 	void testSingleNodePutPerformance() {
 		long t = now();
@@ -83,7 +53,7 @@ public class IgniteEmbeddedClusterPerformanceTest {
 			cache.put(Long.toString(7900_000_00_00L + i), Long.toString(7900_000_00_00L + i).repeat(7));
 			if (++i % 10_000 == 9_999) System.out.println(i);
 		}
-		System.out.printf("Write ____%s%n", perfToString(t, now(), MAX));
+		System.out.printf("Write ____%s%n", BenchmarkResult.record("ignite-embedded", "put", t, now(), MAX));
 
 		t = now();
 		val r = ThreadLocalRandom.current();
@@ -94,6 +64,41 @@ public class IgniteEmbeddedClusterPerformanceTest {
 					System.out.println(n);
 			assertEquals(key.repeat(7), e);
 		}
-		System.out.printf("Read random ____%s%n", perfToString(t, now(), MAX));
+		System.out.printf("Read random ____%s%n", BenchmarkResult.record("ignite-embedded", "random get", t, now(), MAX));
+	}
+
+	/// IgniteDataStreamer ≈ RocksDB WriteBatch bulk load
+	@Test  @DisplayName("Bulk load via IgniteDataStreamer")
+	void testStreamerLoad () {
+		var phase = PhaseStats.start();
+		long n = store.load(LongStream.range(0, MAX).mapToObj(i->Map.entry(key(i), value(i))).iterator());
+		System.out.println(phase.end("streamer load (allowOverwrite="+ store.settings().streamerAllowOverwrite() +")", n));
+		assertEquals(MAX, n);
+		assertEquals(value(MAX - 1), cache.get(key(MAX - 1)));
+	}
+
+	/// putAll/getAll ≈ RocksDB write(batch)/multiGet
+	@Test  @DisplayName("Batched putAll/getAll")
+	void testBatches () {
+		int batch = store.settings().batchSize();
+		var phase = PhaseStats.start();
+		for (int i = 0; i < MAX; ){
+			val entries = new TreeMap<String,String>();
+			for (int j = 0; j < batch && i < MAX; j++, i++){ entries.put(key(i), value(i)); }
+			store.putAll(entries);
+		}
+		System.out.println(phase.end("putAll ×"+ batch, MAX));
+
+		val r = ThreadLocalRandom.current();
+		phase = PhaseStats.start();
+		for (int n = 0; n < MAX; n += batch){
+			val keys = new HashSet<String>();
+			for (int j = 0; j < batch; j++){ keys.add(key(r.nextInt(MAX))); }
+			keys.add("missing");
+			val values = store.getAll(keys);
+			assertEquals(keys.size() - 1, values.size());
+			values.forEach((k, v)->assertEquals(k.repeat(7), v));
+		}
+		System.out.println(phase.end("getAll ×"+ batch, MAX));
 	}
-}
\ No newline at end of file
+}
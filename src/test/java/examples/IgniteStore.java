@@ -0,0 +1,172 @@
+package examples;
+
+import lombok.With;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.Ignition;
+import org.apache.ignite.cache.eviction.lru.LruEvictionPolicyFactory;
+import org.apache.ignite.cluster.ClusterState;
+import org.apache.ignite.configuration.CacheConfiguration;
+import org.apache.ignite.configuration.DataRegionConfiguration;
+import org.apache.ignite.configuration.DataStorageConfiguration;
+import org.apache.ignite.configuration.IgniteConfiguration;
+import org.apache.ignite.configuration.NearCacheConfiguration;
+import org.apache.ignite.configuration.WALMode;
+import org.apache.ignite.spi.discovery.tcp.TcpDiscoverySpi;
+import org.apache.ignite.spi.discovery.tcp.ipfinder.vm.TcpDiscoveryVmIpFinder;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static examples.MagicUtils.now;
+import static examples.MagicUtils.parseSize;
+
+/// Embedded single-node Ignite with the knobs that matter for a fair comparison with RocksDB:
+///
+/// - data region size + persistence + WAL mode (`LOG_ONLY` = fsync on checkpoint only, `BACKGROUND` = + periodic WAL flush)
+/// - bulk load through `IgniteDataStreamer` (≈ RocksDB `WriteBatch` without WAL)
+/// - batched `putAll`/`getAll` (≈ `write(batch)`/`multiGetAsList`)
+/// - near cache (on-heap LRU copy of hot entries) for read-mostly caches. A no-op here: on the single embedded server
+///   node every key is primary locally ⇒ reads never go remote. It pays off on client nodes or multi-node clusters only
+///
+/// `-Dignite.region=2g -Dignite.persistence=true -Dignite.wal=BACKGROUND -Dignite.nearCache=100000
+/// -Dignite.streamer.buffer=1024 -Dignite.streamer.parallelOps=16 -Dignite.streamer.allowOverwrite=false -Dignite.batch=500`
+@Slf4j
+public final class IgniteStore<K extends Comparable<? super K>,V> implements AutoCloseable {
+	/// @param regionMaxSize default data region size, bytes (0 = Ignite default: 20% of RAM)
+	/// @param nearCacheSize entries in the near cache (0 = off); no effect on this single server node, see above
+	/// @param streamerBufferSize `perNodeBufferSize` of the data streamer (entries per batch sent to a node)
+	/// @param streamerParallelOps `perNodeParallelOperations` (0 = Ignite default)
+	/// @param streamerAllowOverwrite false = faster initial load, existing keys are NOT updated
+	/// @param batchSize entries per `putAll`/`getAll`
+	@With
+	public record Settings (
+		long regionMaxSize,
+		boolean persistence,
+		WALMode walMode,
+		int nearCacheSize,
+		int streamerBufferSize,
+		int streamerParallelOps,
+		boolean streamerAllowOverwrite,
+		int batchSize
+	) {
+		public static final Settings DEFAULT = new Settings(0, true, WALMode.LOG_ONLY, 0, 1024, 0, false, 500);
+
+		public static Settings fromSystemProperties () {
+			return new Settings(
+				parseSize(System.getProperty("ignite.region"), DEFAULT.regionMaxSize),
+				Boolean.parseBoolean(System.getProperty("ignite.persistence", Boolean.toString(DEFAULT.persistence))),
+				WALMode.valueOf(System.getProperty("ignite.wal", DEFAULT.walMode.name()).trim().toUpperCase(Locale.ROOT)),
+				Integer.getInteger("ignite.nearCache", DEFAULT.nearCacheSize),
+				Integer.getInteger("ignite.streamer.buffer", DEFAULT.streamerBufferSize),
+				Integer.getInteger("ignite.streamer.parallelOps", DEFAULT.streamerParallelOps),
+				Boolean.parseBoolean(System.getProperty("ignite.streamer.allowOverwrite", Boolean.toString(DEFAULT.streamerAllowOverwrite))),
+				Integer.getInteger("ignite.batch", DEFAULT.batchSize));
+		}
+	}
+
+	private final Settings settings;
+	private final Ignite ignite;
+	private final IgniteCache<K,V> cache;
+
+	/// @param workDirectory Ignite work dir: storage and WAL go to `ignitedb/` under it
+	public IgniteStore (Settings settings, String workDirectory, String instanceName, String cacheName) {
+		this.settings = settings;
+		long t = now();
+		val region = new DataRegionConfiguration()
+			.setName("default")
+			.setPersistenceEnabled(settings.persistence());
+		if (settings.regionMaxSize() > 0){
+			region.setMaxSize(settings.regionMaxSize());
+			region.setInitialSize(Math.min(region.getInitialSize(), settings.regionMaxSize()));
+		}
+		val storageCfg = new DataStorageConfiguration()
+			.setStoragePath("ignitedb/storage")
+			.setWalPath("ignitedb/wal")
+			.setWalArchivePath("ignitedb/wal/archive")
+			.setWalMode(settings.walMode())
+			.setDefaultDataRegionConfiguration(region);
+
+		val discoverySpi = new TcpDiscoverySpi();
+		val ipFinder = new TcpDiscoveryVmIpFinder();
+		ipFinder.setAddresses(List.of("127.0.0.1:47500"));
+		discoverySpi.setIpFinder(ipFinder);
+
+		val cfg = new IgniteConfiguration()
+			.setIgniteInstanceName(instanceName)
+			.setWorkDirectory(workDirectory)
+			.setDataStorageConfiguration(storageCfg)
+			.setDiscoverySpi(discoverySpi);
+		ignite = Ignition.start(cfg);
+		ignite.cluster().state(ClusterState.ACTIVE);
+
+		val cacheCfg = new CacheConfiguration<K,V>(cacheName)
+			.setBackups(0)// no backups for maximum performance
+			.setStatisticsEnabled(false);
+		if (settings.nearCacheSize() > 0){
+			log.warn("IgniteStore {}: near cache of {} entries has no effect on a single server node (all keys are local)", cacheName, settings.nearCacheSize());
+			cacheCfg.setNearConfiguration(new NearCacheConfiguration<K,V>()
+				.setNearEvictionPolicyFactory(new LruEvictionPolicyFactory<>(settings.nearCacheSize())));
+		}
+		cache = ignite.getOrCreateCache(cacheCfg);
+		log.info("IgniteStore {} started in {} ms: {}", cacheName, now() - t, settings);
+	}//new
+
+	public Settings settings (){ return settings; }
+
+	public Ignite ignite (){ return ignite; }
+
+	public IgniteCache<K,V> cache (){ return cache; }
+
+	/// Bulk load through `IgniteDataStreamer`: entries are buffered per node and sent in batches (no per-entry round trip,
+	/// with allowOverwrite=false no read-before-write either). Returns when everything is flushed.
+	/// @return number of loaded entries
+	public long load (Iterator<? extends Map.Entry<K,V>> entries) {
+		long n = 0;
+		try (val streamer = ignite.<K,V>dataStreamer(cache.getName())){
+			streamer.perNodeBufferSize(settings.streamerBufferSize());
+			if (settings.streamerParallelOps() > 0){ streamer.perNodeParallelOperations(settings.streamerParallelOps()); }
+			streamer.allowOverwrite(settings.streamerAllowOverwrite());
+			while (entries.hasNext()){
+				streamer.addData(entries.next());
+				n++;
+			}
+		}// close = flush
+		return n;
+	}
+
+	/// One `putAll` per [Settings#batchSize] entries; keys sorted ⇒ concurrent batches lock in the same order (no deadlocks)
+	public void putAll (Map<K,V> entries) {
+		SortedMap<K,V> sorted = entries instanceof SortedMap<K,V> s ? s : new TreeMap<>(entries);
+		if (sorted.size() <= settings.batchSize()){
+			cache.putAll(sorted);
+			return;
+		}
+		val batch = new TreeMap<K,V>();
+		for (val e : sorted.entrySet()){
+			batch.put(e.getKey(), e.getValue());
+			if (batch.size() >= settings.batchSize()){
+				cache.putAll(batch);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty()){ cache.putAll(batch); }
+	}
+
+	/// `getAll`: missing keys are absent from the result
+	public Map<K,V> getAll (Set<K> keys) {
+		return cache.getAll(keys);
+	}
+
+	@Override
+	public void close () {
+		MagicUtils.close(ignite);
+	}
+}
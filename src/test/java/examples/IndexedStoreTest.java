@@ -0,0 +1,77 @@
+package examples;
+
+import examples.rocksdb.IndexedStore;
+import examples.rocksdb.RocksDBConfig;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static examples.MagicUtils.asLatin1;
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Secondary index by "city": value = `phone|city`, 1000 cities
+public class IndexedStoreTest {
+	static final int MAX = 1_000_000;
+	static final int CITIES = 1000;
+
+	static byte[] city (byte[] value) {
+		String v = asLatin1(value);
+		return v.substring(v.indexOf('|') + 1).getBytes(ISO_8859_1);
+	}
+
+	static byte[] value (long i, int city) {
+		return (Long.toString(7900_000_00_00L + i) +"|city"+ String.format("%04d", city)).getBytes(ISO_8859_1);
+	}
+
+	@Test  @SneakyThrows
+	void indexedPutAndRangeQueries () {
+		try (val conf = new RocksDBConfig(Files.createTempDirectory("rocksdbIndexed"), false)){
+			val store = new IndexedStore(conf, "people", List.of(new IndexedStore.Index("city", IndexedStoreTest::city)));
+
+			System.out.println("1️⃣ Create 1 mi keys + index entries (same WriteBatch)");
+			var phase = PhaseStats.start();
+			for (int i = 0; i < MAX; ){
+				store.put(Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1), value(i, i % CITIES));
+				if (++i % 200_000 == 0) System.out.println(i);
+			}
+			System.out.println(phase.end("put", MAX));
+
+			System.out.println("2️⃣ Move 10% to another city (old index entry removed)");
+			phase = PhaseStats.start();
+			for (int i = 0; i < MAX; i += 10){
+				store.put(Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1), value(i, CITIES - 1));
+			}
+			System.out.println(phase.end("move", MAX / 10));
+
+			System.out.println("3️⃣ Index lookups: primary keys of a random city");
+			phase = PhaseStats.start();
+			val r = ThreadLocalRandom.current();
+			for (int n = 0; n < 10_000; n++){
+				int c = r.nextInt(1, CITIES - 1);
+				List<byte[]> keys = store.primaryKeys("city", ("city"+ String.format("%04d", c)).getBytes(ISO_8859_1), 10_000);
+				assertEquals(c % 10 == 0 ? 0 : 1000, keys.size(), "city "+ c);// i % 10 == 0 moved away: all of city c % 10 == 0
+			}
+			System.out.println(phase.end("primaryKeys", 10_000));
+
+			System.out.println("4️⃣ Index range joined with values (multiGet)");
+			phase = PhaseStats.start();
+			for (int n = 0; n < 10_000; n++){
+				int c = r.nextInt(1, CITIES - 10);
+				val values = store.values("city", ("city"+ String.format("%04d", c)).getBytes(ISO_8859_1), ("city"+ String.format("%04d", c + 2)).getBytes(ISO_8859_1), 100);
+				assertEquals(100, values.size());
+				values.forEach(e->assertArrayEquals(e.getKey(), Arrays.copyOf(e.getValue(), e.getKey().length)));
+			}
+			System.out.println(phase.end("values", 10_000));
+
+			assertEquals(MAX / 10 + 1000, store.primaryKeys("city", ("city"+ String.format("%04d", CITIES - 1)).getBytes(ISO_8859_1), MAX).size());
+			store.delete(Long.toString(7900_000_00_00L).getBytes(ISO_8859_1));
+			assertEquals(MAX / 10 + 999, store.primaryKeys("city", ("city"+ String.format("%04d", CITIES - 1)).getBytes(ISO_8859_1), MAX).size());
+		}
+	}
+}
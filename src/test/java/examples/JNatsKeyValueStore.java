@@ -1,5 +1,6 @@
 package examples;
 
+import examples.bench.BenchmarkResult;
 import io.nats.client.Connection;
 import io.nats.client.JetStream;
 import io.nats.client.JetStreamApiException;
@@ -10,7 +11,6 @@ import io.nats.client.Nats;
 import io.nats.client.Options;
 import io.nats.client.api.KeyValueConfiguration;
 import io.nats.client.api.KeyValueStatus;
-import io.nats.client.api.PublishAck;
 import io.nats.client.api.StorageType;
 import io.nats.client.api.StreamInfo;
 import lombok.extern.slf4j.Slf4j;
@@ -27,9 +27,7 @@ import org.testcontainers.utility.MountableFile;
 
 import java.io.IOException;
 import java.time.Duration;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
@@ -104,7 +102,7 @@ class JNatsKeyValueStore {
 			kv.put(Long.toString(7900_000_00_00L + i), Long.toString(7900_000_00_00L + i).repeat(7));
 			if (++i % 10_000 == 0) System.out.println(i);
 		}
-		System.out.println(perfToString(t, now(), MAX));
+		System.out.println(BenchmarkResult.record("nats-kv", "put", t, now(), MAX));
 
 
 		System.out.println("2️⃣ Single thread random reads");
@@ -116,7 +114,7 @@ class JNatsKeyValueStore {
 			if (++n % 20_000 == 0) System.out.println(n);
 			assertEquals(Long.toString(7900_000_00_00L + i).repeat(7), e.getValueAsString());
 		}
-		System.out.println(perfToString(t, now(), MAX));
+		System.out.println(BenchmarkResult.record("nats-kv", "random get", t, now(), MAX));
 	}
 
 	/// @see io.nats.client.impl.NatsKeyValue#_write
@@ -147,22 +145,21 @@ class JNatsKeyValueStore {
 		System.out.println(info);
 		System.out.println(js.getStreamContext("KV_benchmarkAsync"));
 
-		val futures = new ArrayList<CompletableFuture<PublishAck>>(MAX);
+		val barrier = new CompletionBarrier(100);// constant memory: no list of 500k futures
 
 		long t = now();
 		for (int i = 0; i < MAX; ){
 			String key = "$KV.benchmarkAsync."+ (7900_000_00_00L + i);
-			futures.add(js.publishAsync(key, Long.toString(7900_000_00_00L + i).repeat(7).getBytes(ISO_8859_1)));
-			if (++i % 50_000 == 0) System.out.println(i);
+			barrier.track(js.publishAsync(key, Long.toString(7900_000_00_00L + i).repeat(7).getBytes(ISO_8859_1))
+				.thenAccept(ack->assertFalse(ack.isDuplicate())));
+			if (++i % 50_000 == 0) System.out.println(barrier);
 		}
 		System.out.println(perfToString(t, now(), MAX));
-		futures.forEach(MagicUtils::await);
-		System.out.println(perfToString(t, now(), MAX));
-		futures.forEach(f->{
-			assertFalse(MagicUtils.get(f).isDuplicate());
-		});
+		assertTrue(barrier.await(Duration.ofMinutes(2)), barrier::toString);
+		System.out.println(BenchmarkResult.record("nats-kv", "publishAsync put", t, now(), MAX));
+		barrier.throwIfFailed();
 
-		assertEquals(MAX,  futures.size());
+		assertEquals(MAX,  barrier.progress().completed());
 
 		List<String> keys = kv.keys();
 		assertEquals(MAX,  keys.size());
@@ -197,7 +194,7 @@ class JNatsKeyValueStore {
 			}));
 		boolean done = w.await(999, TimeUnit.SECONDS);
 		assertTrue(done);
-		System.out.println(perfToString(t, now(), MAX*10));
+		System.out.println(BenchmarkResult.record("nats-kv", "random get × 10 threads", t, now(), MAX*10));
 		assertEquals(MAX*10, counter.get());
 
 // https://github.com/nats-io/nats.go/discussions/1507#discussioncomment-14306747
@@ -0,0 +1,130 @@
+package examples;
+
+import examples.rocksdb.LookupSnapshot;
+import examples.rocksdb.RocksDBConfig;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+import java.nio.file.Files;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// CF → mmap snapshot with a minimal perfect hash; 10 threads of random reads: snapshot vs RocksDB get; hot swap under load
+public class LookupSnapshotTest {
+	static final int MAX = 1_000_000;
+	static final int THREADS = 10;
+
+	static byte[] key (long i){ return Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1); }
+
+	static byte[] value (long i, int version){ return (Long.toString(7900_000_00_00L + i).repeat(7) + version).getBytes(ISO_8859_1); }
+
+	@Test  @SneakyThrows
+	void exportReadSwap () {
+		val dir = Files.createTempDirectory("rocksdbLookup");
+		val file = dir.resolve("reference.mph");
+		try (val conf = new RocksDBConfig(dir.resolve("db"), false)){
+			val h = conf.createColumnFamily("reference");
+			fill(conf, 1);
+			var phase = PhaseStats.start();
+			assertEquals(MAX, LookupSnapshot.export(conf, "reference", file));
+			System.out.println(phase.end("export", MAX) +", file "+ (Files.size(file) >> 20) +" MB");
+
+			val live = new LookupSnapshot.Live(LookupSnapshot.open(file).load());
+			for (int i = 0; i < MAX; i++){
+				int k = i;
+				assertArrayEquals(value(k, 1), live.get(key(k)), ()->"key " + new String(key(k), ISO_8859_1));
+			}
+			assertNull(live.get(key(MAX)));
+			assertNull(live.get("x".getBytes(ISO_8859_1)));
+			assertNull(live.get(new byte[0]));
+			byte[] small = new byte[5];
+			assertEquals(value(7, 1).length, live.get(key(7), small));
+			assertEquals("79000", new String(small, ISO_8859_1));
+
+			ParallelReads.run("snapshot get(key, dst)", THREADS, MAX, ()->{
+				val r = ThreadLocalRandom.current();
+				byte[] dst = new byte[128];
+				return n->assertTrue(live.get(key(r.nextInt(MAX)), dst) > 0);
+			});
+			ParallelReads.run("rocksdb get", THREADS, MAX, ()->{
+				val r = ThreadLocalRandom.current();
+				return n->assertNotNull(conf.get(h, key(r.nextInt(MAX))));
+			});
+
+			// new version of the reference data: rebuild and swap while readers run
+			fill(conf, 2);
+			val stop = new AtomicBoolean();
+			val reads = new AtomicLong();
+			val failure = new AtomicReference<Throwable>();// a failing reader would just die: the others keep `reads` growing
+			val readers = new ArrayList<Thread>();
+			for (int t = 0; t < THREADS; t++){
+				readers.add(Thread.ofPlatform().start(()->{
+					try {
+						val r = ThreadLocalRandom.current();
+						while (!stop.get()){
+							int i = r.nextInt(MAX);
+							byte[] v = live.get(key(i));
+							assertTrue(v != null && (v[v.length - 1] == '1' || v[v.length - 1] == '2'), ()->"key " + new String(key(i), ISO_8859_1));
+							reads.incrementAndGet();
+						}
+					} catch (Throwable e){
+						failure.compareAndSet(null, e);
+					}
+				}));
+			}
+			val old = live.refresh(conf, "reference", file);
+			long before = reads.get();
+			Thread.sleep(200);
+			stop.set(true);
+			for (Thread t : readers){ t.join(); }
+			if (failure.get() != null){ throw failure.get(); }
+			assertTrue(reads.get() > before, "readers kept going after the swap");
+			assertArrayEquals(value(42, 2), live.get(key(42)));
+			assertArrayEquals(value(42, 1), old.get(key(42)));// the replaced snapshot still serves its readers
+		}
+	}
+
+	@Test  @SneakyThrows
+	void smallAndEmpty () {
+		val dir = Files.createTempDirectory("lookupSmall");
+		assertEquals(0, LookupSnapshot.write(dir.resolve("empty.mph"), List.<Map.Entry<byte[],byte[]>>of().iterator()));
+		assertNull(LookupSnapshot.open(dir.resolve("empty.mph")).get(key(1)));
+
+		val entries = new ArrayList<Map.Entry<byte[],byte[]>>();
+		for (int i = 0; i < 3; i++){ entries.add(new SimpleImmutableEntry<>(key(i), i == 1 ? new byte[0] : value(i, 0))); }
+		LookupSnapshot.write(dir.resolve("three.mph"), entries.iterator());
+		val s = LookupSnapshot.open(dir.resolve("three.mph"));
+		assertEquals(3, s.count());
+		assertArrayEquals(value(2, 0), s.get(key(2)));
+		assertArrayEquals(new byte[0], s.get(key(1)));
+		assertNull(s.get(key(3)));
+
+		entries.add(new SimpleImmutableEntry<>(key(0), value(0, 0)));// duplicate key: no perfect hash
+		assertThrows(IllegalArgumentException.class, ()->LookupSnapshot.write(dir.resolve("dup.mph"), entries.iterator()));
+	}
+
+	@SneakyThrows
+	static void fill (RocksDBConfig conf, int version) {
+		val h = conf.handle("reference");
+		try (val wo = new WriteOptions().setDisableWAL(true)){
+			for (int i = 0; i < MAX; i += 5000){
+				try (val batch = new WriteBatch()){
+					for (int j = i; j < Math.min(MAX, i + 5000); j++){ batch.put(h, key(j), value(j, version)); }
+					conf.rocksDB().write(wo, batch);
+				}
+			}
+		}
+	}
+}
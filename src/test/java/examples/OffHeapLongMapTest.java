@@ -0,0 +1,170 @@
+package examples;
+
+import examples.offheap.OffHeapLongMap;
+import examples.ycsb.Histogram;
+import examples.ycsb.OffHeapEngine;
+import examples.ycsb.Workload;
+import examples.ycsb.Ycsb;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongFunction;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Off-heap long → byte[] map: semantics, torn-read check under concurrent updates, 10 reader threads vs ConcurrentHashMap, YCSB
+public class OffHeapLongMapTest {
+	static final int MAX = 1_000_000;
+	static final int THREADS = 10;
+
+	static long key (long i){ return 7900_000_00_00L + i; }
+
+	static byte[] value (long i){ return Long.toString(7900_000_00_00L + i).repeat(7).getBytes(ISO_8859_1); }
+
+	@Test
+	void semantics () {
+		val map = new OffHeapLongMap(1);// grows from 16 slots
+		for (int i = 0; i < 100_000; i++){ map.put(key(i), value(i)); }
+		assertEquals(100_000, map.size());
+		for (int i = 0; i < 100_000; i++){ assertArrayEquals(value(i), map.get(key(i))); }
+		assertNull(map.get(key(-1)));
+
+		map.put(0, new byte[0]);
+		assertArrayEquals(new byte[0], map.get(0));
+		map.put(-1, "minus one".getBytes(ISO_8859_1));// the sentinels are refs, keys can be anything
+		assertEquals("minus one", new String(map.get(-1), ISO_8859_1));
+		map.put(key(5), "short".getBytes(ISO_8859_1));
+		assertEquals("short", new String(map.get(key(5)), ISO_8859_1));
+		byte[] dst = new byte[3];
+		assertEquals(5, map.get(key(5), dst));
+		assertEquals("sho", new String(dst, ISO_8859_1));
+
+		assertTrue(map.remove(key(7)));
+		assertFalse(map.remove(key(7)));
+		assertNull(map.get(key(7)));
+		assertEquals(-1, map.get(key(7), dst));
+		assertFalse(map.containsKey(key(7)));
+		map.put(key(7), value(7));// over its own tombstone
+		assertArrayEquals(value(7), map.get(key(7)));
+		assertEquals(100_002, map.size());
+
+		byte[] big = new byte[OffHeapLongMap.MAX_VALUE];
+		big[big.length - 1] = 42;
+		map.put(1, big);
+		assertArrayEquals(big, map.get(1));
+		assertThrows(IllegalArgumentException.class, ()->map.put(2, new byte[OffHeapLongMap.MAX_VALUE + 1]));
+
+		// remove/insert churn: tombstones are cleaned by resize, not left to fill the table
+		for (int round = 0; round < 20; round++){
+			for (int i = 0; i < 50_000; i++){ map.put(-1_000_000L * (round + 1) - i, value(i)); }
+			for (int i = 0; i < 50_000; i++){ assertTrue(map.remove(-1_000_000L * (round + 1) - i)); }
+		}
+		assertEquals(100_003, map.size());
+		System.out.println(map);
+	}
+
+	/// Writers rewrite values with different lengths; readers must never see a value of another key or a torn one
+	@Test  @SneakyThrows
+	void optimisticReadsUnderWrites () {
+		val map = new OffHeapLongMap(1000);
+		int keys = 10_000;
+		LongFunction<byte[]> v = k->(k + ";").repeat(1 + (int) (k % 5)).getBytes(ISO_8859_1);
+		for (int k = 0; k < keys; k++){ map.put(k, v.apply(k)); }
+		val stop = new AtomicBoolean();
+		val reads = new AtomicLong();
+		val threads = new ArrayList<Thread>();
+		val error = new AtomicReference<Throwable>();// a thread killed by an exception (e.g. a torn number) would just stop checking
+		for (int w = 0; w < 2; w++){
+			threads.add(Thread.ofPlatform().start(()->{
+				try {
+					val r = ThreadLocalRandom.current();
+					while (!stop.get()){
+						long k = r.nextInt(keys);
+						long version = k + keys * (long) r.nextInt(1, 50);// same key, other length and content
+						byte[] value = (version + ";").repeat(1 + r.nextInt(20)).getBytes(ISO_8859_1);
+						map.put(k, value);
+						if (r.nextInt(100) == 0){ map.remove(k); map.put(k, value); }
+					}
+				} catch (Throwable e){
+					error.compareAndSet(null, e);
+				}
+			}));
+		}
+		val failure = new AtomicLong();
+		for (int t = 0; t < 4; t++){
+			threads.add(Thread.ofPlatform().start(()->{
+				try {
+					val r = ThreadLocalRandom.current();
+					byte[] dst = new byte[512];
+					while (!stop.get()){
+						long k = r.nextInt(keys);
+						int len = map.get(k, dst);
+						if (len < 0){ continue; }// removed for a moment
+						String s = new String(dst, 0, len, ISO_8859_1);
+						String x = s.substring(0, s.indexOf(';') + 1);
+						if (x.isEmpty() || !x.repeat(s.length() / x.length()).equals(s) || Long.parseLong(x.substring(0, x.length() - 1)) % keys != k){
+							failure.incrementAndGet();// torn or another key's value
+							System.err.println(k +": "+ s);
+						}
+						reads.incrementAndGet();
+					}
+				} catch (Throwable e){
+					failure.incrementAndGet();
+					error.compareAndSet(null, e);
+				}
+			}));
+		}
+		Thread.sleep(2000);
+		stop.set(true);
+		for (Thread t : threads){ t.join(); }
+		System.out.println("reads under writes: "+ reads.get() +", "+ map);
+		if (error.get() != null){ throw error.get(); }
+		assertEquals(0, failure.get());
+		assertTrue(reads.get() > 0);
+	}
+
+	@Test  @SneakyThrows
+	void randomReadsVsConcurrentHashMap () {
+		val map = new OffHeapLongMap(MAX);
+		var phase = PhaseStats.start();
+		for (int i = 0; i < MAX; i++){ map.put(key(i), value(i)); }
+		System.out.println(phase.end("off-heap put", MAX) +"; "+ map);
+		ParallelReads.run("off-heap get(key, dst)", THREADS, MAX, ()->{
+			val r = ThreadLocalRandom.current();
+			byte[] dst = new byte[128];
+			return n->assertTrue(map.get(key(r.nextInt(MAX)), dst) > 0);
+		});
+
+		val chm = new ConcurrentHashMap<Long,byte[]>(MAX);
+		phase = PhaseStats.start();
+		for (int i = 0; i < MAX; i++){ chm.put(key(i), value(i)); }
+		System.out.println(phase.end("ConcurrentHashMap put", MAX));
+		ParallelReads.run("ConcurrentHashMap get", THREADS, MAX, ()->{
+			val r = ThreadLocalRandom.current();
+			return n->assertNotNull(chm.get(key(r.nextInt(MAX))));
+		});
+	}
+
+	@Test  @SneakyThrows
+	void ycsb () {
+		try (val engine = new OffHeapEngine()){
+			val ycsb = new Ycsb(engine, 4, false);
+			System.out.println(ycsb.load(Workload.A.withRecordCount(300_000)));
+			for (String name : List.of("A", "B", "C", "F", "D")){// E = scans: a hash map has no key order
+				Ycsb.Result r = ycsb.run(Workload.of(name).withRecordCount(300_000).withOperationCount(300_000));
+				System.out.println(r);
+				assertEquals(300_000, r.latency().values().stream().mapToLong(Histogram::count).sum());
+			}
+			System.out.println(engine.map());
+		}
+	}
+}
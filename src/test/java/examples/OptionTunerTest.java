@@ -0,0 +1,53 @@
+package examples;
+
+import examples.bench.OptionTuner;
+import examples.rocksdb.ColumnFamilyProfile;
+import examples.ycsb.Workload;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.CompactionStyle;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Small grid (memtable size × compaction style) on write-heavy YCSB A; the winner is saved and loaded back as a profile
+public class OptionTunerTest {
+	@Test  @SneakyThrows
+	void gridToProfile () {
+		val workload = Workload.A.withRecordCount(100_000).withOperationCount(100_000).withMinValueSize(200).withMaxValueSize(200);
+		val tuner = new OptionTuner(workload, 4, ColumnFamilyProfile.DEFAULT,
+			List.of(OptionTuner.writeBufferSize(4L << 20, 64L << 20), OptionTuner.compactionStyle(CompactionStyle.LEVEL, CompactionStyle.UNIVERSAL)),
+			Files.createTempDirectory("rocksdbTune"));
+		val trials = tuner.grid();
+		assertEquals(4, trials.size());
+		trials.stream().sorted(Comparator.comparingDouble(OptionTuner.Trial::throughput).reversed()).forEach(System.out::println);
+		for (val t : trials){
+			assertTrue(t.throughput() > 0 && t.p99Micros() > 0, t::toString);
+			assertTrue(t.writeAmp() >= 1, t::toString);// at least the flush
+		}
+		// small memtables ⇒ more flushes and compactions
+		double smallLevel = trials.getFirst().writeAmp(), bigLevel = trials.get(2).writeAmp();
+		assertTrue(smallLevel > bigLevel, trials::toString);
+
+		val best = OptionTuner.best(trials, 0, 0).orElseThrow();
+		assertEquals(trials.stream().mapToDouble(OptionTuner.Trial::throughput).max().orElseThrow(), best.throughput());
+		assertTrue(OptionTuner.best(trials, 0, 0.5).isEmpty());
+
+		val file = Files.createTempDirectory("rocksdbTuned").resolve("tuned-A.json");
+		best.profile().save(file);
+		System.out.println(Files.readString(file));
+		assertEquals(best.profile(), ColumnFamilyProfile.load(file));
+
+		// a profile of an older version (no compactionStyle) or a broken one: error, not null/0
+		Files.writeString(file, Files.readString(file).replaceAll("\"compactionStyle\"\\s*:\\s*\"\\w+\",?", ""));
+		assertThrows(IOException.class, ()->ColumnFamilyProfile.load(file));
+		best.profile().save(file);
+		Files.writeString(file, Files.readString(file).replaceAll("\"blockSize\"\\s*:\\s*\\d+", "\"blockSize\" : 0"));
+		assertThrows(IOException.class, ()->ColumnFamilyProfile.load(file));
+	}
+}
@@ -0,0 +1,45 @@
+package examples;
+
+import lombok.SneakyThrows;
+import lombok.val;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/// Read benchmark of the tests: `threads` platform threads × `reads` calls of a per-thread [Reader] with a progress meter.
+/// The first failure of a reader (e.g. an AssertionError) is rethrown on the test thread.
+final class ParallelReads {
+	private ParallelReads (){}
+
+	interface Reader {
+		void read (int n) throws Exception;
+	}
+
+	/// per thread: its own Random, dst buffer…
+	interface ReaderFactory {
+		Reader create ();
+	}
+
+	@SneakyThrows
+	static void run (String name, int threads, int reads, ReaderFactory factory) {
+		val workers = new ArrayList<Thread>(threads);
+		val failure = new AtomicReference<Throwable>();
+		try (val progress = MagicUtils.progress(name, (long) reads * threads)){
+			for (int t = 0; t < threads; t++){
+				workers.add(Thread.ofPlatform().start(()->{
+					try {
+						val reader = factory.create();
+						for (int n = 0; n < reads && failure.get() == null; n++){
+							reader.read(n);
+							progress.increment();
+						}
+					} catch (Throwable e){
+						failure.compareAndSet(null, e);
+					}
+				}));
+			}
+			for (Thread t : workers){ t.join(); }
+		}
+		if (failure.get() != null){ throw failure.get(); }
+	}
+}
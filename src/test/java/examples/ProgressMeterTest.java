@@ -0,0 +1,44 @@
+package examples;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static examples.MagicUtils.now;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// 8 workers bump one meter; a 1-second "GC pause" in the middle must show up as a dip in the interval series
+public class ProgressMeterTest {
+	@Test  @SneakyThrows
+	void pauseIsVisible () {
+		val lines = new ArrayList<String>();
+		val meter = new ProgressMeter("spin", 0, 200, line->{
+			System.out.println(line);
+			synchronized (lines){ lines.add(line); }
+		});
+		long start = now();
+		val workers = new ArrayList<Thread>();
+		for (int w = 0; w < 8; w++){
+			workers.add(Thread.ofPlatform().start(()->{
+				long elapsed;
+				while ((elapsed = now() - start) < 3000){
+					if (elapsed > 1000 && elapsed < 2000){ Uninterruptibles.sleepUninterruptibly(Duration.ofMillis(10)); continue; }// the "pause"
+					meter.increment();
+				}
+			}));
+		}
+		for (Thread t : workers){ t.join(); }
+		meter.close();
+
+		List<Double> series = meter.series();
+		assertTrue(series.size() >= 10, series::toString);
+		assertEquals(0, series.stream().mapToDouble(Double::doubleValue).min().orElseThrow(), 1, series::toString);
+		assertTrue(meter.count() > 0);
+		assertTrue(lines.getLast().startsWith("spin: done " + meter.count()), lines::toString);
+	}
+}
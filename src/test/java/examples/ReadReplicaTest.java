@@ -0,0 +1,109 @@
+package examples;
+
+import examples.rocksdb.ReadReplica;
+import examples.rocksdb.RocksDBConfig;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static examples.MagicUtils.now;
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// A writer fills the primary, a secondary instance follows it (catch-up every 200 ms) and serves reads with its own cache
+public class ReadReplicaTest {
+	static final int MAX = 300_000;
+
+	static byte[] key (long i){ return Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1); }
+
+	static byte[] value (long i){ return Long.toString(7900_000_00_00L + i).repeat(7).getBytes(ISO_8859_1); }
+
+	@Test  @SneakyThrows
+	void replicaFollowsPrimary () {
+		Path dir = Files.createTempDirectory("rocksdbPrimary");
+		try (val primary = new RocksDBConfig(dir, false)){
+			val heartbeat = ReadReplica.heartbeat(primary, Duration.ofMillis(100));
+			val h = primary.createColumnFamily("replicated");
+			primary.rocksDB().put(h, key(-1), value(-1));
+			try (val replica = new ReadReplica(dir, Files.createTempDirectory("rocksdbReplica"), Duration.ofMillis(200), true)){
+				val written = new AtomicLong(-1);
+				val writer = Thread.ofPlatform().start(()->{
+					try {
+						for (int i = 0; i < MAX; i++){
+							primary.rocksDB().put(h, key(i), value(i));
+							written.set(i);
+						}
+					} catch (Exception e){
+						throw new IllegalStateException(e);
+					}
+				});
+				// readers of the replica: everything older than one catch-up must be visible (or not yet: counted as a miss)
+				long hits = 0, misses = 0;
+				val r = ThreadLocalRandom.current();
+				while (writer.isAlive()){
+					long w = written.get();
+					if (w < 0){ continue; }
+					long i = r.nextLong(w + 1);
+					byte[] v = replica.get("replicated", key(i));
+					if (v == null){ misses++; } else { assertArrayEquals(value(i), v); hits++; }
+				}
+				writer.join();
+				System.out.println("during writes: hits="+ hits +" misses (not yet replicated)="+ misses +", "+ replica.lag());
+
+				long t = now();
+				while (replica.get("replicated", key(MAX - 1)) == null){
+					assertTrue(now() - t < 10_000, "replica didn't catch up in 10 s: " + replica.lag());
+					Thread.sleep(10);
+				}
+				System.out.println("caught up in "+ (now() - t) +" ms: "+ replica.lag());
+				for (int i = -1; i < MAX; i++){
+					assertArrayEquals(value(i), replica.get("replicated", key(i)));
+				}
+				val lag = replica.lag();
+				assertTrue(lag.heartbeatLagMillis() >= 0 && lag.heartbeatLagMillis() < 5000, lag::toString);
+				assertEquals(0, lag.failedCatchUps());
+			} finally {
+				heartbeat.close();
+			}
+		}
+	}
+
+	/// The real deployment: the replica in another JVM
+	@Test  @SneakyThrows
+	void replicaProcess () {
+		Path dir = Files.createTempDirectory("rocksdbPrimary");
+		try (val primary = new RocksDBConfig(dir, false)){
+			val heartbeat = ReadReplica.heartbeat(primary, Duration.ofMillis(100));
+			val process = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+				"-cp", System.getProperty("java.class.path"), "-Drocksdb.path=" + dir, "-Drocksdb.replica.catchUpMs=200",
+				ReadReplica.class.getName())
+				.redirectErrorStream(true)
+				.start();
+			try (val out = new BufferedReader(new InputStreamReader(process.getInputStream(), UTF_8))){
+				String line;
+				while ((line = out.readLine()) != null){
+					System.out.println("replica> " + line);
+					if (line.startsWith("lag=")){
+						long lag = Long.parseLong(line.substring(4, line.indexOf(' ')));
+						assertTrue(lag >= 0 && lag < 5000, line);
+						break;
+					}
+				}
+				assertNotNull(line, "replica process exited");
+			} finally {
+				process.destroy();
+				assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+				heartbeat.close();
+			}
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package examples;
 
+import examples.bench.BenchmarkResult;
 import lombok.Cleanup;
 import lombok.val;
 import org.junit.jupiter.api.AfterAll;
@@ -28,7 +29,6 @@ import java.util.concurrent.TimeUnit;
 
 import static examples.MagicUtils.close;
 import static examples.MagicUtils.now;
-import static examples.MagicUtils.perfToString;
 import static java.nio.charset.StandardCharsets.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -88,7 +88,7 @@ public class RedisTest {
 			jedis.set(Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1), Long.toString(7900_000_00_00L + i).repeat(7).getBytes(ISO_8859_1));
 			if (++i % 10_000 == 0) System.out.println(i);
 		}
-		System.out.println(perfToString(t, now(), MAX));
+		System.out.println(BenchmarkResult.record("redis", "set", t, now(), MAX));
 
 		t = now();
 		val r = ThreadLocalRandom.current();
@@ -98,7 +98,7 @@ public class RedisTest {
 			if (++n % 20_000 == 0) System.out.println(n);
 			assertEquals(Long.toString(7900_000_00_00L + i).repeat(7), e);
 		}
-		System.out.println(perfToString(t, now(), MAX));
+		System.out.println(BenchmarkResult.record("redis", "get", t, now(), MAX));
 	}
 
 	@Test  @DisplayName("Multithreaded write performance test")
@@ -131,6 +131,6 @@ public class RedisTest {
 		executor.shutdown();
 		executor.awaitTermination(5, TimeUnit.SECONDS);
 
-		System.out.println(perfToString(t, now(), 100_000));
+		System.out.println(BenchmarkResult.record("redis", "set × threads", t, now(), 100_000));
 	}
 }
\ No newline at end of file
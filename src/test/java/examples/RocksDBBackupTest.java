@@ -0,0 +1,162 @@
+package examples;
+
+import examples.rocksdb.RocksDBBackup;
+import examples.rocksdb.RocksDBConfig;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static examples.MagicUtils.asLatin1;
+import static examples.MagicUtils.execute;
+import static examples.MagicUtils.now;
+import static examples.MagicUtils.perfToString;
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Latency impact of online backup: the same read/write mix without backup and while [RocksDBBackup] copies files
+/// (rate limited), then checkpoint + restore and verify.
+public class RocksDBBackupTest {
+	static final int MAX = 2_000_000;
+	static final int THREADS = 8;
+	static final long RATE = 32 * 1024 * 1024;// 32MB/s
+
+	@Test  @SneakyThrows
+	void backupUnderLoad () {
+		Path dir = Files.createTempDirectory("rocksdbBackup");
+		System.out.println(dir);
+		try (val conf = new RocksDBConfig(dir.resolve("db"), false);
+				 val backup = new RocksDBBackup(conf, dir.resolve("backup"), RATE)){
+			val h = conf.handle("harry");
+			System.out.println("1️⃣ Create 2 mi keys");
+			long t = now();
+			for (int i = 0; i < MAX; ){
+				try (val batch = new WriteBatch(); val wo = new WriteOptions()){
+					for (int j = 0; j < 5000; j++, i++){
+						batch.put(h, Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1), Long.toString(7900_000_00_00L + i).repeat(7).getBytes(ISO_8859_1));
+					}
+					conf.rocksDB().write(wo, batch);
+				}
+			}
+			System.out.println(perfToString(t, now(), MAX));
+			conf.rocksDB().flushWal(true);
+
+			System.out.println("2️⃣ 90% reads + 10% writes, no backup");
+			load(conf, h, CompletableFuture.runAsync(()->sleep(5)));
+
+			System.out.printf("3️⃣ The same during the first (full) backup at %d MB/s%n", RATE >> 20);
+			load(conf, h, CompletableFuture.runAsync(()->backup(backup)));// platform thread: JNI would pin a carrier
+
+			System.out.println("4️⃣ The same during incremental backup");
+			load(conf, h, CompletableFuture.runAsync(()->backup(backup)));// platform thread: JNI would pin a carrier
+			assertEquals(2, backup.backups().size());
+
+			t = now();
+			conf.checkpoint(dir.resolve("checkpoint"));
+			System.out.printf("5️⃣ Checkpoint: %d ms%n", now() - t);
+
+			t = now();
+			backup.restoreLatest(dir.resolve("restored"));
+			System.out.printf("6️⃣ Restore: %d ms%n", now() - t);
+		}
+		for (String copy : new String[]{"checkpoint", "restored"}){
+			try (val conf = new RocksDBConfig(dir.resolve(copy), false)){
+				val h = conf.handle("harry");
+				val r = ThreadLocalRandom.current();
+				for (int n = 0; n < 100_000; n++){
+					int i = r.nextInt(MAX);
+					assertEquals(Long.toString(7900_000_00_00L + i).repeat(7), asLatin1(conf.get(h, Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1))), copy);
+				}
+			}
+		}
+	}
+
+	/// close() while the schedule thread is backing up: it waits for the running backup, and no call reaches the freed engine
+	@Test  @SneakyThrows
+	void closeWhileScheduled () {
+		Path dir = Files.createTempDirectory("rocksdbBackupClose");
+		try (val conf = new RocksDBConfig(dir.resolve("db"), false)){
+			val h = conf.handle("harry");
+			for (int i = 0; i < 100_000; i++){
+				conf.rocksDB().put(h, Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1), Long.toString(7900_000_00_00L + i).repeat(7).getBytes(ISO_8859_1));
+			}
+			for (int n = 0; n < 5; n++){
+				val backup = new RocksDBBackup(conf, dir.resolve("backup"), RATE);
+				backup.schedule(Duration.ofMillis(1), 2);
+				TimeUnit.MILLISECONDS.sleep(50 * n);
+				backup.close();
+				assertThrows(IllegalStateException.class, backup::backup);
+				assertThrows(IllegalStateException.class, backup::backups);
+				TimeUnit.MILLISECONDS.sleep(20);// the schedule thread wakes up after close: must exit, not crash the JVM
+			}
+		}
+	}
+
+	@SneakyThrows
+	static void backup (RocksDBBackup backup) {
+		backup.backup();
+	}
+
+	@SneakyThrows
+	static void sleep (int seconds) {
+		TimeUnit.SECONDS.sleep(seconds);
+	}
+
+	/// THREADS workers until `until` completes; each op latency into a per-thread sample
+	@SneakyThrows
+	static void load (RocksDBConfig conf, ColumnFamilyHandle h, CompletableFuture<?> until) {
+		val stop = new AtomicBoolean();
+		val ops = new AtomicLong();
+		val failure = new AtomicReference<Throwable>();// a failed read during backup must fail the test, not just be printed
+		val samples = new long[THREADS][];
+		val w = new CountDownLatch(THREADS);
+		long t = now();
+		for (int k = 0; k < THREADS; k++){
+			int thread = k;
+			execute(()->{
+				val r = ThreadLocalRandom.current();
+				val lat = new long[1 << 20];
+				int n = 0;
+				try {
+					while (!stop.get()){
+						int i = r.nextInt(MAX);
+						byte[] key = Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1);
+						long s = System.nanoTime();
+						if (r.nextInt(10) == 0)
+								conf.rocksDB().put(h, key, Long.toString(7900_000_00_00L + i).repeat(7).getBytes(ISO_8859_1));
+						else
+								assertNotNull(conf.get(h, key));
+						lat[n++ & (lat.length - 1)] = System.nanoTime() - s;
+					}
+				} catch (Throwable e){
+					failure.compareAndSet(null, e);
+					stop.set(true);
+				}
+				ops.addAndGet(n);
+				samples[thread] = Arrays.copyOf(lat, Math.min(n, lat.length));
+				w.countDown();
+			});
+		}
+		until.join();
+		stop.set(true);
+		assertTrue(w.await(1, TimeUnit.MINUTES));
+		if (failure.get() != null){ throw failure.get(); }
+		long[] all = Arrays.stream(samples).flatMapToLong(Arrays::stream).sorted().toArray();
+		System.out.printf("%s, p50=%d µs, p99=%d µs, p99.9=%d µs%n", perfToString(t, now(), ops.get()),
+			all[all.length / 2] / 1000, all[all.length * 99 / 100] / 1000, all[(int)(all.length * 999L / 1000)] / 1000);
+	}
+}
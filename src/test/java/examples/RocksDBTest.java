@@ -1,5 +1,6 @@
 package examples;
 
+import examples.bench.BenchmarkResult;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
@@ -23,6 +24,7 @@ import static examples.MagicUtils.execute;
 import static examples.MagicUtils.loop;
 import static examples.MagicUtils.now;
 import static examples.MagicUtils.perfToString;
+import static examples.MagicUtils.progress;
 import static java.nio.charset.StandardCharsets.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -38,7 +40,7 @@ import static org.junit.jupiter.api.Assertions.*;
 ///
 /// TTL (one for whole DB) is set at the moment of opening the database
 ///
-/// You can open the same database read-only (this is what backup replica does)
+/// You can open the same database read-only (this is what backup replica does) → [examples.rocksdb.ReadReplica] (secondary instance in another process)
 ///
 /// Merge only in C
 ///
@@ -78,55 +80,62 @@ public class RocksDBTest {
 			System.out.println("1️⃣ Create 10 mi keys");
 
 			long t = now();
-			for (int i = 0; i < MAX; ){
-				db.put(Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1), Long.toString(7900_000_00_00L + i).repeat(7).getBytes(ISO_8859_1));
-				if (++i % 500_000 == 0) System.out.println(i);
+			try (val progress = progress("put", MAX)){
+				for (int i = 0; i < MAX; i++){
+					db.put(Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1), Long.toString(7900_000_00_00L + i).repeat(7).getBytes(ISO_8859_1));
+					progress.increment();
+				}
 			}
-			System.out.println(perfToString(t, now(), MAX));
+			System.out.println(BenchmarkResult.record("rocksdb", "put", t, now(), MAX));
 
 
 			System.out.println("2️⃣ Single thread sequential reads");
 			t = now();
-			for (int i = 0; i < MAX; ){
-				var e = db.get(Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1));
-				assertEquals(Long.toString(7900_000_00_00L + i).repeat(7), asLatin1(e));
-				if (++i % 100_000 == 0) System.out.println(i);
+			try (val progress = progress("sequential get", MAX)){
+				for (int i = 0; i < MAX; i++){
+					var e = db.get(Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1));
+					assertEquals(Long.toString(7900_000_00_00L + i).repeat(7), asLatin1(e));
+					progress.increment();
+				}
 			}
-			System.out.println(perfToString(t, now(), MAX));
+			System.out.println(BenchmarkResult.record("rocksdb", "sequential get", t, now(), MAX));
 
 
 			System.out.println("3️⃣ Single thread random BATCH reads");
 			t = now();
 			val r = ThreadLocalRandom.current();
 			val req = new ArrayList<byte[]>(50);
-			for (int n = 0; n < MAX; ){
-				req.clear();
-				for (int j = 0; j < 50 && n < MAX; j++, n++){
-					if (n % 100_000 == 0) System.out.println(n);
-					int i = r.nextInt(0, MAX);
-					req.add(Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1));
-				}
-				var e = db.multiGetAsList(req);// 🚀
-				assertEquals(e.size(), req.size());
+			try (val progress = progress("multiGet", MAX)){
+				for (int n = 0; n < MAX; ){
+					req.clear();
+					for (int j = 0; j < 50 && n < MAX; j++, n++){
+						int i = r.nextInt(0, MAX);
+						req.add(Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1));
+					}
+					var e = db.multiGetAsList(req);// 🚀
+					assertEquals(e.size(), req.size());
 
-				for (int j = 0; j < req.size(); j++){
-					assertEquals(asLatin1(req.get(j)).repeat(7), asLatin1(e.get(j)));
+					for (int j = 0; j < req.size(); j++){
+						assertEquals(asLatin1(req.get(j)).repeat(7), asLatin1(e.get(j)));
+					}
+					progress.add(req.size());
 				}
 			}
-			System.out.println(perfToString(t, now(), MAX));
+			System.out.println(BenchmarkResult.record("rocksdb", "random multiGet batches", t, now(), MAX));
 
 
 			System.out.println("4️⃣ Multi threads random reads 🚀...");
 			t = now();
 			val w = new CountDownLatch(10);
 			val failure = new AtomicReference<Throwable>();
+			val progress = progress("10 threads get", MAX * 10L);// one striped counter for all readers
 			loop(10, ()->execute(()->{
 					try {
-						for (int n = 0; n < MAX; ){
+						for (int n = 0; n < MAX; n++){
 							int i = ThreadLocalRandom.current().nextInt(0, MAX);
 							var e = db.get(Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1));
 							assertEquals(Long.toString(7900_000_00_00L + i).repeat(7), asLatin1(e));
-							if (++n % 100_000 == 0) System.out.println(n);
+							progress.increment();
 						}
 						w.countDown();
 					} catch (Throwable e){
@@ -135,10 +144,11 @@ public class RocksDBTest {
 					}
 				}));
 			boolean done = w.await(15, TimeUnit.MINUTES);
+			progress.close();
 			assertTrue(done);
 			if (failure.get() != null) throw failure.get();
 			System.out.println(perfToString(t, now(), MAX));
-			System.out.println(perfToString(t, now(), MAX*10));
+			System.out.println(BenchmarkResult.record("rocksdb", "random get × 10 threads", t, now(), MAX*10));
 		}
 	}
 
@@ -161,25 +171,29 @@ public class RocksDBTest {
 			System.out.println("1️⃣ Create 10 mi keys");
 
 			long t = now();
-			for (int i = 0; i < MAX; ){
-				val batch = new WriteBatch();
-				for (int j = 0; j < 5000; j++, i++){
-					batch.put(
-						Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1),
-						Long.toString(7900_000_00_00L + i).repeat(7).getBytes(ISO_8859_1)
-					);
-					if (i % 500_000 == 0) System.out.println(i);
+			try (val progress = progress("batch put", MAX); val wo = new WriteOptions()){// one native WriteOptions for all batches
+				for (int i = 0; i < MAX; ){
+					val batch = new WriteBatch();
+					for (int j = 0; j < 5000; j++, i++){
+						batch.put(
+							Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1),
+							Long.toString(7900_000_00_00L + i).repeat(7).getBytes(ISO_8859_1)
+						);
+					}
+					db.write(wo, batch);
+					progress.add(batch.count());
+					batch.close();
 				}
-				db.write(new WriteOptions(), batch);
-				batch.close();
 			}
-			System.out.println(perfToString(t, now(), MAX));
+			System.out.println(BenchmarkResult.record("rocksdb", "batch put", t, now(), MAX));
 
 			// verify all keys
-			for (int i = 0; i < MAX; ){
-				var e = db.get(Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1));
-				assertEquals(Long.toString(7900_000_00_00L + i).repeat(7), asLatin1(e));
-				if (++i % 100_000 == 0) System.out.println(i);
+			try (val progress = progress("verify", MAX)){
+				for (int i = 0; i < MAX; i++){
+					var e = db.get(Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1));
+					assertEquals(Long.toString(7900_000_00_00L + i).repeat(7), asLatin1(e));
+					progress.increment();
+				}
 			}
 		}
 	}
@@ -203,24 +217,28 @@ public class RocksDBTest {
 			System.out.println("1️⃣ Create 10 mi keys");
 
 			long t = now();
-			for (int i = 0; i < MAX; ){
-				for (int j = 0; j < 5000; j++, i++){
-					byte[] key = Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1);
-					byte[] value = Long.toString(7900_000_00_00L + i).repeat(7).getBytes(ISO_8859_1);
-					Thread.startVirtualThread(()->putter(db,key,value));// 5000 concurrent threads
-					if (i % 500_000 == 0) System.out.println(i);
+			try (val progress = progress("start putters", MAX)){
+				for (int i = 0; i < MAX; ){
+					for (int j = 0; j < 5000; j++, i++){
+						byte[] key = Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1);
+						byte[] value = Long.toString(7900_000_00_00L + i).repeat(7).getBytes(ISO_8859_1);
+						Thread.startVirtualThread(()->putter(db,key,value));// 5000 concurrent threads
+					}
+					progress.add(5000);
 				}
 			}
-			System.out.println(perfToString(t, now(), MAX));// 2647ms, op/s = 1_888_931
+			System.out.println(BenchmarkResult.record("rocksdb", "put × 5000 virtual threads", t, now(), MAX));// 2647ms, op/s = 1_888_931
 
 			// verify all keys
 			t = now();
-			for (int i = 0; i < MAX; ){
-				var e = db.get(Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1));
-				assertEquals(Long.toString(7900_000_00_00L + i).repeat(7), asLatin1(e));
-				if (++i % 100_000 == 0) System.out.println(i);
+			try (val progress = progress("verify", MAX)){
+				for (int i = 0; i < MAX; i++){
+					var e = db.get(Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1));
+					assertEquals(Long.toString(7900_000_00_00L + i).repeat(7), asLatin1(e));
+					progress.increment();
+				}
 			}
-			System.out.println(perfToString(t, now(), MAX));// 46_586 ms, op/s = 214_657
+			System.out.println(BenchmarkResult.record("rocksdb", "sequential get after concurrent put", t, now(), MAX));// 46_586 ms, op/s = 214_657
 		}
 	}
 	static void putter (RocksDB db, byte[] key, byte[] value) {
@@ -0,0 +1,151 @@
+package examples;
+
+import examples.rocksdb.RocksDBConfig;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static examples.MagicUtils.asLatin1;
+import static examples.MagicUtils.now;
+import static examples.MagicUtils.perfToString;
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Deploy cost: shutdown time, open time and time-to-steady-state p99 of random reads after restart
+/// with cold block cache vs warm restart (hot keys are prefetched in background).
+public class RocksDBWarmRestartTest {
+	static final int MAX = 2_000_000;
+	static final int HOT = 100_000;// reads hit 5% of keys
+	static final int WINDOW = 20_000;
+	static final int WINDOWS = 60;
+
+	@Test  @SneakyThrows
+	void coldVsWarmRestart () {
+		String sample = System.setProperty("rocksdb.warm.sample", "4");// every 4th read: the hot set is sampled quickly
+		try {
+			Path dir = Files.createTempDirectory("rocksdbWarmRestart");
+			System.out.println(dir);
+
+			System.out.println("1️⃣ Create 2 mi keys + read hot keys");
+			val conf = new RocksDBConfig(dir, true);
+			val h = conf.handle("harry");
+			long t = now();
+			for (int i = 0; i < MAX; ){
+				try (val batch = new WriteBatch(); val wo = new WriteOptions()){
+					for (int j = 0; j < 5000; j++, i++){
+						batch.put(h, Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1), Long.toString(7900_000_00_00L + i).repeat(7).getBytes(ISO_8859_1));
+					}
+					conf.rocksDB().write(wo, batch);
+				}
+			}
+			System.out.println(perfToString(t, now(), MAX));
+
+			t = now();
+			val r = ThreadLocalRandom.current();
+			for (int n = 0; n < HOT * 4; n++){
+				int i = r.nextInt(HOT);
+				assertEquals(Long.toString(7900_000_00_00L + i).repeat(7), asLatin1(conf.get(h, Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1))));
+			}
+			System.out.println(perfToString(t, now(), HOT * 4));
+			t = now();
+			conf.close();
+			System.out.printf("2️⃣ Shutdown (flush + WAL sync + save hot keys): %d ms%n", now() - t);
+
+			restart(dir, false);// cold
+			restart(dir, true);// warm
+		} finally {// the other tests of this JVM get the default
+			if (sample == null){ System.clearProperty("rocksdb.warm.sample"); }
+			else { System.setProperty("rocksdb.warm.sample", sample); }
+		}
+	}
+
+	/// close right after a warm open: prefetch is still running, the hot key saver sleeps ⇒ both stop before any handle is closed
+	@Test  @SneakyThrows
+	void closeDuringWarmUp () {
+		Path dir = Files.createTempDirectory("rocksdbWarmClose");
+		try (val conf = new RocksDBConfig(dir, true)){
+			val h = conf.handle("harry");
+			for (int i = 0; i < HOT; i++){
+				byte[] key = Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1);
+				conf.rocksDB().put(h, key, key);
+				for (int n = 0; n < 16; n++){ conf.get(h, key); }// sampled 1 of 16
+			}
+		}
+		for (int n = 0; n < 5; n++){
+			val conf = new RocksDBConfig(dir, true);
+			long t = now();
+			conf.close();
+			System.out.printf("close during warm-up: %d ms, prefetched %d keys%n", now() - t, conf.warmUp().getNow(-1));
+			assertTrue(conf.warmUp().isDone());
+			assertTrue(now() - t < 30_000);// not a saveEverySec (60 s) sleep
+			assertTrue(Files.size(dir.resolve("warm-keys.bin")) > HOT / 16 * 8, "close must save the hot keys it didn't prefetch");
+		}
+	}
+
+	/// CFs created after the open (tenants) are sampled and prefetched too; a dropped CF's keys are not saved
+	@Test  @SneakyThrows
+	void runtimeColumnFamilies () {
+		String sample = System.setProperty("rocksdb.warm.sample", "1");// every read: exact counts
+		try {
+			Path dir = Files.createTempDirectory("rocksdbWarmRuntimeCf");
+			try (val conf = new RocksDBConfig(dir, true)){
+				val runtime = conf.createColumnFamily("runtime");
+				val batch = conf.createColumnFamilies(List.of("batch", "dropped"), null);
+				for (val h : List.of(runtime, batch.get(0), batch.get(1))){
+					for (int i = 0; i < 1000; i++){
+						byte[] key = Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1);
+						conf.rocksDB().put(h, key, key);
+						assertNotNull(conf.get(h, key));
+					}
+				}
+				assertTrue(conf.dropColumnFamily("dropped"));
+			}
+			try (val conf = new RocksDBConfig(dir, true)){
+				assertEquals(2000, conf.warmUp().get(1, TimeUnit.MINUTES), "runtime + batch, not dropped");
+			}
+		} finally {
+			if (sample == null){ System.clearProperty("rocksdb.warm.sample"); }
+			else { System.setProperty("rocksdb.warm.sample", sample); }
+		}
+	}
+
+	@SneakyThrows
+	static void restart (Path dir, boolean warmStart) {
+		String name = warmStart ? "3️⃣ Warm restart" : "3️⃣ Cold restart";
+		long t = now();
+		try (val conf = new RocksDBConfig(dir, warmStart)){
+			long open = now() - t;
+			val h = conf.handle("harry");
+			val r = ThreadLocalRandom.current();
+			val p99 = new long[WINDOWS];
+			val at = new long[WINDOWS];
+			val lat = new long[WINDOW];
+			for (int w = 0; w < WINDOWS; w++){
+				for (int n = 0; n < WINDOW; n++){
+					int i = r.nextInt(HOT);
+					long s = System.nanoTime();
+					byte[] v = conf.get(h, Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1));
+					lat[n] = System.nanoTime() - s;
+					assertNotNull(v);
+				}
+				Arrays.sort(lat);
+				p99[w] = lat[WINDOW * 99 / 100];
+				at[w] = now() - t;
+			}
+			long steady = Arrays.stream(p99, WINDOWS - 10, WINDOWS).sorted().toArray()[5];// median of the last windows
+			int w = 0;
+			while (w < WINDOWS - 1 && p99[w] > steady * 12 / 10){ w++; }
+			System.out.printf("%s: open=%d ms, prefetched=%d keys, first p99=%d µs, steady p99=%d µs, time-to-steady=%d ms%n",
+				name, open, conf.warmUp().getNow(-1), p99[0] / 1000, steady / 1000, at[w]);
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package examples;
 
 import com.google.common.base.Verify;
+import examples.bench.BenchmarkResult;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
@@ -22,7 +23,6 @@ import static examples.MagicUtils.close;
 import static examples.MagicUtils.execute;
 import static examples.MagicUtils.loop;
 import static examples.MagicUtils.now;
-import static examples.MagicUtils.perfToString;
 import static org.junit.jupiter.api.Assertions.*;
 
 /// https://sqlite.org/
@@ -77,7 +77,7 @@ public class SQLitePerfTest {
 						commitBatch(psInsert, 5000);//+=>
 				if (i % 500_000 == 0) System.out.println(i);
 			}
-			System.out.println(perfToString(t, now(), MAX));
+			System.out.println(BenchmarkResult.record("sqlite", "batch insert", t, now(), MAX));
 
 			con.setAutoCommit(true);// commits tx
 
@@ -93,7 +93,7 @@ public class SQLitePerfTest {
 					if (++n % 200_000 == 0) System.out.println(n);
 				}
 			}
-			System.out.println(perfToString(t, now(), MAX));
+			System.out.println(BenchmarkResult.record("sqlite", "random get", t, now(), MAX));
 
 
 			System.out.println("3️⃣ SQLite single thread BATCH (whole table) read (just for fun)...");
@@ -107,7 +107,7 @@ public class SQLitePerfTest {
 					if (++i % 500_000 == 0) System.out.println(i);
 				}
 			}
-			System.out.println(perfToString(t, now(), MAX));
+			System.out.println(BenchmarkResult.record("sqlite", "whole table read", t, now(), MAX));
 
 
 			System.out.println("4️⃣ SQLite multi-thread random read...");
@@ -137,7 +137,7 @@ public class SQLitePerfTest {
 				var o = bq.take();
 				if (o instanceof Exception e) throw e;
 			}
-			System.out.println(perfToString(t, now(), MAX*10));
+			System.out.println(BenchmarkResult.record("sqlite", "random get × 10 threads", t, now(), MAX*10));
 		} finally {
 			close(con);
 		}
@@ -0,0 +1,127 @@
+package examples;
+
+import examples.rocksdb.ColumnFamilyProfile;
+import examples.rocksdb.RocksDBConfig;
+import examples.rocksdb.ShardedStore;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.WriteOptions;
+
+import java.nio.file.Files;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// 16 writers: one RocksDB (one WAL) vs 4 hash shards with one shared memory budget; then multiGet fan-out and merged scans
+public class ShardedStoreTest {
+	static final int MAX = 1_000_000;
+	static final int WRITERS = 16;
+
+	static byte[] key (long i){ return Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1); }
+
+	static byte[] value (long i){ return Long.toString(7900_000_00_00L + i).repeat(7).getBytes(ISO_8859_1); }
+
+	@Test  @SneakyThrows
+	void singleVsSharded () {
+		try (val conf = new RocksDBConfig(Files.createTempDirectory("rocksdbSingle"), false)){
+			val h = conf.createColumnFamily("sharded");
+			write("1 instance", (k, v)->conf.rocksDB().put(h, k, v));
+		}
+		try (val store = new ShardedStore(4, List.of(Files.createTempDirectory("rocksdbShards")), null, "sharded", cf->ColumnFamilyProfile.DEFAULT)){
+			write("4 shards", store::put);
+			System.out.println(store.memoryReport());
+
+			val r = ThreadLocalRandom.current();
+			var phase = PhaseStats.start();
+			for (int n = 0; n < MAX / 100; n++){
+				val keys = new ArrayList<byte[]>(100);
+				for (int j = 0; j < 100; j++){ keys.add(key(r.nextInt(MAX))); }
+				keys.add("missing".getBytes(ISO_8859_1));
+				val values = store.multiGet(keys);
+				for (int j = 0; j < 100; j++){
+					assertArrayEquals(value(Long.parseLong(new String(keys.get(j), ISO_8859_1)) - 7900_000_00_00L), values.get(j));
+				}
+				assertNull(values.get(100));
+			}
+			System.out.println(phase.end("multiGet ×100", MAX));
+
+			phase = PhaseStats.start();
+			for (int n = 0; n < 10_000; n++){
+				int from = r.nextInt(MAX - 100);
+				val entries = store.scan(key(from), 100);
+				assertEquals(100, entries.size());
+				for (int j = 0; j < entries.size(); j++){
+					assertArrayEquals(key(from + j), entries.get(j).getKey());// same length keys: bytewise = numeric order
+				}
+			}
+			System.out.println(phase.end("merged scan ×100", 10_000 * 100));
+		}
+	}
+
+	interface Writer {
+		void put (byte[] key, byte[] value) throws Exception;
+	}
+
+	@SneakyThrows
+	static void write (String name, Writer writer) {
+		val threads = new ArrayList<Thread>();
+		try (val progress = MagicUtils.progress(name, MAX)){
+			for (int w = 0; w < WRITERS; w++){
+				int first = w;
+				threads.add(Thread.ofPlatform().start(()->{
+					try {
+						for (int i = first; i < MAX; i += WRITERS){
+							writer.put(key(i), value(i));
+							progress.increment();
+						}
+					} catch (Exception e){
+						throw new IllegalStateException(e);
+					}
+				}));
+			}
+			for (Thread t : threads){ t.join(); }
+		}
+	}
+
+	@Test  @SneakyThrows
+	void rangePartitioning () {
+		val splits = List.of(key(250), key(500), key(750));
+		val dirs = List.of(Files.createTempDirectory("rocksdbRange"));
+		try (val store = new ShardedStore(4, dirs, splits, "range", cf->ColumnFamilyProfile.DEFAULT)){
+			assertEquals(0, store.shardOf(key(0)));
+			assertEquals(1, store.shardOf(key(250)));
+			assertEquals(3, store.shardOf(key(999)));
+
+			val entries = new ArrayList<Map.Entry<byte[],byte[]>>();
+			for (int i = 0; i < 1000; i++){ entries.add(new SimpleImmutableEntry<>(key(i), value(i))); }
+			try (val wo = new WriteOptions()){ store.putAll(entries, wo); }
+			for (int s = 0; s < 4; s++){
+				try (val it = store.shard(s).rocksDB().newIterator(store.shard(s).handle("range"))){
+					int n = 0;
+					for (it.seekToFirst(); it.isValid(); it.next()){ n++; }
+					assertEquals(250, n, "shard " + s);
+				}
+			}
+			val scan = store.scan(key(240), 600);// crosses 3 shards
+			assertEquals(600, scan.size());
+			for (int j = 0; j < scan.size(); j++){
+				assertEquals(new String(key(240 + j), ISO_8859_1), new String(scan.get(j).getKey(), ISO_8859_1));
+			}
+			assertEquals(10, store.scan(key(990), 100).size());
+			assertArrayEquals(value(7), store.get(key(7)));
+		}
+		// another routing would look keys up in the wrong shard
+		assertThrows(IllegalArgumentException.class, ()->new ShardedStore(4, dirs, List.of(key(200), key(500), key(750)), "range", cf->ColumnFamilyProfile.DEFAULT));
+		assertThrows(IllegalArgumentException.class, ()->new ShardedStore(4, dirs, null, "range", cf->ColumnFamilyProfile.DEFAULT));
+		assertThrows(IllegalArgumentException.class, ()->new ShardedStore(2, dirs, List.of(key(500)), "range", cf->ColumnFamilyProfile.DEFAULT));
+		try (val store = new ShardedStore(4, dirs, splits, "range", cf->ColumnFamilyProfile.DEFAULT)){
+			for (int i = 0; i < 1000; i++){ assertArrayEquals(value(i), store.get(key(i))); }
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package examples;
+
+import examples.rocksdb.ColumnFamilyProfile;
+import examples.rocksdb.DurableWriter.Durability;
+import examples.rocksdb.RocksDBConfig;
+import examples.rocksdb.TenantStore;
+import examples.rocksdb.TenantStore.Quota;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.Status;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static examples.MagicUtils.now;
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Tenant = CF created/dropped at runtime: create + reopen time and memory with 10/100/1000 tenants; memtable and write rate quotas
+public class TenantStoreTest {
+	static byte[] key (long i){ return Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1); }
+
+	static byte[] value (long i){ return Long.toString(7900_000_00_00L + i).repeat(7).getBytes(ISO_8859_1); }
+
+	@Test  @SneakyThrows
+	void openTimeAndMemory () {
+		val base = ColumnFamilyProfile.fromSystemProperties();
+		for (int n : List.of(10, 100, 1000)){
+			val dir = Files.createTempDirectory("rocksdbTenants");
+			var phase = PhaseStats.start();
+			try (val conf = new RocksDBConfig(dir, false, TenantStore.profiles(dir, base, Quota.DEFAULT))){
+				val tenants = new TenantStore(conf, Quota.DEFAULT, Duration.ZERO);
+				val created = tenants.create(IntStream.range(0, n).mapToObj(t->"t"+ t).toList(), Quota.DEFAULT);// one CF batch
+				for (val tenant : created){
+					for (int i = 0; i < 100; i++){ tenant.put(Durability.NONE, key(i), value(i)); }
+				}
+				System.out.println(phase.end(n +" tenants: create + 100 puts each", n));
+				long t = now();
+				for (int i = 0; i < 5; i++){ tenants.create("single"+ i); }// each one rewrites the OPTIONS file of all CFs
+				System.out.println("one more tenant at "+ n +": "+ (now() - t) / 5 +" ms; "+ tenants);
+				assertEquals(n + 5, tenants.size());
+				assertEquals(2, conf.sharedOptionsCount());// static CFs + all tenants
+			}
+
+			phase = PhaseStats.start();
+			try (val conf = new RocksDBConfig(dir, false, TenantStore.profiles(dir, base, Quota.DEFAULT))){
+				val tenants = new TenantStore(conf, Quota.DEFAULT, Duration.ZERO);
+				System.out.println(phase.end("reopen with "+ n +" tenant CFs", n));
+				System.out.println(conf.memoryReport());
+				assertEquals(n + 5, tenants.size());
+				assertArrayEquals(value(42), tenants.tenant("t"+ (n - 1)).get(key(42)));
+			}
+		}
+	}
+
+	@Test  @SneakyThrows
+	void quotas () {
+		val dir = Files.createTempDirectory("rocksdbQuota");
+		val base = ColumnFamilyProfile.fromSystemProperties();
+		try (val conf = new RocksDBConfig(dir, false, TenantStore.profiles(dir, base, Quota.DEFAULT))){
+			val tenants = new TenantStore(conf, Quota.DEFAULT, Duration.ofMillis(50));
+			val quiet = tenants.create("quiet");
+			val small = tenants.create("small", Quota.DEFAULT.withMemtableBytes(256 * 1024));
+			val noisy = tenants.create("noisy", Quota.DEFAULT.withWriteBytesPerSec(512 * 1024));
+			assertSame(quiet, tenants.create("quiet"));
+			assertThrows(IllegalArgumentException.class, ()->tenants.create("no/slashes"));
+
+			// memtables: the small quota flushes early
+			byte[] big = new byte[1000];
+			for (int i = 0; i < 2000; i++){
+				quiet.put(Durability.WAL, key(i), big);
+				small.put(Durability.WAL, key(i), big);
+			}
+			Thread.sleep(500);// flushes are in the background
+			System.out.println("memtables: quiet "+ quiet.memtableBytes() +", small "+ small.memtableBytes());
+			assertTrue(small.memtableBytes() < quiet.memtableBytes());
+
+			// write rate: 512 KB/s with a full 1 s burst ⇒ 1.5 MB take ≈ 2 s (writers are slowed down, each wait is < 50 ms)
+			long t = now();
+			for (int i = 0; i < 1500; i++){ noisy.put(Durability.WAL, key(i), big); }
+			System.out.println(noisy +" in "+ (now() - t) +" ms");
+			assertTrue(now() - t > 1500, noisy::toString);
+			// a 1 MB write is let through (the bucket runs into debt), the next one would wait ≈ 2 s > 50 ms ⇒ Busy
+			noisy.put(Durability.WAL, key(-1), new byte[1 << 20]);
+			val e = assertThrows(RocksDBException.class, ()->noisy.put(Durability.WAL, key(-2), big));
+			assertEquals(Status.Code.Busy, e.getStatus().getCode());
+			System.out.println(noisy);
+			tenants.setQuota("noisy", noisy.quota().withWriteBytesPerSec(0));
+			for (int i = 0; i < 2000; i++){ noisy.put(Durability.WAL, key(i), big); }// unlimited now
+
+			tenants.setQuota("quiet", Quota.DEFAULT.withMemtableBytes(1 << 20).withMaxMemtables(3));
+			assertTrue(tenants.drop("small"));
+			assertFalse(tenants.drop("small"));
+			assertNull(tenants.tenantOrNull("small"));
+			System.out.println(tenants);
+		}
+		try (val conf = new RocksDBConfig(dir, false, TenantStore.profiles(dir, base, Quota.DEFAULT))){
+			val tenants = new TenantStore(conf, Quota.DEFAULT, Duration.ofMillis(50));
+			assertEquals(Set.of("quiet", "noisy"), tenants.names());
+			assertEquals(Quota.DEFAULT.withMemtableBytes(1 << 20).withMaxMemtables(3), tenants.tenant("quiet").quota());
+			assertEquals(0, tenants.tenant("noisy").quota().writeBytesPerSec());
+			assertNotNull(tenants.tenant("noisy").get(key(1)));
+		}
+		try (val conf = new RocksDBConfig(dir, false)){// without profiles: tenant CFs open with the base profile's memtables
+			val tenants = new TenantStore(conf, Quota.DEFAULT, Duration.ofMillis(50));
+			val quiet = conf.rocksDB().getOptions(tenants.tenant("quiet").handle());
+			assertEquals(1 << 20, quiet.writeBufferSize());
+			assertEquals(3, quiet.maxWriteBufferNumber());
+			val noisy = conf.rocksDB().getOptions(tenants.tenant("noisy").handle());
+			assertEquals(Quota.DEFAULT.memtableBytes(), noisy.writeBufferSize());
+			assertEquals(Quota.DEFAULT.maxMemtables(), noisy.maxWriteBufferNumber());
+		}
+	}
+}
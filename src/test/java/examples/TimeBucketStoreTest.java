@@ -0,0 +1,108 @@
+package examples;
+
+import examples.rocksdb.RocksDBConfig;
+import examples.rocksdb.TimeBucketStore;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static examples.MagicUtils.asLatin1;
+import static examples.MagicUtils.now;
+import static examples.MagicUtils.perfToString;
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Expiry cost: drop of time bucket CF vs per-key tombstones + compaction; fan-out read speed over buckets
+public class TimeBucketStoreTest {
+	static final int PER_BUCKET = 200_000;
+	static final int BUCKETS = 10;
+	static final long HOUR = Duration.ofHours(1).toMillis();
+
+	@Test  @SneakyThrows
+	void bucketExpiryVsTombstones () {
+		val dir = Files.createTempDirectory("rocksdbTimeBucket");
+		long now = System.currentTimeMillis();
+		try (val conf = new RocksDBConfig(dir, false)){
+			val store = new TimeBucketStore(conf, "events", Duration.ofHours(1), BUCKETS);
+
+			System.out.println("1️⃣ 10 hourly buckets × 200k keys");
+			long t = now();
+			for (int b = 0; b < BUCKETS; b++){
+				for (int i = 0; i < PER_BUCKET; i++){
+					long k = 7900_000_00_00L + (long) b * PER_BUCKET + i;
+					store.put(now - b * HOUR, Long.toString(k).getBytes(ISO_8859_1), Long.toString(k).repeat(7).getBytes(ISO_8859_1));
+				}
+			}
+			System.out.println(perfToString(t, now(), BUCKETS * PER_BUCKET));
+			assertEquals(BUCKETS, store.bucketNames().size());
+
+			System.out.println("2️⃣ Random reads: fan-out newest → oldest with bloom check");
+			read(store, 0, 1);// newest bucket: 1 lookup
+			read(store, BUCKETS - 1, BUCKETS);// oldest: 9 bloom checks + 1 lookup
+			t = now();
+			for (int n = 0; n < 200_000; n++){
+				assertNull(store.get(Long.toString(1000_000_00_00L + n).getBytes(ISO_8859_1)));// misses: bloom only
+			}
+			System.out.println("misses: "+ perfToString(t, now(), 200_000));
+
+			System.out.println("3️⃣ Expire 5 oldest buckets = drop CF");
+			t = now();
+			assertEquals(5, store.expire(now + 5 * HOUR));
+			System.out.printf("expire: %d ms%n", now() - t);
+			assertNull(store.get(Long.toString(7900_000_00_00L + 9L * PER_BUCKET).getBytes(ISO_8859_1)));
+			assertNotNull(store.get(Long.toString(7900_000_00_00L).getBytes(ISO_8859_1)));
+
+			System.out.println("4️⃣ Purge key range with DeleteRange");
+			t = now();
+			store.purgeRange(Long.toString(7900_000_00_00L).getBytes(ISO_8859_1), Long.toString(7900_000_00_00L + PER_BUCKET / 2).getBytes(ISO_8859_1));
+			System.out.printf("purgeRange: %d ms%n", now() - t);
+			assertNull(store.get(Long.toString(7900_000_00_00L + 7).getBytes(ISO_8859_1)));
+			assertNotNull(store.get(Long.toString(7900_000_00_00L + PER_BUCKET / 2).getBytes(ISO_8859_1)));
+
+			System.out.println("5️⃣ The same 1 mi keys expired the TtlDB way: tombstone per key + compaction");
+			val h = conf.handle("harry");
+			int max = 5 * PER_BUCKET;
+			for (int i = 0; i < max; ){
+				try (val batch = new WriteBatch(); val wo = new WriteOptions()){
+					for (int j = 0; j < 5000; j++, i++){
+						batch.put(h, Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1), Long.toString(7900_000_00_00L + i).repeat(7).getBytes(ISO_8859_1));
+					}
+					conf.rocksDB().write(wo, batch);
+				}
+			}
+			t = now();
+			for (int i = 0; i < max; ){
+				try (val batch = new WriteBatch(); val wo = new WriteOptions()){
+					for (int j = 0; j < 5000; j++, i++){
+						batch.delete(h, Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1));
+					}
+					conf.rocksDB().write(wo, batch);
+				}
+			}
+			conf.rocksDB().compactRange(h);
+			System.out.printf("tombstones + compaction: %d ms%n", now() - t);
+		}
+		try (val conf = new RocksDBConfig(dir, false)){// reopen finds buckets
+			val store = new TimeBucketStore(conf, "events", Duration.ofHours(1), BUCKETS);
+			assertEquals(BUCKETS - 5, store.bucketNames().size());
+			assertEquals(Long.toString(7900_000_00_00L + PER_BUCKET).repeat(7), asLatin1(store.get(Long.toString(7900_000_00_00L + PER_BUCKET).getBytes(ISO_8859_1))));
+		}
+	}
+
+	@SneakyThrows
+	static void read (TimeBucketStore store, int bucket, int lookups) {
+		long t = now();
+		val r = ThreadLocalRandom.current();
+		for (int n = 0; n < 200_000; n++){
+			long k = 7900_000_00_00L + (long) bucket * PER_BUCKET + r.nextInt(PER_BUCKET);
+			assertEquals(Long.toString(k).repeat(7), asLatin1(store.get(Long.toString(k).getBytes(ISO_8859_1))));
+		}
+		System.out.printf("bucket #%d (%d buckets asked): %s%n", bucket, lookups, perfToString(t, now(), 200_000));
+	}
+}
@@ -1,5 +1,6 @@
 package examples;
 
+import examples.bench.BenchmarkResult;
 import io.nats.client.Connection;
 import io.nats.client.JetStreamApiException;
 import io.nats.client.KeyValue;
@@ -21,7 +22,6 @@ import java.util.concurrent.ThreadLocalRandom;
 
 import static examples.MagicUtils.close;
 import static examples.MagicUtils.now;
-import static examples.MagicUtils.perfToString;
 import static org.junit.jupiter.api.Assertions.*;
 
 /// https://docs.nats.io/nats-concepts/jetstream/key-value-store \
@@ -80,7 +80,7 @@ class VsNatsCliKeyValueTest {
 			kv.put(Long.toString(7900_000_00_00L + i), Long.toString(7900_000_00_00L + i).repeat(7));
 			if (++i % 10_000 == 0) System.out.println(i);
 		}
-		System.out.println(perfToString(t, now(), MAX));
+		System.out.println(BenchmarkResult.record("nats-cli-kv", "put", t, now(), MAX));
 
 
 		System.out.println("2️⃣ Single thread random reads");
@@ -92,6 +92,6 @@ class VsNatsCliKeyValueTest {
 			if (++n % 20_000 == 0) System.out.println(n);
 			assertEquals(Long.toString(7900_000_00_00L + i).repeat(7), e.getValueAsString());
 		}
-		System.out.println(perfToString(t, now(), MAX));
+		System.out.println(BenchmarkResult.record("nats-cli-kv", "random get", t, now(), MAX));
 	}
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+package examples;
+
+import examples.rocksdb.RocksDBConfig;
+import examples.rocksdb.WriteAdmission;
+import examples.ycsb.Histogram;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.MutableColumnFamilyOptions;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.Status;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import static examples.MagicUtils.now;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Sustained random writes into small memtables with low L0 triggers (L0 grows faster than compaction):
+/// free-for-all writers vs [WriteAdmission]. Per-second throughput shows the cliff (RocksDB stall) vs graceful degradation.
+public class WriteAdmissionTest {
+	static final int WRITERS = 64;
+	static final int SECONDS = 20;
+	static final int VALUE_SIZE = 1024;
+	static final int L0_SLOWDOWN = 6;
+
+	/// @param latency of completed writes only (a rejected one waited `maxWait` and wrote nothing)
+	record Result (long minPerSecond, long total, Histogram latency, long rejected) {}
+
+	@Test
+	void compare () {
+		val free = run(false);
+		val admission = run(true);
+		assertTrue(admission.minPerSecond() > 0, "admission: no second without writes");
+		assertTrue(admission.rejected() > 0, "admission: overload is rejected early, not queued in the write path");
+		assertTrue(admission.latency().percentile(95) < free.latency().percentile(95),
+			()->"admitted writes wait less in RocksDB's write path: "+ admission.latency() +" vs free-for-all "+ free.latency());
+	}
+
+	@SneakyThrows
+	static Result run (boolean admission) {
+		try (val conf = new RocksDBConfig(Files.createTempDirectory("rocksdbAdmission"), false)){
+			val h = conf.createColumnFamily("writes");
+			// a "slow disk": tiny memtables and low L0 triggers ⇒ stalls within seconds
+			conf.rocksDB().setOptions(h, MutableColumnFamilyOptions.builder()
+				.setWriteBufferSize(4 << 20)
+				.setLevel0SlowdownWritesTrigger(L0_SLOWDOWN)
+				.setLevel0StopWritesTrigger(L0_SLOWDOWN * 2)
+				.build());
+			val control = admission ? new WriteAdmission(conf, List.of(h), 2, WRITERS, 2, Duration.ofMillis(200), WRITERS,
+				Duration.ofMillis(50), L0_SLOWDOWN, WriteAdmission.SOFT_PENDING_COMPACTION_BYTES) : null;
+			val perSecond = new AtomicLongArray(SECONDS);
+			val latency = new Histogram();
+			val rejected = new LongAdder();
+			val failure = new AtomicReference<Throwable>();// an unexpected error would only end its writer
+			try {
+				long start = now();
+				val threads = new ArrayList<Thread>();
+				val histograms = new ArrayList<Histogram>();
+				for (int w = 0; w < WRITERS; w++){
+					val mine = new Histogram();
+					histograms.add(mine);
+					threads.add(Thread.ofPlatform().start(()->{
+						try {
+							write(conf, h, control, start, perSecond, mine, rejected);
+						} catch (Throwable e){
+							failure.compareAndSet(null, e);
+						}
+					}));
+				}
+				for (Thread t : threads){ t.join(); }
+				histograms.forEach(latency::add);
+			} finally {
+				MagicUtils.close(control);
+			}
+			if (failure.get() != null){ throw failure.get(); }
+			long min = Long.MAX_VALUE, max = 0, total = 0;
+			for (int s = 1; s < SECONDS; s++){// 1st second = warm-up
+				min = Math.min(min, perSecond.get(s));
+				max = Math.max(max, perSecond.get(s));
+				total += perSecond.get(s);
+			}
+			System.out.printf("%-13s writes/s avg=%d min=%d max=%d; latency %s; rejected=%d; L0=%s%n  per second: %s%n  %s%n",
+				admission ? "admission" : "free-for-all", total / (SECONDS - 1), min, max, latency, rejected.sum(),
+				conf.rocksDB().getProperty(h, "rocksdb.num-files-at-level0"), perSecond, control);
+			assertTrue(total > 0);
+			return new Result(min, total, latency, rejected.sum());
+		}
+	}
+
+	static void write (RocksDBConfig conf, ColumnFamilyHandle h, @Nullable WriteAdmission control, long start, AtomicLongArray perSecond,
+			Histogram latency, LongAdder rejected) throws RocksDBException {
+		val r = ThreadLocalRandom.current();
+		byte[] value = new byte[VALUE_SIZE];
+		for (long second; (second = (now() - start) / 1000) < SECONDS; ){
+			byte[] key = RocksDBConfig.intToBytes(r.nextInt());
+			r.nextBytes(value);
+			long t = System.nanoTime();
+			try {
+				if (control != null)
+						control.put(h, key, value);
+				else
+						conf.rocksDB().put(h, key, value);
+				perSecond.incrementAndGet((int) second);
+				latency.record(System.nanoTime() - t);
+			} catch (RocksDBException e){
+				if (control == null || e.getStatus() == null || e.getStatus().getCode() != Status.Code.Busy){ throw e; }
+				rejected.increment();
+			}
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package examples;
+
+import examples.bench.BenchmarkCompare;
+import examples.bench.BenchmarkResult;
+import examples.ycsb.Histogram;
+import examples.ycsb.KeyChooser;
+import examples.ycsb.KeyChooser.Distribution;
+import examples.ycsb.KeyValueEngine;
+import examples.ycsb.MemoryEngine;
+import examples.ycsb.Workload;
+import examples.ycsb.Ycsb;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/// YCSB A–F under skew: in-memory baseline vs RocksDB (cache/compaction settings via `-D&rocksdb.*`)
+public class YcsbTest {
+	static final long RECORDS = 300_000;
+	static final long OPERATIONS = 300_000;
+
+	@Test
+	void distributions () {
+		long n = 1_000_000;
+		assertTrue(share(Distribution.UNIFORM, n, n / 100) < 0.02);
+		assertTrue(share(Distribution.ZIPFIAN, n, n / 100) > 0.5, "zipfian: the first 1% of keys get most of the traffic");
+		assertTrue(share(Distribution.HOTSPOT, n, n / 5) > 0.75);
+		assertTrue(share(Distribution.SCRAMBLED_ZIPFIAN, n, n / 100) < 0.1, "scrambled: hot keys are spread");
+
+		KeyChooser latest = Distribution.LATEST.newChooser();
+		int recent = 0;
+		for (int i = 0; i < 100_000; i++){
+			long k = latest.next(n);
+			assertTrue(k >= 0 && k < n);
+			if (k >= n - n / 100){ recent++; }
+		}
+		assertTrue(recent > 50_000, "latest: the newest 1% of keys get most of the traffic");
+
+		val h = new Histogram();
+		for (int i = 1; i <= 1000; i++){ h.record(i * 1000L); }
+		assertEquals(500_000, h.percentile(50), 500_000 * 0.04);
+		assertEquals(990_000, h.percentile(99), 990_000 * 0.04);
+		assertEquals(1_000_000, h.max());
+	}
+
+	static double share (Distribution distribution, long itemCount, long firstKeys) {
+		KeyChooser chooser = distribution.newChooser();
+		int hits = 0, total = 200_000;
+		for (int i = 0; i < total; i++){
+			long k = chooser.next(itemCount);
+			assertTrue(k >= 0 && k < itemCount, distribution + ": " + k);
+			if (k < firstKeys){ hits++; }
+		}
+		System.out.printf("%-18s first %d of %d keys: %.1f%% of requests%n", distribution, firstKeys, itemCount, hits * 100.0 / total);
+		return hits / (double) total;
+	}
+
+	@Test
+	void memory () {
+		workloads(MemoryEngine.class.getName());
+	}
+
+	@Test
+	void rocksdb () {
+		workloads("rocksdb");
+	}
+
+	@SneakyThrows
+	static void workloads (String engineName) {
+		try (val engine = KeyValueEngine.create(engineName)){
+			val ycsb = new Ycsb(engine, 4, false);
+			System.out.println(ycsb.load(Workload.A.withRecordCount(RECORDS)));
+			for (String name : List.of("A", "B", "C", "F", "D", "E")){
+				val w = Workload.of(name).withRecordCount(RECORDS).withOperationCount(OPERATIONS);
+				Ycsb.Result r = ycsb.run(w);
+				System.out.println(r);
+				assertEquals(OPERATIONS, r.latency().values().stream().mapToLong(Histogram::count).sum());
+				BenchmarkResult.of(r).append(BenchmarkResult.outputDir());
+			}
+		}
+	}
+
+	/// JSON round trip + the gate: a baseline 20% faster with 2× better p99 ⇒ regressions
+	@Test @SneakyThrows
+	void regressionGate () {
+		val dir = Files.createTempDirectory("bench");
+		try (val engine = new MemoryEngine()){
+			val ycsb = new Ycsb(engine, 2, false);
+			ycsb.load(Workload.B.withRecordCount(50_000));
+			BenchmarkResult.of(ycsb.run(Workload.B.withRecordCount(50_000).withOperationCount(100_000))).append(dir);
+		}
+		List<BenchmarkResult> current = BenchmarkResult.read(dir.resolve(BenchmarkResult.JSONL));
+		assertEquals(1, current.size());
+		assertEquals(2, Files.readAllLines(dir.resolve(BenchmarkResult.CSV)).size());// header + row
+		BenchmarkResult r = current.get(0);
+		assertTrue(r.latencyMicros().containsKey("READ.p99"));
+		assertTrue(r.jvmFlags().size() > 0);
+		System.out.println(r.toJson());
+
+		val cmp = new BenchmarkCompare(0.10, 0.20);
+		assertTrue(cmp.compare(current, current).stream().noneMatch(BenchmarkCompare.Diff::regression));
+		val better = new HashMap<>(r.latencyMicros());
+		better.replaceAll((k, v)->v / 2);
+		val baseline = new ArrayList<BenchmarkResult>();
+		baseline.add(new BenchmarkResult(r.timestamp(), r.engine(), r.workload(), r.config(), r.jvmFlags(), r.operations(), r.millis(), r.throughput() * 1.2, better, r.allocatedBytes()));
+		val diffs = cmp.compare(baseline, current);
+		diffs.forEach(System.out::println);
+		assertTrue(diffs.stream().filter(BenchmarkCompare.Diff::regression).count() >= 2);
+	}
+}
@@ -0,0 +1,70 @@
+package examples;
+
+import examples.rocksdb.ColumnFamilyProfile;
+import examples.rocksdb.RocksDBConfig;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.CompressionType;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static examples.MagicUtils.asLatin1;
+import static examples.MagicUtils.now;
+import static examples.MagicUtils.perfToString;
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/// On-disk size, block cache footprint and random read speed: per-block ZSTD vs trained ZSTD dictionary vs per-level compression
+public class ZstdDictionaryTest {
+	static final int MAX = 2_000_000;
+
+	@Test
+	void compareCompression () {
+		val profiles = new LinkedHashMap<String,ColumnFamilyProfile>();
+		profiles.put("zstd (current)", ColumnFamilyProfile.DEFAULT);
+		profiles.put("zstd + dict 16k", ColumnFamilyProfile.DEFAULT.withDictionary(16 * 1024));
+		profiles.put("zstd + dict 64k, bottommost level 9", ColumnFamilyProfile.DEFAULT.withDictionary(64 * 1024).withBottommostZstdLevel(9));
+		profiles.put("none/lz4 upper + zstd dict 16k", ColumnFamilyProfile.DEFAULT.withDictionary(16 * 1024)
+			.withLevels(CompressionType.NO_COMPRESSION, CompressionType.NO_COMPRESSION, CompressionType.LZ4_COMPRESSION, CompressionType.LZ4_COMPRESSION,
+				CompressionType.ZSTD_COMPRESSION, CompressionType.ZSTD_COMPRESSION, CompressionType.ZSTD_COMPRESSION));
+		profiles.forEach(ZstdDictionaryTest::measure);
+	}
+
+	@SneakyThrows
+	static void measure (String name, ColumnFamilyProfile profile) {
+		try (val conf = new RocksDBConfig(Files.createTempDirectory("rocksdbZstd"), false, cf->profile)){
+			val h = conf.handle("harry");
+			val db = conf.rocksDB();
+			long t = now();
+			for (int i = 0; i < MAX; ){
+				try (val batch = new WriteBatch(); val wo = new WriteOptions()){
+					for (int j = 0; j < 5000; j++, i++){
+						batch.put(h, Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1), Long.toString(7900_000_00_00L + i).repeat(7).getBytes(ISO_8859_1));
+					}
+					db.write(wo, batch);
+				}
+			}
+			String write = perfToString(t, now(), MAX);
+			t = now();
+			db.compactRange(h);// everything → bottommost level (flush included)
+			long compaction = now() - t;
+			long sst = db.getLongProperty(h, "rocksdb.total-sst-files-size");
+
+			t = now();
+			val r = ThreadLocalRandom.current();
+			for (int n = 0; n < MAX; n++){
+				int i = r.nextInt(MAX);
+				assertEquals(Long.toString(7900_000_00_00L + i).repeat(7), asLatin1(conf.get(h, Long.toString(7900_000_00_00L + i).getBytes(ISO_8859_1))));
+			}
+			String read = perfToString(t, now(), MAX);
+			long cache = db.getLongProperty(h, "rocksdb.block-cache-usage");
+			System.out.printf("%-38s SST=%4d MB (%.1f bytes/key), block cache=%4d MB, compaction=%5d ms, write %s, random read %s%n",
+				name, sst >> 20, sst / (double) MAX, cache >> 20, compaction, write, read);
+		}
+	}
+}